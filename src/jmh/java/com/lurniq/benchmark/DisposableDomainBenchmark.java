@@ -0,0 +1,95 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.util.DomainTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disposable domain check on a registration email: the reversed-label trie against the obvious
+ * {@code Set<String>} loop that lower-cases the domain and tries it and every parent suffix. Run with
+ * {@code -prof gc} to compare allocation per check as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DisposableDomainBenchmark {
+    
+    @Param({"50000"})
+    public int domainCount;
+    
+    private DomainTrie trie;
+    private Set<String> set;
+    private String allowed;
+    private String blocked;
+    private String blockedSubdomain;
+    
+    @Setup
+    public void setup() {
+        List<String> domains = new ArrayList<>(domainCount);
+        for (int i = 0; i < domainCount; i++) {
+            domains.add("throwaway" + i + (i % 3 == 0 ? ".net" : ".com"));
+        }
+        trie = DomainTrie.build(domains);
+        set = new HashSet<>(domains);
+        allowed = "Jane.Doe@mail.example.co.uk";
+        blocked = "bot123@Throwaway4242.com";
+        blockedSubdomain = "bot123@inbox.eu.throwaway999.net";
+    }
+    
+    @Benchmark
+    public boolean trieAllowed() {
+        return trie.matches(allowed);
+    }
+    
+    @Benchmark
+    public boolean trieBlocked() {
+        return trie.matches(blocked);
+    }
+    
+    @Benchmark
+    public boolean trieBlockedSubdomain() {
+        return trie.matches(blockedSubdomain);
+    }
+    
+    @Benchmark
+    public boolean setAllowed() {
+        return setMatches(allowed);
+    }
+    
+    @Benchmark
+    public boolean setBlocked() {
+        return setMatches(blocked);
+    }
+    
+    @Benchmark
+    public boolean setBlockedSubdomain() {
+        return setMatches(blockedSubdomain);
+    }
+    
+    private boolean setMatches(String email) {
+        String domain = email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+        while (true) {
+            if (set.contains(domain)) {
+                return true;
+            }
+            int dot = domain.indexOf('.');
+            if (dot < 0) {
+                return false;
+            }
+            domain = domain.substring(dot + 1);
+        }
+    }
+}
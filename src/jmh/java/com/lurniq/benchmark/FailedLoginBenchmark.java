@@ -0,0 +1,222 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.controller.AuthController;
+import com.lurniq.dto.LoginRequest;
+import com.lurniq.entity.User;
+import com.lurniq.exception.EmailNotVerifiedException;
+import com.lurniq.exception.GlobalExceptionHandler;
+import com.lurniq.exception.InvalidCredentialsException;
+import com.lurniq.repository.UserRepository;
+import com.lurniq.service.AuthService;
+import com.lurniq.service.LoginAttemptService;
+import com.lurniq.service.LoginAuthenticationProvider;
+import com.lurniq.service.LoginMetrics;
+import com.lurniq.service.PasswordHashingService;
+import com.lurniq.service.RegisteredEmailFilter;
+import com.lurniq.service.RequestTrackingService;
+import com.lurniq.service.ResponseService;
+import com.lurniq.util.PasswordHashPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DefaultAuthenticationEventPublisher;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureDisabledEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of failed password logins, the bulk of a credential stuffing run, through the pieces a real
+ * attempt passes after request parsing: {@link AuthController#login}, {@link AuthService#login} and
+ * {@link LoginAttemptService#attempt}, the hashing executor, the {@link ProviderManager} with the
+ * application's event mappings, {@link LoginAuthenticationProvider} (lockout check, registered email filter,
+ * user lookup, BCrypt), the failure event into {@link LoginAttemptService}, the returned future adapted the
+ * way Spring MVC adapts it, and the response from {@link GlobalExceptionHandler}. {@code unknownEmail} is a
+ * definite miss in the email filter and still pays the dummy hash; {@code wrongPassword} loads the user and
+ * checks its hash.
+ * <p>
+ * The user repository is an in-memory stub and lockouts are effectively off, so every iteration takes the
+ * failure path rather than the lockout path. {@code stackless} is the current provider; {@code stackTrace}
+ * rethrows each failure as a plain {@code BadCredentialsException} and answers it the way that exception is
+ * handled, which is what a failure cost before the stackless exceptions. {@code futures=single} is the
+ * controller as it is; {@code thenApply} builds the response in a dependent stage as the controller used to,
+ * which re-wraps every failure in a {@code CompletionException} with a stack trace. At production BCrypt cost
+ * the hash dominates; cost 4 shows the rest of the path. Run with {@code -t} at least the hashing executor's
+ * thread count for capacity per instance, and {@code -prof gc} for allocation per failure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FailedLoginBenchmark {
+    
+    private static final String USER_EMAIL = "user42@example.com";
+    private static final String UNKNOWN_EMAIL = "nobody@example.com";
+    
+    @Param({"4", "10"})
+    public int bcryptCost;
+    
+    @Param({"stackless", "stackTrace"})
+    public String failures;
+    
+    @Param({"single", "thenApply"})
+    public String futures;
+    
+    private LoginAttemptService loginAttemptService;
+    private ThreadPoolTaskExecutor hashingExecutor;
+    private AuthService authService;
+    private AuthController authController;
+    private ResponseService responseService;
+    private GlobalExceptionHandler exceptionHandler;
+    private MockHttpServletRequest request;
+    
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PasswordEncoder passwordEncoder = new PasswordHashPolicy(bcryptCost, 250, 4, 14, 1).createEncoder();
+        User user = User.builder()
+                .id(42L)
+                .email(USER_EMAIL)
+                .password(passwordEncoder.encode("correct horse battery staple"))
+                .role(User.Role.USER)
+                .emailVerified(true)
+                .tokenEpoch(0)
+                .build();
+        UserRepository userRepository = userRepository(user);
+        
+        RegisteredEmailFilter registeredEmailFilter = new RegisteredEmailFilter(userRepository, meterRegistry, 1_000_000, 0.01);
+        registeredEmailFilter.load();
+        // No lockouts or delays: a locked account would skip the hash and measure a different path
+        loginAttemptService = new LoginAttemptService(meterRegistry, Integer.MAX_VALUE, 0, 0, Integer.MAX_VALUE,
+                900_000, 900_000, 100_000, 10_000);
+        AuthenticationProvider provider = new LoginAuthenticationProvider(userRepository, passwordEncoder,
+                new LoginMetrics(meterRegistry), loginAttemptService, registeredEmailFilter);
+        if (failures.equals("stackTrace")) {
+            provider = withStackTraces(provider);
+        }
+        
+        // Same mappings as SecurityConfig, with the listener LoginAttemptService registers for failures
+        DefaultAuthenticationEventPublisher eventPublisher = new DefaultAuthenticationEventPublisher(event -> {
+            if (event instanceof AuthenticationFailureBadCredentialsEvent failure) {
+                loginAttemptService.onFailure(failure);
+            }
+        });
+        eventPublisher.setAdditionalExceptionMappings(Map.of(
+                InvalidCredentialsException.class, AuthenticationFailureBadCredentialsEvent.class,
+                EmailNotVerifiedException.class, AuthenticationFailureDisabledEvent.class));
+        ProviderManager authenticationManager = new ProviderManager(provider);
+        authenticationManager.setAuthenticationEventPublisher(eventPublisher);
+        
+        // Same shape as the passwordHashingExecutor bean, with room for every benchmark thread in the queue
+        hashingExecutor = new ThreadPoolTaskExecutor();
+        hashingExecutor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+        hashingExecutor.setMaxPoolSize(Runtime.getRuntime().availableProcessors());
+        hashingExecutor.setQueueCapacity(1_024);
+        hashingExecutor.setThreadNamePrefix("PasswordHash-");
+        hashingExecutor.initialize();
+        PasswordHashingService passwordHashingService = new PasswordHashingService(hashingExecutor, meterRegistry, 1);
+        
+        // Only what the failure path touches; the rest of AuthService is not reached by a failed login
+        authService = new AuthService(userRepository, passwordEncoder, null, authenticationManager, null, null, null,
+                null, null, passwordHashingService, null, null, null, loginAttemptService, registeredEmailFilter, null, null);
+        RequestTrackingService requestTrackingService = new RequestTrackingService();
+        responseService = new ResponseService(requestTrackingService);
+        authController = new AuthController(authService, responseService);
+        exceptionHandler = new GlobalExceptionHandler(requestTrackingService);
+        request = new MockHttpServletRequest("POST", "/api/auth/login");
+    }
+    
+    @TearDown
+    public void tearDown() {
+        loginAttemptService.shutdown();
+        hashingExecutor.shutdown();
+    }
+    
+    @Benchmark
+    public Object unknownEmail() {
+        return login(UNKNOWN_EMAIL, "password123");
+    }
+    
+    @Benchmark
+    public Object wrongPassword() {
+        return login(USER_EMAIL, "password123");
+    }
+    
+    private Object login(String email, String password) {
+        LoginRequest loginRequest = new LoginRequest(email, password);
+        CompletableFuture<?> response = futures.equals("single")
+                ? authController.login(loginRequest, request)
+                : authService.login(loginRequest, request, authResponse -> authResponse)
+                        .thenApply(authResponse -> ResponseEntity.ok(responseService.success("Login successful", authResponse)));
+        
+        // What Spring MVC does with a returned future: whenComplete, unwrap a CompletionException, then resolve
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        response.whenComplete((value, failure) -> {
+            if (failure instanceof CompletionException && failure.getCause() != null) {
+                failure = failure.getCause();
+            }
+            if (failure instanceof InvalidCredentialsException e) {
+                outcome.complete(exceptionHandler.handleInvalidCredentials(e));
+            } else if (failure instanceof BadCredentialsException e) {
+                outcome.complete(exceptionHandler.handleBadCredentials(e, request));
+            } else if (failure != null) {
+                outcome.completeExceptionally(failure);
+            } else {
+                outcome.complete(value);
+            }
+        });
+        return outcome.join();
+    }
+    
+    private static AuthenticationProvider withStackTraces(AuthenticationProvider provider) {
+        return new AuthenticationProvider() {
+            @Override
+            public Authentication authenticate(Authentication authentication) {
+                try {
+                    return provider.authenticate(authentication);
+                } catch (InvalidCredentialsException e) {
+                    throw new BadCredentialsException(e.getMessage());
+                }
+            }
+            
+            @Override
+            public boolean supports(Class<?> authentication) {
+                return provider.supports(authentication);
+            }
+        };
+    }
+    
+    private static UserRepository userRepository(User user) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByEmail" -> user.getEmail().equals(args[0]) ? Optional.of(user) : Optional.empty();
+                    case "count" -> 1L;
+                    case "streamAllEmails" -> Stream.of(user.getEmail());
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "UserRepository stub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,75 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.filter.ForwardAuthFilter;
+import com.lurniq.tokens.TokenVerifier;
+import com.lurniq.util.RejectedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process latency of the forward-auth filter for a valid token (verified-token cache hit), the same
+ * token on its first sighting (cache evicted before every call, so the signature is verified each time),
+ * and a replayed invalid one (negative cache hit). SampleTime mode reports p99 alongside the mean; the
+ * target is a p99 in the low tens of microseconds for the cached case. Run just this class by setting
+ * {@code includes = ['ForwardAuthBenchmark']} in the {@code jmh} block of build.gradle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForwardAuthBenchmark {
+    
+    private ForwardAuthFilter filter;
+    private TokenVerifier tokenVerifier;
+    private String token;
+    private String validHeader;
+    private String invalidHeader;
+    
+    @Setup
+    public void setup() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenFixtures fixtures = new TokenFixtures(meterRegistry);
+        filter = new ForwardAuthFilter(fixtures.accessTokenVerifier(), new RejectedTokenCache(meterRegistry, 10_000, 60_000),
+                null, "/auth/forward", 5, 5);
+        
+        tokenVerifier = fixtures.jwtUtil().getTokenVerifier();
+        token = fixtures.token(42L);
+        validHeader = "Bearer " + token;
+        invalidHeader = "Bearer " + TokenFixtures.tamper(token);
+    }
+    
+    @Benchmark
+    public int validToken() throws Exception {
+        return forwardAuth(validHeader);
+    }
+    
+    @Benchmark
+    public int uncachedValidToken() throws Exception {
+        // Includes one extra digest for the eviction, a small fraction of a signature check
+        tokenVerifier.invalidate(token);
+        return forwardAuth(validHeader);
+    }
+    
+    @Benchmark
+    public int replayedInvalidToken() throws Exception {
+        return forwardAuth(invalidHeader);
+    }
+    
+    private int forwardAuth(String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/auth/forward");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,78 @@
+package com.lurniq.benchmark;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify cost per supported key ring algorithm, for the token shape issued by JwtUtil.
+ * Token sizes are printed during setup so speed can be weighed against header size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAlgorithmBenchmark {
+    
+    @Param({"HS256", "ES256", "EdDSA"})
+    private String algorithm;
+    
+    private SecretKey secretKey;
+    private KeyPair keyPair;
+    private JwtParser parser;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        switch (algorithm) {
+            case "HS256" -> {
+                secretKey = Jwts.SIG.HS256.key().build();
+                parser = Jwts.parser().verifyWith(secretKey).build();
+            }
+            case "ES256" -> {
+                keyPair = Jwts.SIG.ES256.keyPair().build();
+                parser = Jwts.parser().verifyWith(keyPair.getPublic()).build();
+            }
+            case "EdDSA" -> {
+                keyPair = Jwts.SIG.EdDSA.keyPair().build();
+                parser = Jwts.parser().verifyWith(keyPair.getPublic()).build();
+            }
+            default -> throw new IllegalArgumentException(algorithm);
+        }
+        token = sign();
+        System.out.printf("%n%s token size: %d bytes%n", algorithm, token.length());
+    }
+    
+    @Benchmark
+    public String sign() {
+        long now = System.currentTimeMillis();
+        var builder = Jwts.builder()
+                .claims(Map.of("uid", 42L, "role", "USER", "ev", true))
+                .subject("user@example.com")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + 86_400_000L))
+                .header().keyId(algorithm.toLowerCase()).and();
+        return switch (algorithm) {
+            case "HS256" -> builder.signWith(secretKey, Jwts.SIG.HS256).compact();
+            case "ES256" -> builder.signWith(keyPair.getPrivate(), Jwts.SIG.ES256).compact();
+            default -> builder.signWith(keyPair.getPrivate(), Jwts.SIG.EdDSA).compact();
+        };
+    }
+    
+    @Benchmark
+    public Object verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+}
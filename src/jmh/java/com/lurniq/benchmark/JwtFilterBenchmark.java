@@ -0,0 +1,90 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.entity.User;
+import com.lurniq.filter.JwtAuthenticationFilter;
+import com.lurniq.service.RequestTrackingService;
+import com.lurniq.util.JwtExceptionHandler;
+import com.lurniq.util.RejectedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the JWT step of the authentication filter. {@code parsePerCallBaseline} repeats what the
+ * filter did before the parse-once pipeline: three full parses (username, then username and expiry again
+ * in validation), each deriving the key and building a parser. {@code filter} runs the current
+ * {@link JwtAuthenticationFilter} end to end with a fixed user lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtFilterBenchmark {
+    
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private String header;
+    
+    @Setup
+    public void setup() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenFixtures fixtures = new TokenFixtures(meterRegistry);
+        token = fixtures.token(42L);
+        header = "Bearer " + token;
+        
+        User user = User.builder()
+                .id(42L)
+                .email("user42@example.com")
+                .password("unused")
+                .role(User.Role.USER)
+                .emailVerified(true)
+                .tokenEpoch(0)
+                .build();
+        filter = new JwtAuthenticationFilter(fixtures.jwtUtil(), fixtures.accessTokenVerifier(),
+                new RejectedTokenCache(meterRegistry, 10_000, 60_000), username -> user,
+                new JwtExceptionHandler(new RequestTrackingService()));
+    }
+    
+    @Benchmark
+    public Object parsePerCallBaseline() {
+        String username = parseClaims(token).getSubject();
+        boolean valid = username.equals(parseClaims(token).getSubject())
+                && !parseClaims(token).getExpiration().before(new Date());
+        return valid;
+    }
+    
+    @Benchmark
+    public int filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/profile");
+        request.addHeader("Authorization", header);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+    
+    private static Claims parseClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(TokenFixtures.SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,56 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full access token check the authentication filter runs, for an opaque token (one session store
+ * lookup) against a JWT served from the verified-token cache. {@code uncachedJwt} is the signature
+ * verification a JWT additionally pays the first time an instance sees it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OpaqueTokenBenchmark {
+    
+    private AccessTokenVerifier accessTokenVerifier;
+    private JwtUtil jwtUtil;
+    private String opaqueToken;
+    private String jwt;
+    
+    @Setup
+    public void setup() throws Exception {
+        TokenFixtures fixtures = new TokenFixtures(new SimpleMeterRegistry());
+        accessTokenVerifier = fixtures.accessTokenVerifier();
+        jwtUtil = fixtures.jwtUtil();
+        opaqueToken = fixtures.opaqueToken(42L);
+        jwt = fixtures.token(42L);
+        accessTokenVerifier.verify(jwt);
+    }
+    
+    @Benchmark
+    public VerifiedToken opaqueToken() {
+        return accessTokenVerifier.verify(opaqueToken);
+    }
+    
+    @Benchmark
+    public VerifiedToken cachedJwt() {
+        return accessTokenVerifier.verify(jwt);
+    }
+    
+    @Benchmark
+    public VerifiedToken uncachedJwt() {
+        return jwtUtil.getTokenVerifier().parse(jwt);
+    }
+}
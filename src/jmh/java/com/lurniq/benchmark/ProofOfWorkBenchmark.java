@@ -0,0 +1,69 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.util.ProofOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side cost of the proof-of-work gate: checking a valid solution (puzzle hash plus challenge MAC),
+ * rejecting a wrong nonce (puzzle hash only) and issuing a challenge. Compare with the BCrypt time
+ * reported by auth.password.hashing.expected.millis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProofOfWorkBenchmark {
+    
+    private static final String CLIENT_IP = "203.0.113.7";
+    private static final int DIFFICULTY = 16;
+    
+    private ProofOfWork proofOfWork;
+    private String validSolution;
+    private String wrongNonce;
+    
+    @Setup
+    public void setup() throws Exception {
+        proofOfWork = new ProofOfWork("benchmark-secret".getBytes(StandardCharsets.UTF_8), 3600);
+        String challenge = proofOfWork.issue(CLIENT_IP, DIFFICULTY);
+        validSolution = solve(challenge);
+        wrongNonce = challenge + ":not-a-solution";
+        if (proofOfWork.verify(validSolution, CLIENT_IP) == null) {
+            throw new IllegalStateException("Solver produced an invalid solution");
+        }
+    }
+    
+    @Benchmark
+    public String verifyValidSolution() {
+        return proofOfWork.verify(validSolution, CLIENT_IP);
+    }
+    
+    @Benchmark
+    public String verifyWrongNonce() {
+        return proofOfWork.verify(wrongNonce, CLIENT_IP);
+    }
+    
+    @Benchmark
+    public String issueChallenge() {
+        return proofOfWork.issue(CLIENT_IP, DIFFICULTY);
+    }
+    
+    // What a client does: about 2^difficulty hashes
+    private static String solve(String challenge) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (long nonce = 0; ; nonce++) {
+            String candidate = challenge + ":" + nonce;
+            if (ProofOfWork.hasLeadingZeroBits(sha256.digest(candidate.getBytes(StandardCharsets.UTF_8)), DIFFICULTY)) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.entity.User;
+import com.lurniq.service.RegistrationBatcher;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registration insert throughput against a real Postgres database, one row per statement versus the
+ * group commit in {@link RegistrationBatcher}, at 1, 50 and 500 concurrent clients. Password hashing is
+ * left out so only the database write path is measured. Rows are created in the users table with emails
+ * under {@code @registration-load.invalid} and deleted afterwards.
+ * <p>
+ * Arguments: JDBC url, user, password, duration per run in seconds (optional), connection pool size (optional).
+ * Run with {@code ./gradlew registrationLoad --args="jdbc:postgresql://localhost:5432/lurniq lurniq secret 10 20"}.
+ */
+public final class RegistrationLoadGenerator {
+    
+    private static final int[] CLIENTS = {1, 50, 500};
+    private static final String EMAIL_DOMAIN = "@registration-load.invalid";
+    private static final String INSERT_SQL = """
+            INSERT INTO users
+                (email, password, first_name, last_name, role, provider, email_verified, token_epoch, created_at, updated_at)
+            VALUES (?, ?, ?, ?, 'USER', 'LOCAL', false, 0, ?, ?)
+            ON CONFLICT (email) DO NOTHING RETURNING id
+            """;
+    // Fixed hash; hashing cost is not part of this measurement
+    private static final String PASSWORD_HASH = "{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z1YzI1KD7PAx6pDWwM1j4bX2";
+    
+    private static final AtomicLong sequence = new AtomicLong();
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: <jdbc-url> <user> <password> [seconds] [pool-size]");
+            System.exit(1);
+        }
+        int durationSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int poolSize = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(args[0]);
+            dataSource.setUsername(args[1]);
+            dataSource.setPassword(args[2]);
+            dataSource.setMaximumPoolSize(poolSize);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            
+            RegistrationBatcher batcher = new RegistrationBatcher(jdbcTemplate, Runnable::run,
+                    new SimpleMeterRegistry(), true, 5, 200);
+            batcher.start();
+            try {
+                System.out.printf("pool=%d duration=%ds%n", poolSize, durationSeconds);
+                for (int clients : CLIENTS) {
+                    double single = run(clients, durationSeconds, () -> insertOne(jdbcTemplate));
+                    double grouped = run(clients, durationSeconds, () -> batcher.insert(newUser()).join());
+                    System.out.printf("clients=%-4d single-row inserts/s: %8.0f   group commit inserts/s: %8.0f%n",
+                            clients, single, grouped);
+                }
+            } finally {
+                batcher.stop();
+                int deleted = jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", "%" + EMAIL_DOMAIN);
+                System.out.printf("removed %d load test users%n", deleted);
+            }
+        }
+    }
+    
+    private static double run(int clients, int durationSeconds, Runnable insert) throws InterruptedException {
+        LongAdder inserts = new LongAdder();
+        CountDownLatch done = new CountDownLatch(clients);
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(3, durationSeconds / 4 + 1));
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        
+        for (int c = 0; c < clients; c++) {
+            Thread client = new Thread(() -> {
+                try {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        insert.run();
+                        if (now >= warmupEnd) {
+                            inserts.increment();
+                        }
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }, "register-" + c);
+            client.start();
+        }
+        
+        done.await();
+        return inserts.sum() / (double) durationSeconds;
+    }
+    
+    private static void insertOne(JdbcTemplate jdbcTemplate) {
+        User user = newUser();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.queryForList(INSERT_SQL, Long.class, user.getEmail(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), now, now);
+    }
+    
+    private static User newUser() {
+        return User.builder()
+                .email("user-" + sequence.incrementAndGet() + "-" + System.nanoTime() + EMAIL_DOMAIN)
+                .password(PASSWORD_HASH)
+                .firstName("Load")
+                .lastName("Test")
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.lurniq.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.entity.User;
+import com.lurniq.service.OpaqueTokenService;
+import com.lurniq.service.TokenEpochService;
+import com.lurniq.service.TokenRevocationService;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtKeyRing;
+import com.lurniq.util.JwtUtil;
+import com.lurniq.util.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Token verification components wired by hand, without a Spring context, for benchmarks and load generators.
+ */
+final class TokenFixtures {
+    
+    static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256";
+    
+    private final JwtKeyRing keyRing;
+    private final JwtUtil jwtUtil;
+    private final OpaqueTokenService opaqueTokenService;
+    private final AccessTokenVerifier accessTokenVerifier;
+    
+    TokenFixtures(MeterRegistry meterRegistry) throws ReflectiveOperationException {
+        this.keyRing = new JwtKeyRing(new JwtKeyRingProperties(), new ObjectMapper(), SECRET, 604_800_000L);
+        TokenEpochService tokenEpochService = new TokenEpochService(null);
+        this.jwtUtil = new JwtUtil(keyRing, tokenEpochService);
+        Field cacheMaximumSize = JwtUtil.class.getDeclaredField("cacheMaximumSize");
+        cacheMaximumSize.setAccessible(true);
+        cacheMaximumSize.setLong(jwtUtil, 10_000);
+        Method init = JwtUtil.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(jwtUtil);
+        
+        // Opaque mode on, without a database: sessions only ever live in memory here
+        this.opaqueTokenService = new OpaqueTokenService(null, null, tokenEpochService, meterRegistry,
+                true, 86_400_000L, 604_800_000L, 0);
+        // Nothing is revoked here, so the revocation table is never written or read
+        this.accessTokenVerifier = new AccessTokenVerifier(
+                new VerifiedTokenCache(jwtUtil, meterRegistry),
+                new TokenRevocationService(null, meterRegistry, 100_000, 0.001),
+                tokenEpochService,
+                opaqueTokenService,
+                86_400_000L);
+    }
+    
+    JwtUtil jwtUtil() {
+        return jwtUtil;
+    }
+    
+    AccessTokenVerifier accessTokenVerifier() {
+        return accessTokenVerifier;
+    }
+    
+    /**
+     * Access token with the claims JwtUtil issues, signed with the key ring.
+     */
+    String token(long userId) {
+        long now = System.currentTimeMillis();
+        return keyRing.sign(Jwts.builder()
+                .claims(Map.of("uid", userId, "role", "USER", "ev", true, "ep", 0))
+                .id("benchmark-" + userId)
+                .subject("user" + userId + "@example.com")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + 86_400_000L))).compact();
+    }
+    
+    /**
+     * Opaque access token for the same user, held in the in-memory session store.
+     */
+    String opaqueToken(long userId) {
+        User user = User.builder()
+                .id(userId)
+                .email("user" + userId + "@example.com")
+                .role(User.Role.USER)
+                .emailVerified(true)
+                .build();
+        return opaqueTokenService.issue(user).getAccessToken();
+    }
+    
+    static String tamper(String token) {
+        return token.substring(0, token.length() - 4) + "AAAA";
+    }
+}
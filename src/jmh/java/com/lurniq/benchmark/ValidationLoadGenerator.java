@@ -0,0 +1,83 @@
+package com.lurniq.benchmark;
+
+import com.lurniq.service.TokenValidationServer;
+import com.lurniq.tokens.wire.ValidationClient;
+import com.lurniq.util.RejectedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process load generator for the binary token validation listener. Starts the listener on an
+ * ephemeral loopback port, drives it from several pipelining client connections and reports
+ * validations per second overall and per core.
+ * <p>
+ * Arguments (all optional): connections, batch size, duration in seconds, distinct tokens.
+ * Run with {@code ./gradlew validationLoad --args="8 256 20 1000"}.
+ */
+public final class ValidationLoadGenerator {
+    
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int distinctTokens = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TokenFixtures fixtures = new TokenFixtures(meterRegistry);
+        TokenValidationServer server = new TokenValidationServer(fixtures.accessTokenVerifier(),
+                new RejectedTokenCache(meterRegistry, 10_000, 60_000), true, "127.0.0.1", 0, connections);
+        server.start();
+        
+        // Mostly valid tokens with every tenth one tampered, so both cache paths are exercised
+        List<String> tokens = new ArrayList<>(distinctTokens);
+        for (int i = 0; i < distinctTokens; i++) {
+            String token = fixtures.token(i + 1);
+            tokens.add(i % 10 == 9 ? TokenFixtures.tamper(token) : token);
+        }
+        
+        LongAdder validations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(connections);
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(5, durationSeconds / 4 + 1));
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        
+        for (int c = 0; c < connections; c++) {
+            int offset = c * 31;
+            Thread worker = new Thread(() -> {
+                try (ValidationClient client = new ValidationClient("127.0.0.1", server.getPort())) {
+                    int next = offset;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        for (int i = 0; i < batchSize; i++) {
+                            client.send(tokens.get(next++ % tokens.size()));
+                        }
+                        client.flush();
+                        for (int i = 0; i < batchSize; i++) {
+                            client.receive();
+                        }
+                        if (now >= warmupEnd) {
+                            validations.add(batchSize);
+                        }
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + c);
+            worker.start();
+        }
+        
+        done.await();
+        server.stop();
+        
+        int cores = Runtime.getRuntime().availableProcessors();
+        double perSecond = validations.sum() / (double) durationSeconds;
+        System.out.printf("connections=%d batch=%d duration=%ds cores=%d%n", connections, batchSize, durationSeconds, cores);
+        System.out.printf("validations/s: %.0f (%.0f per core)%n", perSecond, perSecond / cores);
+    }
+}
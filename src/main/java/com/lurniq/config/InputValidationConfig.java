@@ -1,5 +1,6 @@
 package com.lurniq.config;
 
+import com.lurniq.util.ClientIp;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -68,7 +69,7 @@ public class InputValidationConfig {
             // Validate request parameters
             if (containsMaliciousContent(request)) {
                 log.warn("SECURITY_ALERT: Malicious content detected in request from IP: {} to URI: {} - Method: {}", 
-                    getClientIpAddress(request), requestURI, method);
+                    ClientIp.resolve(request), requestURI, method);
                 
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 response.setContentType("application/json");
@@ -161,19 +162,5 @@ public class InputValidationConfig {
             
             return isXSS || isSQLInjection || isPathTraversal;
         }
-        
-        private String getClientIpAddress(HttpServletRequest request) {
-            String xForwardedFor = request.getHeader("X-Forwarded-For");
-            if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-                return xForwardedFor.split(",")[0].trim();
-            }
-            
-            String xRealIp = request.getHeader("X-Real-IP");
-            if (xRealIp != null && !xRealIp.isEmpty()) {
-                return xRealIp;
-            }
-            
-            return request.getRemoteAddr();
-        }
     }
 }
@@ -0,0 +1,77 @@
+package com.lurniq.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signing keys for JWTs. The legacy {@code jwt.secret} is always loaded as an HMAC key,
+ * additional keys can be listed here to rotate without logging everyone out. Setting
+ * {@code secret-not-after} retires the legacy secret once the rotation is complete.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jwt.key-ring")
+@Data
+public class JwtKeyRingProperties {
+    
+    /**
+     * Key id used for new tokens while its signing window is open; startup fails if it is not open yet.
+     * When empty, or once the window has closed, the newest key that is currently valid and can sign is used.
+     */
+    private String activeKid;
+    
+    /**
+     * Key id advertised for the legacy {@code jwt.secret} key. Tokens without a kid header also resolve to it.
+     */
+    private String secretKid = "hs-default";
+    
+    /**
+     * End of the signing window of the legacy {@code jwt.secret} key. Like any other key it keeps verifying
+     * for one refresh token lifetime afterwards and is then retired, together with kid-less tokens.
+     * Unset keeps the secret valid indefinitely.
+     */
+    private Instant secretNotAfter;
+    
+    private List<KeyDefinition> keys = new ArrayList<>();
+    
+    @Data
+    public static class KeyDefinition {
+        
+        private String kid;
+        
+        /**
+         * One of HS256, ES256 or EdDSA
+         */
+        private String algorithm;
+        
+        /**
+         * Shared secret for HS256 keys
+         */
+        private String secret;
+        
+        /**
+         * Base64 PKCS#8 private key (PEM armour allowed) for ES256/EdDSA. Omit for verify-only keys.
+         */
+        private String privateKey;
+        
+        /**
+         * Base64 X.509 public key (PEM armour allowed) for ES256/EdDSA
+         */
+        private String publicKey;
+        
+        /**
+         * Start of the window in which the key signs new tokens and is accepted for verification
+         */
+        private Instant notBefore;
+        
+        /**
+         * End of the signing window. Tokens signed before it keep verifying until they expire,
+         * so the next key only needs to start signing before this instant.
+         */
+        private Instant notAfter;
+    }
+}
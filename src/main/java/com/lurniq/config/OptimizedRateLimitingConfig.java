@@ -2,6 +2,7 @@ package com.lurniq.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.util.ClientIp;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -43,7 +44,7 @@ public class OptimizedRateLimitingConfig {
             
             // Only apply rate limiting to authentication endpoints
             if (isAuthenticationEndpoint(requestURI)) {
-                String clientIp = getClientIpAddress(request);
+                String clientIp = ClientIp.resolve(request);
                 String key = clientIp + ":" + requestURI;
                 
                 // Get or create counter with atomic operation
@@ -69,19 +70,5 @@ public class OptimizedRateLimitingConfig {
                    uri.startsWith("/auth/password-reset") ||
                    uri.startsWith("/oauth2/authorization/");
         }
-        
-        private String getClientIpAddress(HttpServletRequest request) {
-            String xForwardedFor = request.getHeader("X-Forwarded-For");
-            if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-                return xForwardedFor.split(",")[0].trim();
-            }
-            
-            String xRealIp = request.getHeader("X-Real-IP");
-            if (xRealIp != null && !xRealIp.isEmpty()) {
-                return xRealIp;
-            }
-            
-            return request.getRemoteAddr();
-        }
     }
 }
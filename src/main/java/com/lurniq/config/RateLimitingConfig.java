@@ -1,5 +1,6 @@
 package com.lurniq.config;
 
+import com.lurniq.util.ClientIp;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -51,7 +52,7 @@ public class RateLimitingConfig {
             
             // Only apply rate limiting to authentication endpoints
             if (isAuthenticationEndpoint(requestURI)) {
-                String clientIp = getClientIpAddress(request);
+                String clientIp = ClientIp.resolve(request);
                 String key = clientIp + ":" + requestURI;
                 
                 if (isRateLimited(key)) {
@@ -94,20 +95,6 @@ public class RateLimitingConfig {
             return currentCount > MAX_REQUESTS_PER_MINUTE;
         }
         
-        private String getClientIpAddress(HttpServletRequest request) {
-            String xForwardedFor = request.getHeader("X-Forwarded-For");
-            if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-                return xForwardedFor.split(",")[0].trim();
-            }
-            
-            String xRealIp = request.getHeader("X-Real-IP");
-            if (xRealIp != null && !xRealIp.isEmpty()) {
-                return xRealIp;
-            }
-            
-            return request.getRemoteAddr();
-        }
-        
         private void cleanupOldEntries() {
             long currentTime = System.currentTimeMillis();
             lastAccessTime.entrySet().removeIf(entry -> 
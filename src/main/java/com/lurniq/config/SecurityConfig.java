@@ -1,18 +1,27 @@
 package com.lurniq.config;
 
+import com.lurniq.exception.EmailNotVerifiedException;
+import com.lurniq.exception.InvalidCredentialsException;
 import com.lurniq.filter.JwtAuthenticationFilter;
+import com.lurniq.filter.ProofOfWorkFilter;
 import com.lurniq.handler.OAuth2AuthenticationSuccessHandler;
 import com.lurniq.service.CustomUserDetailsService;
+import com.lurniq.service.LoginAuthenticationProvider;
+import com.lurniq.util.PasswordHashPolicy;
 import com.lurniq.config.RateLimitingConfig.RateLimitingFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.authentication.DefaultAuthenticationEventPublisher;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureDisabledEvent;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -20,6 +29,8 @@ import org.springframework.security.oauth2.client.registration.ClientRegistratio
 import org.springframework.security.config.Customizer;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -31,6 +42,7 @@ public class SecurityConfig {
     private final CorsConfigurationSource corsConfigurationSource;
     private final ClientRegistrationRepository clientRegistrationRepository;
     private final RateLimitingFilter rateLimitingFilter;
+    private final ProofOfWorkFilter proofOfWorkFilter;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -55,6 +67,7 @@ public class SecurityConfig {
                 .requestMatchers("/health", "/ready").permitAll()  // Custom health endpoints
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/error").permitAll()
+                .requestMatchers("/.well-known/jwks.json").permitAll()  // Public signing keys
                 .requestMatchers("/").permitAll()  // Allow access to root
                 .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/api-docs/**", "/v3/api-docs/**").permitAll()  // Swagger UI
                 .anyRequest().authenticated()
@@ -76,18 +89,33 @@ public class SecurityConfig {
             )
             .userDetailsService(userDetailsService)
             .addFilterBefore(rateLimitingFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(proofOfWorkFilter, UsernamePasswordAuthenticationFilter.class)
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
         
         return http.build();
     }
     
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashPolicy passwordHashPolicy) {
+        return passwordHashPolicy.createEncoder();
+    }
+    
+    @Bean
+    public DefaultAuthenticationEventPublisher authenticationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        DefaultAuthenticationEventPublisher publisher = new DefaultAuthenticationEventPublisher(applicationEventPublisher);
+        // Events are looked up by exact exception class; the stackless login failures publish their parents' events
+        publisher.setAdditionalExceptionMappings(Map.of(
+                InvalidCredentialsException.class, AuthenticationFailureBadCredentialsEvent.class,
+                EmailNotVerifiedException.class, AuthenticationFailureDisabledEvent.class));
+        return publisher;
     }
     
     @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
+    public AuthenticationManager authenticationManager(LoginAuthenticationProvider loginAuthenticationProvider,
+                                                       AuthenticationEventPublisher authenticationEventPublisher) {
+        // Only the password login goes through this manager; the publisher keeps the audit events flowing
+        ProviderManager manager = new ProviderManager(loginAuthenticationProvider);
+        manager.setAuthenticationEventPublisher(authenticationEventPublisher);
+        return manager;
     }
 }
@@ -3,6 +3,7 @@ package com.lurniq.controller;
 import com.lurniq.dto.ApiResponse;
 import com.lurniq.dto.AuthResponse;
 import com.lurniq.dto.LoginRequest;
+import com.lurniq.dto.LogoutRequest;
 import com.lurniq.dto.RegisterRequest;
 import com.lurniq.dto.RegistrationResponse;
 import com.lurniq.service.AuthService;
@@ -18,6 +19,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -33,15 +36,15 @@ public class AuthController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "User registered successfully", 
                     content = @Content(schema = @Schema(implementation = ApiResponse.class))),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid request data"),
-        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "User already exists")
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "User already exists"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Too many concurrent requests; retry after the Retry-After delay")
     })
-    public ResponseEntity<ApiResponse<RegistrationResponse>> register(@Valid @RequestBody RegisterRequest request) {
-        RegistrationResponse registrationResponse = authService.register(request);
-        ApiResponse<RegistrationResponse> response = responseService.success(
+    public CompletableFuture<ResponseEntity<ApiResponse<RegistrationResponse>>> register(@Valid @RequestBody RegisterRequest request) {
+        // Completes with the response on the password hashing executor; the request thread is released meanwhile
+        return authService.register(request, registrationResponse -> ResponseEntity.ok(responseService.success(
             "User registered successfully! Please check your email to activate your account.", 
             registrationResponse
-        );
-        return ResponseEntity.ok(response);
+        )));
     }
     
     @PostMapping("/login")
@@ -50,15 +53,16 @@ public class AuthController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Login successful", 
                     content = @Content(schema = @Schema(implementation = ApiResponse.class))),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid credentials"),
-        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid request data")
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid request data"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "429", description = "Account temporarily locked after repeated failed logins"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Too many concurrent requests; retry after the Retry-After delay")
     })
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
-        AuthResponse authResponse = authService.login(request, httpRequest);
-        ApiResponse<AuthResponse> response = responseService.success(
+    public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // Completes with the response on the password hashing executor; the request thread is released meanwhile
+        return authService.login(request, httpRequest, authResponse -> ResponseEntity.ok(responseService.success(
             "Login successful", 
             authResponse
-        );
-        return ResponseEntity.ok(response);
+        )));
     }
     
     @PostMapping("/refresh-token")
@@ -77,6 +81,47 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/logout")
+    @Operation(summary = "Log out", description = "Revoke the presented access token before its expiry, and the session's refresh token family when the refresh token is sent")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Token revoked"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid, expired or already revoked token, or a refresh token of another user")
+    })
+    public ResponseEntity<ApiResponse<String>> logout(@RequestHeader("Authorization") String accessToken,
+                                                      @RequestBody(required = false) LogoutRequest request) {
+        // Remove "Bearer " prefix if present
+        if (accessToken.startsWith("Bearer ")) {
+            accessToken = accessToken.substring(7);
+        }
+        
+        authService.logout(accessToken, request != null ? request.getRefreshToken() : null);
+        ApiResponse<String> response = responseService.success(
+            "Logged out successfully", 
+            "Access token revoked"
+        );
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/logout-all")
+    @Operation(summary = "Log out everywhere", description = "Invalidate every access and refresh token issued to the current user")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "All tokens invalidated"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid, expired or revoked token")
+    })
+    public ResponseEntity<ApiResponse<String>> logoutAll(@RequestHeader("Authorization") String accessToken) {
+        // Remove "Bearer " prefix if present
+        if (accessToken.startsWith("Bearer ")) {
+            accessToken = accessToken.substring(7);
+        }
+        
+        authService.logoutAll(accessToken);
+        ApiResponse<String> response = responseService.success(
+            "Logged out from all devices", 
+            "All tokens invalidated"
+        );
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/oauth2/success")
     @Operation(summary = "OAuth2 success callback", description = "OAuth2 authentication success endpoint")
     public ResponseEntity<ApiResponse<String>> oauth2Success() {
@@ -0,0 +1,95 @@
+package com.lurniq.controller;
+
+import com.lurniq.dto.BatchIntrospectionRequest;
+import com.lurniq.dto.BatchIntrospectionResponse;
+import com.lurniq.dto.IntrospectionResponse;
+import com.lurniq.service.TokenIntrospectionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequestMapping("/auth/introspect")
+@Slf4j
+@Tag(name = "Token Introspection", description = "RFC 7662 token introspection for backend services")
+public class IntrospectionController {
+    
+    private static final String CLIENT_SECRET_HEADER = "X-Introspection-Secret";
+    
+    private final TokenIntrospectionService tokenIntrospectionService;
+    private final byte[] clientSecret;
+    
+    public IntrospectionController(
+            TokenIntrospectionService tokenIntrospectionService,
+            @Value("${jwt.introspection.client-secret:}") String clientSecret
+    ) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+        this.clientSecret = clientSecret.getBytes(StandardCharsets.UTF_8);
+        if (clientSecret.isEmpty()) {
+            log.warn("jwt.introspection.client-secret is not set; token introspection is open to any caller");
+        }
+    }
+    
+    @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    @Operation(summary = "Introspect a token", description = "RFC 7662 introspection of a single token sent as the 'token' form parameter")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Introspection result; inactive tokens only report active=false"),
+        @ApiResponse(responseCode = "401", description = "Missing or invalid introspection client secret")
+    })
+    public ResponseEntity<IntrospectionResponse> introspect(
+            @RequestParam(value = "token", required = false) String token,
+            @RequestHeader(value = CLIENT_SECRET_HEADER, required = false) String secret
+    ) {
+        authenticateClient(secret);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(tokenIntrospectionService.introspect(token));
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Introspect a batch of tokens", description = "RFC 7662 introspection of many tokens in one call; results keep the request order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "One introspection result per token"),
+        @ApiResponse(responseCode = "400", description = "Empty or oversized batch"),
+        @ApiResponse(responseCode = "401", description = "Missing or invalid introspection client secret")
+    })
+    public ResponseEntity<BatchIntrospectionResponse> introspectBatch(
+            @Valid @RequestBody BatchIntrospectionRequest request,
+            @RequestHeader(value = CLIENT_SECRET_HEADER, required = false) String secret
+    ) {
+        authenticateClient(secret);
+        BatchIntrospectionResponse response = BatchIntrospectionResponse.builder()
+                .results(tokenIntrospectionService.introspectAll(request.getTokens()))
+                .build();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(response);
+    }
+    
+    private void authenticateClient(String secret) {
+        if (clientSecret.length == 0) {
+            return;
+        }
+        // Constant-time comparison so the secret cannot be guessed byte by byte
+        if (secret == null || !MessageDigest.isEqual(clientSecret, secret.getBytes(StandardCharsets.UTF_8))) {
+            throw new BadCredentialsException("Invalid introspection client secret");
+        }
+    }
+}
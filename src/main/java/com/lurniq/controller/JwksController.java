@@ -0,0 +1,31 @@
+package com.lurniq.controller;
+
+import com.lurniq.util.JwtKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Token Keys", description = "Public keys for verifying issued JWTs")
+public class JwksController {
+    
+    private final JwtKeyRing jwtKeyRing;
+    
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get JSON Web Key Set", description = "Returns the public keys used to sign JWTs, selected by kid")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Key set retrieved successfully")
+    public ResponseEntity<String> jwks() {
+        // The document is built once at startup; let clients and proxies cache it
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .body(jwtKeyRing.getJwksJson());
+    }
+}
@@ -3,6 +3,7 @@ package com.lurniq.controller;
 import com.lurniq.dto.NewPasswordRequest;
 import com.lurniq.dto.PasswordResetRequest;
 import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
 import com.lurniq.service.PasswordResetService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -148,6 +149,14 @@ public class PasswordResetController {
                 ));
             }
             
+            // Refuse passwords known from public breaches
+            if (passwordResetService.isPasswordBreached(request.getNewPassword())) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", AuthFailure.BREACHED_PASSWORD.getMessage()
+                ));
+            }
+            
             boolean reset = passwordResetService.resetPassword(request.getToken(), request.getNewPassword());
             
             if (reset) {
@@ -6,6 +6,7 @@ import com.lurniq.dto.UserProfileResponse;
 import com.lurniq.entity.User;
 import com.lurniq.repository.UserRepository;
 import com.lurniq.service.ResponseService;
+import com.lurniq.tokens.VerifiedToken;
 import com.lurniq.util.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -73,11 +74,11 @@ public class RootController {
             @Parameter(description = "JWT refresh token", required = true) @RequestParam String refreshToken
     ) {
         try {
-            // Extract username from JWT token
-            String username = jwtUtil.extractUsername(token);
+            // Verify the access token once and use its subject
+            VerifiedToken verifiedToken = jwtUtil.parseToken(token);
             
             // Get user details
-            User user = userRepository.findByEmail(username)
+            User user = userRepository.findByEmail(verifiedToken.subject())
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
             // Create AuthResponse similar to login endpoint
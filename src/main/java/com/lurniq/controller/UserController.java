@@ -13,6 +13,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class UserController {
     
     private final ResponseService responseService;
+    private final UserDetailsService userDetailsService;
     
     @GetMapping("/profile")
     @Operation(summary = "Get current user profile", description = "Returns the profile information of the authenticated user")
@@ -33,7 +36,11 @@ public class UserController {
                     content = @Content(schema = @Schema(implementation = ApiResponse.class))),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token")
     })
-    public ResponseEntity<ApiResponse<UserProfileResponse>> getCurrentUser(@AuthenticationPrincipal User user) {
+    public ResponseEntity<ApiResponse<UserProfileResponse>> getCurrentUser(@AuthenticationPrincipal UserDetails principal) {
+        // Stateless principals only carry identity claims; the full profile comes from the cached user lookup
+        User user = principal instanceof User entity
+                ? entity
+                : (User) userDetailsService.loadUserByUsername(principal.getUsername());
         UserProfileResponse userProfile = UserProfileResponse.fromUser(user);
         ApiResponse<UserProfileResponse> response = responseService.success(
             "User profile retrieved successfully", 
@@ -0,0 +1,24 @@
+package com.lurniq.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Batch token introspection request")
+public class BatchIntrospectionRequest {
+    
+    @NotEmpty(message = "At least one token is required")
+    @Size(max = 1000, message = "At most 1000 tokens can be introspected per request")
+    @Schema(description = "Tokens to introspect; results are returned in the same order")
+    private List<String> tokens;
+}
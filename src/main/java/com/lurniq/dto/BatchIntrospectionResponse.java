@@ -0,0 +1,20 @@
+package com.lurniq.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Batch token introspection response")
+public class BatchIntrospectionResponse {
+    
+    @Schema(description = "One RFC 7662 result per requested token, in request order")
+    private List<IntrospectionResponse> results;
+}
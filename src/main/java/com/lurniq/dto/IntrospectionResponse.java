@@ -0,0 +1,57 @@
+package com.lurniq.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Token introspection result as defined by RFC 7662. Inactive tokens carry no other members.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "RFC 7662 token introspection response")
+public class IntrospectionResponse {
+    
+    @Schema(description = "Whether the token is currently valid", example = "true")
+    private boolean active;
+    
+    @Schema(description = "Token subject (the user's email)", example = "user@example.com")
+    private String sub;
+    
+    @Schema(description = "Human-readable identifier of the token owner", example = "user@example.com")
+    private String username;
+    
+    @JsonProperty("token_type")
+    @Schema(description = "Always access_token; refresh tokens are reported inactive", example = "access_token")
+    private String tokenType;
+    
+    @Schema(description = "Expiry as seconds since the epoch", example = "1735689600")
+    private Long exp;
+    
+    @Schema(description = "Issue time as seconds since the epoch", example = "1735603200")
+    private Long iat;
+    
+    @Schema(description = "Token id")
+    private String jti;
+    
+    @Schema(description = "User id", example = "42")
+    private Long uid;
+    
+    @Schema(description = "User role", example = "USER")
+    private String role;
+    
+    @JsonProperty("email_verified")
+    @Schema(description = "Whether the user's email was verified when the token was issued", example = "true")
+    private Boolean emailVerified;
+    
+    public static IntrospectionResponse inactive() {
+        return IntrospectionResponse.builder().active(false).build();
+    }
+}
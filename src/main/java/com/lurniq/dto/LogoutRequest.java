@@ -0,0 +1,18 @@
+package com.lurniq.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Logout request payload")
+public class LogoutRequest {
+    
+    @Schema(description = "Refresh token of the session; its whole token family is revoked so it cannot mint new access tokens")
+    private String refreshToken;
+}
@@ -0,0 +1,60 @@
+package com.lurniq.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted copy of an opaque access or refresh token session, keyed by the token's digest.
+ * Sessions are served from memory; rows only exist so sessions survive a restart.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "opaque_sessions")
+public class OpaqueSession {
+    
+    public enum Kind {
+        ACCESS, REFRESH
+    }
+    
+    @Id
+    @Column(name = "token_hash", length = 32)
+    private String tokenHash;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 10)
+    private Kind kind;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "email", nullable = false)
+    private String email;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", nullable = false, length = 20)
+    private User.Role role;
+    
+    @Column(name = "email_verified", nullable = false)
+    private Boolean emailVerified;
+    
+    @Column(name = "token_epoch", nullable = false)
+    private Integer tokenEpoch;
+    
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+    
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDateTime expiryDate;
+    
+    // Set instead of deleting the row, so other instances can find and drop the session
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
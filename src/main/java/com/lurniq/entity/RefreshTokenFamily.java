@@ -0,0 +1,48 @@
+package com.lurniq.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chain of refresh tokens descending from one login. Only the current token of a family
+ * may be exchanged; presenting an older one outside the retry grace window revokes the family.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "refresh_token_families")
+public class RefreshTokenFamily {
+    
+    @Id
+    @Column(name = "family_id", length = 36)
+    private String familyId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "current_token_id", nullable = false, length = 36)
+    private String currentTokenId;
+    
+    @Column(name = "previous_token_id", length = 36)
+    private String previousTokenId;
+    
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+    
+    @Column(name = "revoked", nullable = false)
+    @Builder.Default
+    private Boolean revoked = false;
+    
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDateTime expiryDate;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
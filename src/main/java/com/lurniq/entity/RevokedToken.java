@@ -0,0 +1,32 @@
+package com.lurniq.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A token id revoked by logout, kept until the token would have expired anyway so the
+ * in-memory denylist can be rebuilt on startup and shared between instances.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+    
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDateTime expiryDate;
+    
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -64,6 +65,13 @@ public class User implements UserDetails {
     @Builder.Default
     private Boolean emailVerified = false;
     
+    @Column(name = "token_epoch")
+    @ColumnDefault("0")
+    @Builder.Default
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Integer tokenEpoch = 0;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
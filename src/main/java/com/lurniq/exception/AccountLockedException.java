@@ -0,0 +1,26 @@
+package com.lurniq.exception;
+
+import org.springframework.security.authentication.LockedException;
+
+/**
+ * Login refused because the account is temporarily locked after repeated failed attempts. Expected under
+ * attack, so it skips the stack trace.
+ */
+public class AccountLockedException extends LockedException {
+    
+    private final long retryAfterSeconds;
+    
+    public AccountLockedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+package com.lurniq.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Expected outcome of an authentication request that ends in an error response: status, error code and
+ * message are fixed, so the response can be built once. Each constant has one shared, stackless
+ * {@link AuthFailureException}; throwing it allocates nothing.
+ */
+public enum AuthFailure {
+    
+    INVALID_CREDENTIALS(HttpStatus.UNAUTHORIZED, "INVALID_CREDENTIALS", "The provided credentials are invalid"),
+    EMAIL_NOT_VERIFIED(HttpStatus.BAD_REQUEST, "EMAIL_NOT_VERIFIED", "Email not verified. Please check your email and activate your account."),
+    DISPOSABLE_EMAIL(HttpStatus.BAD_REQUEST, "DISPOSABLE_EMAIL", "Disposable email addresses cannot be used to register. Please use a permanent email address."),
+    BREACHED_PASSWORD(HttpStatus.BAD_REQUEST, "BREACHED_PASSWORD", "This password has appeared in a data breach and cannot be used. Please choose a different password."),
+    USER_NOT_FOUND(HttpStatus.BAD_REQUEST, "USER_NOT_FOUND", "User not found"),
+    INVALID_REFRESH_TOKEN(HttpStatus.BAD_REQUEST, "INVALID_REFRESH_TOKEN", "Invalid refresh token"),
+    REFRESH_TOKEN_OUTDATED(HttpStatus.BAD_REQUEST, "REFRESH_TOKEN_OUTDATED", "Refresh token is no longer valid. Please log in again."),
+    REFRESH_TOKEN_REVOKED(HttpStatus.BAD_REQUEST, "REFRESH_TOKEN_REVOKED", "Refresh token has been revoked. Please log in again."),
+    REFRESH_TOKEN_REUSED(HttpStatus.BAD_REQUEST, "REFRESH_TOKEN_REUSED", "Refresh token reuse detected. Please log in again."),
+    INVALID_ACCESS_TOKEN(HttpStatus.BAD_REQUEST, "INVALID_ACCESS_TOKEN", "Invalid access token"),
+    TOKEN_NOT_REVOCABLE(HttpStatus.BAD_REQUEST, "TOKEN_NOT_REVOCABLE", "Token cannot be revoked individually. Please log in again to get a new token.");
+    
+    private final HttpStatus status;
+    private final String error;
+    private final String message;
+    private final AuthFailureException exception;
+    
+    AuthFailure(HttpStatus status, String error, String message) {
+        this.status = status;
+        this.error = error;
+        this.message = message;
+        this.exception = new AuthFailureException(this);
+    }
+    
+    /**
+     * The shared exception for this outcome, for {@code throw} and {@code orElseThrow}.
+     */
+    public AuthFailureException exception() {
+        return exception;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+}
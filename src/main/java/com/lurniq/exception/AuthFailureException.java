@@ -0,0 +1,19 @@
+package com.lurniq.exception;
+
+/**
+ * Signals an expected {@link AuthFailure}. Created without a stack trace, suppression or cause, so one
+ * instance per outcome is immutable and shared; obtain it with {@link AuthFailure#exception()}.
+ */
+public class AuthFailureException extends RuntimeException {
+    
+    private final AuthFailure failure;
+    
+    AuthFailureException(AuthFailure failure) {
+        super(failure.getMessage(), null, false, false);
+        this.failure = failure;
+    }
+    
+    public AuthFailure getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,12 @@
+package com.lurniq.exception;
+
+/**
+ * Registration hit the unique email constraint. Expected under normal traffic (retries, double submits,
+ * concurrent sign-ups), so it is created without a stack trace.
+ */
+public class EmailAlreadyRegisteredException extends RuntimeException {
+    
+    public EmailAlreadyRegisteredException() {
+        super("Email already exists", null, false, false);
+    }
+}
@@ -0,0 +1,18 @@
+package com.lurniq.exception;
+
+import org.springframework.security.authentication.DisabledException;
+
+/**
+ * Login to an account whose email has not been verified yet. Expected, so it skips the stack trace.
+ */
+public class EmailNotVerifiedException extends DisabledException {
+    
+    public EmailNotVerifiedException() {
+        super(AuthFailure.EMAIL_NOT_VERIFIED.getMessage());
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
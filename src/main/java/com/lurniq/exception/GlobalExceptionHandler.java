@@ -1,5 +1,7 @@
 package com.lurniq.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lurniq.dto.ErrorResponse;
 import com.lurniq.service.RequestTrackingService;
 import io.jsonwebtoken.ExpiredJwtException;
@@ -10,7 +12,9 @@ import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -22,6 +26,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,6 +37,9 @@ public class GlobalExceptionHandler {
     
     private final RequestTrackingService requestTrackingService;
     
+    // Expected authentication outcomes always produce the same response; the trace ID is in the X-Trace-ID header
+    private final Map<AuthFailure, ResponseEntity<byte[]>> authFailureResponses = precomputeAuthFailureResponses();
+    
     // JWT Exception Handlers
     @ExceptionHandler(ExpiredJwtException.class)
     public ResponseEntity<ErrorResponse> handleExpiredJwtException(
@@ -205,6 +213,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
     
+    @ExceptionHandler(AuthFailureException.class)
+    public ResponseEntity<byte[]> handleAuthFailure(AuthFailureException ex) {
+        return authFailureResponses.get(ex.getFailure());
+    }
+    
+    @ExceptionHandler(InvalidCredentialsException.class)
+    public ResponseEntity<byte[]> handleInvalidCredentials(InvalidCredentialsException ex) {
+        return authFailureResponses.get(AuthFailure.INVALID_CREDENTIALS);
+    }
+    
+    @ExceptionHandler(EmailNotVerifiedException.class)
+    public ResponseEntity<byte[]> handleEmailNotVerified(EmailNotVerifiedException ex) {
+        return authFailureResponses.get(AuthFailure.EMAIL_NOT_VERIFIED);
+    }
+    
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleUserNotFound(
             UsernameNotFoundException ex,
@@ -220,6 +243,57 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
     
+    @ExceptionHandler(EmailAlreadyRegisteredException.class)
+    public ResponseEntity<ErrorResponse> handleEmailAlreadyRegistered(
+            EmailAlreadyRegisteredException ex,
+            HttpServletRequest request
+    ) {
+        ErrorResponse errorResponse = createErrorResponse(
+            HttpStatus.CONFLICT,
+            "EMAIL_ALREADY_EXISTS",
+            ex.getMessage(),
+            request.getRequestURI()
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+    
+    @ExceptionHandler(AccountLockedException.class)
+    public ResponseEntity<ErrorResponse> handleAccountLocked(
+            AccountLockedException ex,
+            HttpServletRequest request
+    ) {
+        ErrorResponse errorResponse = createErrorResponse(
+            HttpStatus.TOO_MANY_REQUESTS,
+            "ACCOUNT_LOCKED",
+            ex.getMessage(),
+            request.getRequestURI()
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+    
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(
+            ServiceOverloadedException ex,
+            HttpServletRequest request
+    ) {
+        log.warn("Rejected request {} under load: {}", request.getRequestURI(), ex.getMessage());
+        
+        ErrorResponse errorResponse = createErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            "SERVICE_BUSY",
+            "The service is busy. Please try again shortly.",
+            request.getRequestURI()
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+    
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ErrorResponse> handleRuntimeException(
             RuntimeException ex,
@@ -268,6 +342,25 @@ public class GlobalExceptionHandler {
     }
     
     // Helper methods for creating error responses
+    private static Map<AuthFailure, ResponseEntity<byte[]>> precomputeAuthFailureResponses() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<AuthFailure, ResponseEntity<byte[]>> responses = new EnumMap<>(AuthFailure.class);
+        for (AuthFailure failure : AuthFailure.values()) {
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .error(failure.getError())
+                    .message(failure.getMessage())
+                    .build();
+            try {
+                responses.put(failure, ResponseEntity.status(failure.getStatus())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(objectMapper.writeValueAsBytes(errorResponse)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to precompute auth error body", e);
+            }
+        }
+        return responses;
+    }
+    
     private ErrorResponse createErrorResponse(
             HttpStatus status, 
             String error, 
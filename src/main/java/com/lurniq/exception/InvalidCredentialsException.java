@@ -0,0 +1,19 @@
+package com.lurniq.exception;
+
+import org.springframework.security.authentication.BadCredentialsException;
+
+/**
+ * Wrong password or unknown email at login. The most frequent failure under credential stuffing, so it
+ * skips the stack trace; it stays a {@link BadCredentialsException} for the authentication events.
+ */
+public class InvalidCredentialsException extends BadCredentialsException {
+    
+    public InvalidCredentialsException() {
+        super(AuthFailure.INVALID_CREDENTIALS.getMessage());
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
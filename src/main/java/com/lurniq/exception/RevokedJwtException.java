@@ -0,0 +1,13 @@
+package com.lurniq.exception;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown when a correctly signed, unexpired token has been revoked before its expiry.
+ */
+public class RevokedJwtException extends JwtException {
+    
+    public RevokedJwtException(String message) {
+        super(message);
+    }
+}
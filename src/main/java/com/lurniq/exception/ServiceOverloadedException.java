@@ -0,0 +1,19 @@
+package com.lurniq.exception;
+
+/**
+ * Thrown when a bounded resource is saturated and the request should be retried later. Created without a
+ * stack trace, since it is thrown most often exactly when the service is busiest.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    
+    private final long retryAfterSeconds;
+    
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,25 @@
+package com.lurniq.exception;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Carries the failure of an asynchronous request to Spring MVC without a stack trace. MVC adapts a returned
+ * future with {@code whenComplete}, which wraps any other exception in a new {@link CompletionException},
+ * stack trace included, only to unwrap it again; a future that already failed with a
+ * {@code CompletionException} is passed through as it is. Obtain one with {@link #wrap(Throwable)}.
+ */
+public class StacklessCompletionException extends CompletionException {
+    
+    private StacklessCompletionException(Throwable cause) {
+        super(null, cause);
+    }
+    
+    public static CompletionException wrap(Throwable failure) {
+        return failure instanceof CompletionException completion ? completion : new StacklessCompletionException(failure);
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,139 @@
+package com.lurniq.filter;
+
+import com.lurniq.entity.User;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtPrincipal;
+import com.lurniq.util.JwtRejection;
+import com.lurniq.util.RejectedTokenCache;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Forward-auth endpoint for nginx {@code auth_request} and API gateways. Answers 200 with identity
+ * headers or 401, always with an empty body. Runs ahead of every other filter and never reaches the
+ * dispatcher, so request tracking, input validation, the security chain and Jackson are all skipped.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ForwardAuthFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER_USER_ID = "X-User-Id";
+    public static final String HEADER_USER_EMAIL = "X-User-Email";
+    public static final String HEADER_USER_ROLE = "X-User-Role";
+    
+    private static final String NO_STORE = "no-store";
+    
+    private final AccessTokenVerifier accessTokenVerifier;
+    private final RejectedTokenCache rejectedTokenCache;
+    private final UserDetailsService userDetailsService;
+    private final String path;
+    private final long allowMaxAgeSeconds;
+    private final String denyCacheControl;
+    
+    public ForwardAuthFilter(
+            AccessTokenVerifier accessTokenVerifier,
+            RejectedTokenCache rejectedTokenCache,
+            UserDetailsService userDetailsService,
+            @Value("${jwt.forward-auth.path:/auth/forward}") String path,
+            @Value("${jwt.forward-auth.allow-max-age-seconds:5}") long allowMaxAgeSeconds,
+            @Value("${jwt.forward-auth.deny-max-age-seconds:5}") long denyMaxAgeSeconds
+    ) {
+        this.accessTokenVerifier = accessTokenVerifier;
+        this.rejectedTokenCache = rejectedTokenCache;
+        this.userDetailsService = userDetailsService;
+        this.path = path;
+        this.allowMaxAgeSeconds = allowMaxAgeSeconds;
+        this.denyCacheControl = denyMaxAgeSeconds > 0 ? "private, max-age=" + denyMaxAgeSeconds : NO_STORE;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path.equals(request.getRequestURI());
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) {
+        // The decision depends only on the Authorization header, so caches must key on it
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            deny(response, NO_STORE);
+            return;
+        }
+        
+        String jwt = authHeader.substring(7);
+        TokenDigest digest = TokenDigest.of(jwt);
+        if (rejectedTokenCache.getIfPresent(digest) != null) {
+            deny(response, denyCacheControl);
+            return;
+        }
+        
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = accessTokenVerifier.verify(digest, jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTokenCache.put(digest, JwtRejection.of(e));
+            deny(response, denyCacheControl);
+            return;
+        }
+        
+        JwtPrincipal principal = resolvePrincipal(verifiedToken);
+        if (principal == null) {
+            deny(response, NO_STORE);
+            return;
+        }
+        
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HEADER_USER_ID, String.valueOf(principal.id()));
+        response.setHeader(HEADER_USER_EMAIL, principal.email());
+        response.setHeader(HEADER_USER_ROLE, principal.role().name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, allowCacheControl(verifiedToken));
+        response.setContentLength(0);
+    }
+    
+    private JwtPrincipal resolvePrincipal(VerifiedToken verifiedToken) {
+        JwtPrincipal principal = JwtPrincipal.from(verifiedToken).orElse(null);
+        if (principal != null) {
+            return principal;
+        }
+        
+        // Tokens issued before identity claims existed fall back to the cached user lookup
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(verifiedToken.subject());
+            return userDetails instanceof User user ? JwtPrincipal.of(user) : null;
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+    
+    private String allowCacheControl(VerifiedToken verifiedToken) {
+        // Never let a proxy keep an allow decision past the token's own expiry
+        long remainingSeconds = (verifiedToken.expiresAtMillis() - System.currentTimeMillis()) / 1000;
+        long maxAge = Math.min(allowMaxAgeSeconds, remainingSeconds);
+        return maxAge > 0 ? "private, max-age=" + maxAge : NO_STORE;
+    }
+    
+    private void deny(HttpServletResponse response, String cacheControl) {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setContentLength(0);
+    }
+}
@@ -1,13 +1,20 @@
 package com.lurniq.filter;
 
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.AccessTokenVerifier;
 import com.lurniq.util.JwtExceptionHandler;
+import com.lurniq.util.JwtPrincipal;
+import com.lurniq.util.JwtRejection;
 import com.lurniq.util.JwtUtil;
+import com.lurniq.util.RejectedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,6 +24,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -24,9 +32,15 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
+    private final AccessTokenVerifier accessTokenVerifier;
+    private final RejectedTokenCache rejectedTokenCache;
     private final UserDetailsService userDetailsService;
     private final JwtExceptionHandler jwtExceptionHandler;
     
+    // When enabled, the principal is built from token claims and the user is never loaded
+    @Value("${jwt.stateless-principal.enabled:false}")
+    private boolean statelessPrincipal;
+    
     @Override
     protected void doFilterInternal(
             HttpServletRequest request, 
@@ -36,7 +50,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -44,14 +57,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         jwt = authHeader.substring(7);
+        TokenDigest digest = TokenDigest.of(jwt);
         
+        // Replayed tokens that recently failed get the same answer without parsing or logging again
+        JwtRejection knownRejection = rejectedTokenCache.getIfPresent(digest);
+        if (knownRejection != null) {
+            jwtExceptionHandler.writeRejection(response, knownRejection);
+            return;
+        }
+        
+        VerifiedToken verifiedToken = null;
         try {
-            userEmail = jwtUtil.extractUsername(jwt);
+            verifiedToken = accessTokenVerifier.verify(digest, jwt);
+            String userEmail = verifiedToken.subject();
             
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = resolveUserDetails(verifiedToken);
                 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (jwtUtil.validateToken(verifiedToken, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -68,10 +91,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.error("JWT authentication error for request {}: {}", request.getRequestURI(), ex.getMessage());
             
             // Handle JWT-related exceptions with proper HTTP responses
-            jwtExceptionHandler.handleJwtException(response, ex, request.getRequestURI());
+            JwtRejection rejection = jwtExceptionHandler.handleJwtException(response, ex, request.getRequestURI());
+            
+            // Only failures of the token itself are remembered, not errors raised further down the chain
+            if (verifiedToken == null) {
+                rejectedTokenCache.put(digest, rejection);
+            }
             
             // Don't continue the filter chain when there's a JWT error
             return;
         }
     }
+    
+    private UserDetails resolveUserDetails(VerifiedToken verifiedToken) {
+        if (statelessPrincipal) {
+            Optional<JwtPrincipal> principal = JwtPrincipal.from(verifiedToken);
+            if (principal.isPresent()) {
+                return principal.get();
+            }
+            // Tokens issued before identity claims existed fall back to the user lookup
+        }
+        return userDetailsService.loadUserByUsername(verifiedToken.subject());
+    }
 }
@@ -0,0 +1,193 @@
+package com.lurniq.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.service.PasswordHashingService;
+import com.lurniq.util.ClientIp;
+import com.lurniq.util.ProofOfWork;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional proof-of-work gate in front of login and registration, the two endpoints that cost a BCrypt
+ * per attempt. Clients whose recent attempts mostly fail (4xx answers within the failure window) must send
+ * a solved challenge in {@value #HEADER_SOLUTION}; without one they get 428 with a fresh challenge. The
+ * puzzle difficulty grows with the load on the password hashing executor, so attackers pay more exactly
+ * when hashing capacity is scarce. Checking a solution costs one SHA-256, see {@link ProofOfWork}.
+ */
+@Component
+@Slf4j
+public class ProofOfWorkFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER_CHALLENGE = "X-PoW-Challenge";
+    public static final String HEADER_DIFFICULTY = "X-PoW-Difficulty";
+    public static final String HEADER_SOLUTION = "X-PoW-Solution";
+    
+    private static final int PRECONDITION_REQUIRED = 428;
+    
+    private final PasswordHashingService passwordHashingService;
+    private final ProofOfWork proofOfWork;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final int baseDifficulty;
+    private final int maxExtraDifficulty;
+    private final Cache<String, AtomicInteger> failures;
+    // Solved challenges, so each solution buys exactly one attempt
+    private final Cache<String, Boolean> spentChallenges;
+    private final Counter challenged;
+    private final Counter solved;
+    
+    public ProofOfWorkFilter(
+            PasswordHashingService passwordHashingService,
+            MeterRegistry meterRegistry,
+            @Value("${auth.proof-of-work.enabled:false}") boolean enabled,
+            @Value("${auth.proof-of-work.secret:}") String secret,
+            @Value("${auth.proof-of-work.challenge-ttl-seconds:120}") long challengeTtlSeconds,
+            @Value("${auth.proof-of-work.failure-threshold:10}") int failureThreshold,
+            @Value("${auth.proof-of-work.failure-window-ms:600000}") long failureWindowMillis,
+            @Value("${auth.proof-of-work.base-difficulty:16}") int baseDifficulty,
+            @Value("${auth.proof-of-work.max-extra-difficulty:6}") int maxExtraDifficulty,
+            @Value("${auth.proof-of-work.maximum-clients:100000}") long maximumClients
+    ) {
+        this.passwordHashingService = passwordHashingService;
+        this.proofOfWork = new ProofOfWork(secretBytes(secret, enabled), challengeTtlSeconds);
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.baseDifficulty = baseDifficulty;
+        this.maxExtraDifficulty = maxExtraDifficulty;
+        // Expiry from the first failure: the count is a fixed window per client
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterWrite(Duration.ofMillis(failureWindowMillis))
+                .build();
+        this.spentChallenges = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterWrite(Duration.ofSeconds(challengeTtlSeconds))
+                .build();
+        this.challenged = Counter.builder("auth.proof.of.work.challenged")
+                .description("Login and registration attempts answered with a proof-of-work challenge")
+                .register(meterRegistry);
+        this.solved = Counter.builder("auth.proof.of.work.solved")
+                .description("Attempts let through with a valid proof-of-work solution")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        return !uri.equals("/api/auth/login") && !uri.equals("/api/auth/register");
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String clientIp = ClientIp.resolve(request);
+        
+        AtomicInteger recentFailures = failures.getIfPresent(clientIp);
+        if (recentFailures != null && recentFailures.get() >= failureThreshold) {
+            String solution = request.getHeader(HEADER_SOLUTION);
+            String challenge = solution == null ? null : proofOfWork.verify(solution, clientIp);
+            if (challenge == null || spentChallenges.asMap().putIfAbsent(challenge, Boolean.TRUE) != null) {
+                challenge(response, clientIp);
+                return;
+            }
+            solved.increment();
+        }
+        
+        filterChain.doFilter(request, response);
+        
+        // Login and registration complete asynchronously; the final status is only known at completion
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new OutcomeListener(clientIp));
+        } else {
+            recordOutcome(clientIp, response.getStatus());
+        }
+    }
+    
+    private void challenge(HttpServletResponse response, String clientIp) throws IOException {
+        challenged.increment();
+        // Harder puzzles while the hashing executor is busy
+        int difficulty = baseDifficulty + (int) Math.round(passwordHashingService.saturation() * maxExtraDifficulty);
+        String challenge = proofOfWork.issue(clientIp, difficulty);
+        
+        response.setStatus(PRECONDITION_REQUIRED);
+        response.setHeader(HEADER_CHALLENGE, challenge);
+        response.setHeader(HEADER_DIFFICULTY, String.valueOf(difficulty));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType("application/json");
+        // Also in the body, so browser clients need no exposed CORS headers
+        response.getWriter().write(
+            "{\"error\":\"Proof of work required\",\"message\":\"Too many failed attempts. Solve the challenge and retry with the "
+                    + HEADER_SOLUTION + " header.\",\"challenge\":\"" + challenge + "\",\"difficulty\":" + difficulty + "}"
+        );
+    }
+    
+    private void recordOutcome(String clientIp, int status) {
+        if (status >= 400 && status < 500 && status != PRECONDITION_REQUIRED) {
+            failures.get(clientIp, ip -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+    
+    private static byte[] secretBytes(String secret, boolean enabled) {
+        if (!secret.isBlank()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        if (enabled) {
+            log.warn("auth.proof-of-work.secret is not set; challenges are only valid on the instance that issued them");
+        }
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+    
+    private final class OutcomeListener implements AsyncListener {
+        
+        private final String clientIp;
+        
+        OutcomeListener(String clientIp) {
+            this.clientIp = clientIp;
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (event.getSuppliedResponse() instanceof HttpServletResponse response) {
+                recordOutcome(clientIp, response.getStatus());
+            }
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
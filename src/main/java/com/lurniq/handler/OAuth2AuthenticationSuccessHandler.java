@@ -2,6 +2,8 @@ package com.lurniq.handler;
 
 import com.lurniq.entity.User;
 import com.lurniq.repository.UserRepository;
+import com.lurniq.service.RefreshTokenService;
+import com.lurniq.service.RegisteredEmailFilter;
 import com.lurniq.util.JwtUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +25,8 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
     
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final RegisteredEmailFilter registeredEmailFilter;
     
     @Value("${oauth2.redirect-url:http://localhost:8080/auth/success}")
     private String redirectUrl;
@@ -45,7 +49,7 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         User user = processOAuth2User(oAuth2User, registrationId);
         
         String token = jwtUtil.generateToken(user);
-        String refreshToken = jwtUtil.generateRefreshToken(user);
+        String refreshToken = refreshTokenService.issue(user);
         
         // Check if request came from Angular app using state parameter
         String state = request.getParameter("state");
@@ -112,6 +116,8 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
                 .emailVerified(true)
                 .build();
         
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        registeredEmailFilter.add(savedUser.getEmail());
+        return savedUser;
     }
 }
@@ -0,0 +1,18 @@
+package com.lurniq.repository;
+
+import com.lurniq.entity.OpaqueSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OpaqueSessionRepository extends JpaRepository<OpaqueSession, String> {
+    
+    @Modifying
+    @Query("DELETE FROM OpaqueSession s WHERE s.expiryDate < :expiredBefore")
+    int deleteExpiredSessions(@Param("expiredBefore") LocalDateTime expiredBefore);
+}
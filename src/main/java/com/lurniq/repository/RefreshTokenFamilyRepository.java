@@ -0,0 +1,18 @@
+package com.lurniq.repository;
+
+import com.lurniq.entity.RefreshTokenFamily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, String> {
+    
+    @Modifying
+    @Query("DELETE FROM RefreshTokenFamily f WHERE f.expiryDate < :expiredBefore")
+    int deleteExpiredFamilies(@Param("expiredBefore") LocalDateTime expiredBefore);
+}
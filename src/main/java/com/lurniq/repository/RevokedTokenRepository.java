@@ -0,0 +1,25 @@
+package com.lurniq.repository;
+
+import com.lurniq.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    
+    @Query("SELECT r FROM RevokedToken r WHERE r.expiryDate > :now")
+    List<RevokedToken> findActive(@Param("now") LocalDateTime now);
+    
+    @Query("SELECT r FROM RevokedToken r WHERE r.expiryDate > :now AND r.revokedAt > :since")
+    List<RevokedToken> findActiveRevokedSince(@Param("now") LocalDateTime now, @Param("since") LocalDateTime since);
+    
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiryDate < :expiredBefore")
+    int deleteExpiredTokens(@Param("expiredBefore") LocalDateTime expiredBefore);
+}
@@ -1,10 +1,20 @@
 package com.lurniq.repository;
 
 import com.lurniq.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -14,4 +24,48 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByProviderAndProviderId(User.AuthProvider provider, String providerId);
     
     Boolean existsByEmail(String email);
+    
+    /**
+     * Every email, streamed in chunks; the caller must hold a transaction and close the stream.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT u.email FROM User u")
+    Stream<String> streamAllEmails();
+    
+    @Query("SELECT u.email FROM User u WHERE u.createdAt > :since")
+    List<String> findEmailsCreatedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT u.id, u.tokenEpoch FROM User u WHERE u.tokenEpoch > 0")
+    List<Object[]> findAllTokenEpochs();
+    
+    @Query("SELECT u.id, u.tokenEpoch FROM User u WHERE u.tokenEpoch > 0 AND u.updatedAt > :since")
+    List<Object[]> findTokenEpochsUpdatedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenEpochById(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.tokenEpoch = COALESCE(u.tokenEpoch, 0) + 1, u.updatedAt = :now WHERE u.id = :id")
+    int incrementTokenEpoch(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Replace the stored hash only if it is still the one the caller verified against.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :upgraded, u.updatedAt = :now WHERE u.id = :id AND u.password = :current")
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("current") String current,
+                                  @Param("upgraded") String upgraded, @Param("now") LocalDateTime now);
+    
+    /**
+     * User counts per hash prefix: the id and cost of {bcrypt} hashes, the version and cost of older
+     * unprefixed BCrypt hashes, or 'other'.
+     */
+    @Query("SELECT CASE WHEN u.password LIKE '{bcrypt}%' THEN SUBSTRING(u.password, 1, 15) "
+            + "WHEN u.password LIKE '$2%' THEN SUBSTRING(u.password, 1, 7) ELSE 'other' END AS prefix, COUNT(u) "
+            + "FROM User u WHERE u.password IS NOT NULL GROUP BY prefix")
+    List<Object[]> countPasswordHashesByPrefix();
 }
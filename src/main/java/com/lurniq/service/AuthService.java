@@ -2,16 +2,30 @@ package com.lurniq.service;
 
 import com.lurniq.dto.*;
 import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
+import com.lurniq.exception.EmailAlreadyRegisteredException;
+import com.lurniq.exception.StacklessCompletionException;
 import com.lurniq.repository.UserRepository;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
 import com.lurniq.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
@@ -21,13 +35,99 @@ public class AuthService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final EmailVerificationService emailVerificationService;
+    private final TokenRevocationService tokenRevocationService;
+    private final TokenEpochService tokenEpochService;
+    private final RefreshTokenService refreshTokenService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final PasswordHashingService passwordHashingService;
+    private final PasswordRehashService passwordRehashService;
+    private final LoginMetrics loginMetrics;
+    private final RegistrationBatcher registrationBatcher;
+    private final LoginAttemptService loginAttemptService;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final BreachedPasswordService breachedPasswordService;
+    private final DisposableEmailDomainService disposableEmailDomainService;
     
-    public RegistrationResponse register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email already exists");
+    /**
+     * Register on the password hashing executor so BCrypt never runs on a request thread. Hashing starts
+     * as soon as the request is accepted; uniqueness is left to the insert itself, so a registration costs
+     * one database round trip and a taken email fails with {@link EmailAlreadyRegisteredException}.
+     * Disposable email domains and passwords from known breaches are refused up front, before any hashing
+     * work is queued. The future completes with the responder's result, built where the registration
+     * finishes, so the caller adds no dependent stage to wrap a failure again.
+     */
+    public <R> CompletableFuture<R> register(RegisterRequest request, Function<RegistrationResponse, R> responder) {
+        if (disposableEmailDomainService.isDisposable(request.getEmail())) {
+            throw AuthFailure.DISPOSABLE_EMAIL.exception();
+        }
+        if (breachedPasswordService.isBreached(request.getPassword())) {
+            throw AuthFailure.BREACHED_PASSWORD.exception();
         }
         
-        User user = User.builder()
+        if (registrationBatcher.isEnabled()) {
+            // Only the hash runs on the hashing executor; the insert joins the next group commit
+            CompletableFuture<R> result = new CompletableFuture<>();
+            passwordHashingService.submit("register", () -> newLocalUser(request)).handle((user, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    insertBatched(user, responder, result);
+                }
+                return null;
+            });
+            return result;
+        }
+        return passwordHashingService.submit("register", () -> responder.apply(createAccount(request)));
+    }
+    
+    /**
+     * Log in on the password hashing executor. Request details are captured first, on the request thread.
+     * Accounts with recent failures are delayed or refused before any hashing work is queued. As with
+     * {@link #register}, the hashing task itself completes the future with the responder's result.
+     */
+    public <R> CompletableFuture<R> login(LoginRequest request, HttpServletRequest httpRequest, Function<AuthResponse, R> responder) {
+        WebAuthenticationDetails details = new WebAuthenticationDetails(httpRequest);
+        return loginAttemptService.attempt(request.getEmail(),
+                () -> passwordHashingService.submit("login", () -> responder.apply(authenticate(request, details))));
+    }
+    
+    // Completes the caller's future from the group commit's completion, with handle rather than dependent stages
+    private <R> void insertBatched(User user, Function<RegistrationResponse, R> responder, CompletableFuture<R> result) {
+        try {
+            registrationBatcher.insert(user).handle((id, failure) -> {
+                try {
+                    if (failure != null) {
+                        result.completeExceptionally(StacklessCompletionException.wrap(failure));
+                    } else {
+                        user.setId(id);
+                        result.complete(responder.apply(completeRegistration(user)));
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(StacklessCompletionException.wrap(e));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(StacklessCompletionException.wrap(e));
+        }
+    }
+    
+    private RegistrationResponse createAccount(RegisterRequest request) {
+        User savedUser;
+        try {
+            savedUser = userRepository.save(newLocalUser(request));
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                throw new EmailAlreadyRegisteredException();
+            }
+            throw e;
+        }
+        return completeRegistration(savedUser);
+    }
+    
+    private User newLocalUser(RegisterRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        return User.builder()
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .email(request.getEmail())
@@ -35,9 +135,13 @@ public class AuthService {
                 .role(User.Role.USER)
                 .provider(User.AuthProvider.LOCAL)
                 .emailVerified(false)
+                .createdAt(now)
+                .updatedAt(now)
                 .build();
-        
-        User savedUser = userRepository.save(user);
+    }
+    
+    private RegistrationResponse completeRegistration(User savedUser) {
+        registeredEmailFilter.add(savedUser.getEmail());
         
         // Send activation email (async)
         try {
@@ -62,7 +166,7 @@ public class AuthService {
                 .build();
     }
     
-    public AuthResponse login(LoginRequest request, HttpServletRequest httpRequest) {
+    private AuthResponse authenticate(LoginRequest request, WebAuthenticationDetails details) {
         // Create authentication token with web details to preserve IP address
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                 request.getEmail(),
@@ -70,44 +174,124 @@ public class AuthService {
         );
         
         // Set web authentication details to capture IP address
-        authToken.setDetails(new WebAuthenticationDetails(httpRequest));
+        authToken.setDetails(details);
         
-        authenticationManager.authenticate(authToken);
+        // The login provider checks verification before the hash and hands back the user it loaded
+        User user = (User) authenticationManager.authenticate(authToken).getPrincipal();
         
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        passwordRehashService.rehashIfNeeded(user, request.getPassword());
         
-        // Check if email is verified before issuing tokens
-        if (!user.getEmailVerified()) {
-            throw new RuntimeException("Email not verified. Please check your email and activate your account.");
+        if (opaqueTokenService.isEnabled()) {
+            return loginMetrics.sign().record(() -> opaqueTokenService.issue(user));
         }
         
+        long signStart = System.nanoTime();
         String jwtToken = jwtUtil.generateToken(user);
-        String refreshToken = jwtUtil.generateRefreshToken(user);
+        String refreshToken = refreshTokenService.issue(user);
+        loginMetrics.sign().record(System.nanoTime() - signStart, TimeUnit.NANOSECONDS);
         
-        return AuthResponse.builder()
+        return loginMetrics.response().record(() -> AuthResponse.builder()
                 .accessToken(jwtToken)
                 .refreshToken(refreshToken)
                 .user(UserProfileResponse.fromUser(user))
-                .build();
+                .build());
     }
     
     public AuthResponse refreshToken(String refreshToken) {
-        if (!jwtUtil.validateToken(refreshToken)) {
-            throw new RuntimeException("Invalid refresh token");
+        if (isOpaque(refreshToken)) {
+            return opaqueTokenService.refresh(refreshToken, userId -> userRepository.findById(userId)
+                    .orElseThrow(AuthFailure.USER_NOT_FOUND::exception));
         }
         
-        String userEmail = jwtUtil.extractUsername(refreshToken);
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        VerifiedToken verifiedToken = jwtUtil.verifyToken(refreshToken)
+                .orElseThrow(AuthFailure.INVALID_REFRESH_TOKEN::exception);
         
-        String newAccessToken = jwtUtil.generateToken(user);
-        String newRefreshToken = jwtUtil.generateRefreshToken(user);
+        if (tokenRevocationService.isRevoked(verifiedToken.id())) {
+            throw AuthFailure.REFRESH_TOKEN_REVOKED.exception();
+        }
+        if (!tokenEpochService.isCurrent(verifiedToken)) {
+            throw AuthFailure.REFRESH_TOKEN_OUTDATED.exception();
+        }
         
-        return AuthResponse.builder()
-                .accessToken(newAccessToken)
-                .refreshToken(newRefreshToken)
-                .user(UserProfileResponse.fromUser(user))
-                .build();
+        return refreshTokenService.rotate(verifiedToken, () -> userRepository.findByEmail(verifiedToken.subject())
+                .orElseThrow(AuthFailure.USER_NOT_FOUND::exception));
+    }
+    
+    /**
+     * Revoke the access token and, when the session's refresh token is given, everything that token could still
+     * be exchanged for. Without it the refresh token stays usable until it expires or is rotated away.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        VerifiedToken verifiedToken = verifyAccessToken(accessToken);
+        
+        if (isOpaque(accessToken)) {
+            opaqueTokenService.revoke(accessToken);
+        } else if (verifiedToken.id() == null) {
+            throw AuthFailure.TOKEN_NOT_REVOCABLE.exception();
+        } else {
+            tokenRevocationService.revoke(verifiedToken.id(), verifiedToken.expiresAtMillis());
+        }
+        
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            revokeRefreshToken(verifiedToken, refreshToken);
+        }
+    }
+    
+    public void logoutAll(String accessToken) {
+        VerifiedToken verifiedToken = verifyAccessToken(accessToken);
+        
+        Long userId = verifiedToken.userId();
+        if (userId == null) {
+            userId = userRepository.findByEmail(verifiedToken.subject())
+                    .orElseThrow(AuthFailure.USER_NOT_FOUND::exception)
+                    .getId();
+        }
+        
+        tokenEpochService.bump(userId);
+    }
+    
+    private void revokeRefreshToken(VerifiedToken accessToken, String refreshToken) {
+        if (isOpaque(refreshToken)) {
+            opaqueTokenService.revoke(refreshToken);
+            return;
+        }
+        
+        VerifiedToken verifiedRefreshToken = jwtUtil.verifyToken(refreshToken)
+                .orElseThrow(AuthFailure.INVALID_REFRESH_TOKEN::exception);
+        // A session may only be ended by its own user
+        if (!verifiedRefreshToken.subject().equals(accessToken.subject())) {
+            throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        
+        Long userId = accessToken.userId();
+        if (userId == null) {
+            userId = userRepository.findByEmail(accessToken.subject())
+                    .orElseThrow(AuthFailure.USER_NOT_FOUND::exception)
+                    .getId();
+        }
+        refreshTokenService.revokeFamily(verifiedRefreshToken, userId);
+    }
+    
+    private boolean isOpaque(String token) {
+        return opaqueTokenService.isEnabled() && OpaqueTokenService.isOpaque(token);
+    }
+    
+    private VerifiedToken verifyAccessToken(String accessToken) {
+        if (isOpaque(accessToken)) {
+            try {
+                return opaqueTokenService.resolve(TokenDigest.of(accessToken));
+            } catch (JwtException e) {
+                throw AuthFailure.INVALID_ACCESS_TOKEN.exception();
+            }
+        }
+        return jwtUtil.verifyToken(accessToken)
+                .orElseThrow(AuthFailure.INVALID_ACCESS_TOKEN::exception);
+    }
+    
+    // Email is the only unique column users are inserted with
+    private static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e instanceof DuplicateKeyException
+                || e.getCause() instanceof ConstraintViolationException violation
+                && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
     }
 }
@@ -0,0 +1,282 @@
+package com.lurniq.service;
+
+import com.lurniq.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offline check against a breached password list in the Have I Been Pwned "ordered by hash" SHA-1
+ * format: one {@code HASH:COUNT} line per password, sorted by the upper-case hex hash. The file is
+ * memory-mapped and binary-searched in place, so lookups allocate nothing on the heap, need no network,
+ * and cost a few dozen byte probes of the page cache.
+ * <p>
+ * The file is checked for changes periodically; a replacement (ideally renamed into place) is mapped and
+ * swapped in without a restart. An optional Bloom filter over the hash prefixes, built when the file is
+ * loaded, answers most misses without touching the mapping and so without page faults. Until the first
+ * load finishes, or when no file is configured, no password is reported as breached.
+ */
+@Service
+@Slf4j
+public class BreachedPasswordService {
+    
+    private static final int HASH_HEX_LENGTH = 40;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    
+    private final Path file;
+    private final boolean bloomEnabled;
+    private final long bloomExpectedEntries;
+    private final double bloomFalsePositiveProbability;
+    private final Timer lookupTimer;
+    private final Counter breached;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final ThreadLocal<byte[]> hexBuffer = ThreadLocal.withInitial(() -> new byte[HASH_HEX_LENGTH]);
+    private final ThreadLocal<MessageDigest> sha1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    
+    private volatile HashIndex index;
+    
+    public BreachedPasswordService(
+            MeterRegistry meterRegistry,
+            @Value("${auth.breached-passwords.file:}") String file,
+            @Value("${auth.breached-passwords.bloom-filter.enabled:false}") boolean bloomEnabled,
+            @Value("${auth.breached-passwords.bloom-filter.expected-entries:1000000000}") long bloomExpectedEntries,
+            @Value("${auth.breached-passwords.bloom-filter.false-positive-probability:0.01}") double bloomFalsePositiveProbability
+    ) {
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.bloomEnabled = bloomEnabled;
+        this.bloomExpectedEntries = bloomExpectedEntries;
+        this.bloomFalsePositiveProbability = bloomFalsePositiveProbability;
+        this.lookupTimer = Timer.builder("auth.breached.password.lookup")
+                .description("Time to check a password against the breached password file")
+                .register(meterRegistry);
+        this.breached = Counter.builder("auth.breached.password.rejected")
+                .description("Passwords refused because they appear in the breached password file")
+                .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (file != null) {
+            reloadInBackground();
+        }
+    }
+    
+    /**
+     * Map the file again if it was replaced or modified since it was loaded.
+     */
+    @Scheduled(fixedDelayString = "${auth.breached-passwords.reload-check-interval-ms:60000}",
+            initialDelayString = "${auth.breached-passwords.reload-check-interval-ms:60000}")
+    public void reloadIfChanged() {
+        if (file == null) {
+            return;
+        }
+        try {
+            HashIndex current = index;
+            if (current == null || current.modifiedAt != Files.getLastModifiedTime(file).toMillis()
+                    || current.size != Files.size(file)) {
+                reloadInBackground();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot check breached password file {}: {}", file, e.getMessage());
+        }
+    }
+    
+    /**
+     * True if the password appears in the breached password file.
+     */
+    public boolean isBreached(String password) {
+        HashIndex current = index;
+        if (current == null || password == null) {
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        byte[] digest = sha1.get().digest(password.getBytes(StandardCharsets.UTF_8));
+        byte[] hex = hexBuffer.get();
+        toUpperHex(digest, hex);
+        boolean found = current.contains(hex, prefix(digest));
+        lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        
+        if (found) {
+            breached.increment();
+        }
+        return found;
+    }
+    
+    private void reloadInBackground() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        // Mapping is instant, but a Bloom filter build reads the whole file; keep it off the scheduler thread
+        Thread loader = new Thread(() -> {
+            try {
+                long started = System.currentTimeMillis();
+                HashIndex loaded = HashIndex.open(file, bloomEnabled
+                        ? BloomFilter.create(bloomExpectedEntries, bloomFalsePositiveProbability) : null);
+                index = loaded;
+                log.info("Breached password file {} loaded: {} MB{} in {} ms", file, loaded.size >> 20,
+                        loaded.bloomFilter != null ? ", Bloom filter " + (loaded.bloomFilter.memoryBytes() >> 20) + " MB" : "",
+                        System.currentTimeMillis() - started);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to load breached password file {}: {}", file, e.getMessage());
+            } finally {
+                loading.set(false);
+            }
+        }, "breached-password-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    private static void toUpperHex(byte[] digest, byte[] hex) {
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >>> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+    }
+    
+    private static long prefix(byte[] digest) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (digest[i] & 0xFF);
+        }
+        return value;
+    }
+    
+    /**
+     * One mapped version of the file. Mappings are limited to 2 GB, so the file is mapped in 1 GB segments
+     * that overlap by one maximum line length; every line can then be read from the segment it starts in.
+     */
+    private static final class HashIndex {
+        
+        private static final int SEGMENT_SHIFT = 30;
+        private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+        private static final int MAX_LINE = 128;
+        
+        private final MappedByteBuffer[] segments;
+        private final long size;
+        private final long modifiedAt;
+        private final BloomFilter bloomFilter;
+        
+        private HashIndex(MappedByteBuffer[] segments, long size, long modifiedAt, BloomFilter bloomFilter) {
+            this.segments = segments;
+            this.size = size;
+            this.modifiedAt = modifiedAt;
+            this.bloomFilter = bloomFilter;
+        }
+        
+        static HashIndex open(Path file, BloomFilter bloomFilter) throws IOException {
+            long modifiedAt = Files.getLastModifiedTime(file).toMillis();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+                for (int i = 0; i < segments.length; i++) {
+                    long start = i * SEGMENT_SIZE;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + MAX_LINE, size - start));
+                }
+                HashIndex index = new HashIndex(segments, size, modifiedAt, bloomFilter);
+                if (bloomFilter != null) {
+                    index.fillBloomFilter();
+                }
+                return index;
+            }
+        }
+        
+        boolean contains(byte[] hex, long prefix) {
+            if (bloomFilter != null && !bloomFilter.mightContainHash(prefix)) {
+                return false;
+            }
+            
+            // Lines partition [low, high); both bounds are always line starts
+            long low = 0;
+            long high = size;
+            while (low < high) {
+                long lineStart = lineStart((low + high) >>> 1, low);
+                int comparison = compare(lineStart, hex);
+                if (comparison == 0) {
+                    return true;
+                }
+                if (comparison < 0) {
+                    low = nextLine(lineStart);
+                } else {
+                    high = lineStart;
+                }
+            }
+            return false;
+        }
+        
+        private void fillBloomFilter() {
+            long position = 0;
+            while (position + HASH_HEX_LENGTH <= size) {
+                long prefix = 0;
+                for (int i = 0; i < 16; i++) {
+                    prefix = (prefix << 4) | Character.digit(byteAt(position + i), 16);
+                }
+                bloomFilter.putHash(prefix);
+                position = nextLine(position);
+            }
+        }
+        
+        private long lineStart(long position, long floor) {
+            while (position > floor && byteAt(position - 1) != '\n') {
+                position--;
+            }
+            return position;
+        }
+        
+        private long nextLine(long lineStart) {
+            MappedByteBuffer segment = segments[(int) (lineStart >>> SEGMENT_SHIFT)];
+            int offset = (int) (lineStart & (SEGMENT_SIZE - 1));
+            int limit = Math.min(segment.limit(), offset + MAX_LINE);
+            for (int i = offset; i < limit; i++) {
+                if (segment.get(i) == '\n') {
+                    return lineStart + (i - offset) + 1;
+                }
+            }
+            return size;
+        }
+        
+        // Compares the hash at the start of the line with the target, upper-case hex on both sides
+        private int compare(long lineStart, byte[] hex) {
+            if (lineStart + HASH_HEX_LENGTH > size) {
+                return 1;
+            }
+            MappedByteBuffer segment = segments[(int) (lineStart >>> SEGMENT_SHIFT)];
+            int offset = (int) (lineStart & (SEGMENT_SIZE - 1));
+            for (int i = 0; i < HASH_HEX_LENGTH; i++) {
+                int difference = segment.get(offset + i) - hex[i];
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+        
+        private char byteAt(long position) {
+            return (char) segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+        }
+    }
+}
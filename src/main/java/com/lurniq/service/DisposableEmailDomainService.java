@@ -0,0 +1,88 @@
+package com.lurniq.service;
+
+import com.lurniq.util.DomainTrie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Blocklist of disposable (throwaway) email domains, one domain per line with {@code #} comments, loaded
+ * from a local file into a {@link DomainTrie} so subdomains of a listed domain are refused too. The file is
+ * checked for changes periodically and a new trie is swapped in whole; a lookup always sees one complete
+ * list. With no file configured, or one that cannot be read, nothing is blocked.
+ */
+@Service
+@Slf4j
+public class DisposableEmailDomainService {
+    
+    private final Path file;
+    private final Counter blocked;
+    
+    private volatile DomainTrie domains = DomainTrie.empty();
+    private volatile long loadedModifiedAt = -1;
+    private volatile long loadedSize = -1;
+    
+    public DisposableEmailDomainService(
+            MeterRegistry meterRegistry,
+            @Value("${auth.disposable-email.file:}") String file
+    ) {
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.blocked = Counter.builder("auth.disposable.email.blocked")
+                .description("Registrations refused for a disposable email domain")
+                .register(meterRegistry);
+        Gauge.builder("auth.disposable.email.domains", this, service -> service.domains.size())
+                .description("Domains in the disposable email blocklist")
+                .register(meterRegistry);
+        reloadIfChanged();
+    }
+    
+    /**
+     * True if the email's domain, or a parent domain, is on the blocklist.
+     */
+    public boolean isDisposable(String email) {
+        if (email == null || !domains.matches(email)) {
+            return false;
+        }
+        blocked.increment();
+        return true;
+    }
+    
+    /**
+     * Load the file again if it was replaced or modified since it was loaded.
+     */
+    @Scheduled(fixedDelayString = "${auth.disposable-email.reload-check-interval-ms:60000}",
+            initialDelayString = "${auth.disposable-email.reload-check-interval-ms:60000}")
+    public void reloadIfChanged() {
+        if (file == null) {
+            return;
+        }
+        try {
+            long modifiedAt = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            if (modifiedAt == loadedModifiedAt && size == loadedSize) {
+                return;
+            }
+            
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            DomainTrie loaded = DomainTrie.build(lines.stream()
+                    .map(line -> line.indexOf('#') >= 0 ? line.substring(0, line.indexOf('#')) : line)
+                    .toList());
+            domains = loaded;
+            loadedModifiedAt = modifiedAt;
+            loadedSize = size;
+            log.info("Disposable email blocklist {} loaded: {} domains", file, loaded.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load disposable email blocklist {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -24,6 +24,7 @@ public class EmailVerificationService {
     private final EmailVerificationTokenRepository tokenRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final RegisteredEmailFilter registeredEmailFilter;
     
     @Value("${email.activation.expiration-hours:24}")
     private int expirationHours;
@@ -127,7 +128,7 @@ public class EmailVerificationService {
     @Transactional
     public boolean resendActivationEmail(String email) {
         try {
-            Optional<User> userOpt = userRepository.findByEmail(email);
+            Optional<User> userOpt = registeredEmailFilter.find(email, userRepository::findByEmail);
             
             if (userOpt.isEmpty()) {
                 log.warn("User not found for email: {}", email);
@@ -0,0 +1,261 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.exception.AccountLockedException;
+import com.lurniq.exception.ServiceOverloadedException;
+import com.lurniq.exception.StacklessCompletionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-account login throttling, complementing the per-IP rate limit. Failed password checks are counted
+ * per email from the authentication failure events. Past a few free attempts, each further attempt is
+ * delayed exponentially; at the lock threshold the account is locked for a while and attempts are refused
+ * before any lookup or hash work. Unknown emails are tracked the same way, so the responses do not reveal
+ * which accounts exist. State lives in a size-bounded cache that forgets accounts after the failure window.
+ * <p>
+ * Delays are served from a scheduler thread, so a throttled attempt holds neither a request thread nor
+ * a hashing thread while it waits. An account has at most one delayed attempt in flight; further attempts
+ * while it waits or runs are refused with a retry hint, and the scheduler never holds more than
+ * {@code max-pending-delays} attempts across all accounts.
+ */
+@Service
+@Slf4j
+public class LoginAttemptService {
+    
+    private final int freeAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int lockThreshold;
+    private final long lockDurationMillis;
+    private final long failureWindowMillis;
+    private final int maxPendingDelays;
+    private final AtomicInteger pendingDelays = new AtomicInteger();
+    private final Cache<String, FailureState> failures;
+    private final ScheduledExecutorService scheduler;
+    private final Counter lockouts;
+    private final Counter delayed;
+    private final Counter refused;
+    
+    public LoginAttemptService(
+            MeterRegistry meterRegistry,
+            @Value("${auth.lockout.free-attempts:3}") int freeAttempts,
+            @Value("${auth.lockout.base-delay-ms:500}") long baseDelayMillis,
+            @Value("${auth.lockout.max-delay-ms:8000}") long maxDelayMillis,
+            @Value("${auth.lockout.lock-threshold:10}") int lockThreshold,
+            @Value("${auth.lockout.lock-duration-ms:900000}") long lockDurationMillis,
+            @Value("${auth.lockout.failure-window-ms:900000}") long failureWindowMillis,
+            @Value("${auth.lockout.maximum-accounts:100000}") long maximumAccounts,
+            @Value("${auth.lockout.max-pending-delays:10000}") int maxPendingDelays
+    ) {
+        this.freeAttempts = freeAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.lockThreshold = lockThreshold;
+        this.lockDurationMillis = lockDurationMillis;
+        this.failureWindowMillis = failureWindowMillis;
+        this.maxPendingDelays = maxPendingDelays;
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(maximumAccounts)
+                .expireAfterWrite(Duration.ofMillis(Math.max(failureWindowMillis, lockDurationMillis)))
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-delay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lockouts = Counter.builder("auth.login.lockouts")
+                .description("Accounts locked after repeated failed logins")
+                .register(meterRegistry);
+        this.delayed = Counter.builder("auth.login.delayed")
+                .description("Login attempts delayed because of earlier failures")
+                .register(meterRegistry);
+        this.refused = Counter.builder("auth.login.refused")
+                .description("Login attempts refused while another delayed attempt for the account was pending")
+                .register(meterRegistry);
+        
+        Gauge.builder("auth.login.tracked.accounts", failures, Cache::estimatedSize)
+                .description("Accounts with recent failed logins")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Throws {@link AccountLockedException} if the account is locked.
+     */
+    public void checkNotLocked(String email) {
+        FailureState state = failures.getIfPresent(key(email));
+        if (state == null) {
+            return;
+        }
+        long lockedFor;
+        synchronized (state) {
+            lockedFor = state.lockedUntil - System.currentTimeMillis();
+        }
+        if (lockedFor > 0) {
+            throw new AccountLockedException("Too many failed login attempts. Please try again later.",
+                    TimeUnit.MILLISECONDS.toSeconds(lockedFor) + 1);
+        }
+    }
+    
+    /**
+     * Run the login attempt, after the backoff delay earned by the account's recent failures if any.
+     * Throws {@link AccountLockedException} straight away if the account is locked or already has a delayed
+     * attempt in flight, and {@link ServiceOverloadedException} if too many delayed attempts are pending overall.
+     */
+    public <T> CompletableFuture<T> attempt(String email, Supplier<CompletableFuture<T>> login) {
+        checkNotLocked(email);
+        FailureState state = failures.getIfPresent(key(email));
+        long delayMillis = delayMillis(state);
+        if (delayMillis == 0) {
+            return login.get();
+        }
+        
+        long retryAfterSeconds = TimeUnit.MILLISECONDS.toSeconds(delayMillis) + 1;
+        synchronized (state) {
+            if (state.attemptPending) {
+                refused.increment();
+                throw new AccountLockedException("Another login attempt for this account is in progress. Please try again later.",
+                        retryAfterSeconds);
+            }
+            state.attemptPending = true;
+        }
+        if (pendingDelays.incrementAndGet() > maxPendingDelays) {
+            release(state);
+            throw new ServiceOverloadedException("Too many delayed login attempts pending", retryAfterSeconds);
+        }
+        
+        delayed.increment();
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // The account is free for the next attempt once this one has its outcome, which is also when it counts
+        result.whenComplete((value, failure) -> release(state));
+        try {
+            scheduler.schedule(() -> {
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                try {
+                    login.get().whenComplete((value, failure) -> {
+                        if (failure != null) {
+                            result.completeExceptionally(StacklessCompletionException.wrap(failure));
+                        } else {
+                            result.complete(value);
+                        }
+                    });
+                } catch (Throwable e) {
+                    result.completeExceptionally(StacklessCompletionException.wrap(e));
+                } finally {
+                    MDC.clear();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the attempt never runs, so it must not keep the account's slot
+            release(state);
+            throw new ServiceOverloadedException("Login delays are not being scheduled", retryAfterSeconds);
+        }
+        return result;
+    }
+    
+    @EventListener
+    public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+        String email = event.getAuthentication().getName();
+        if (email == null) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        FailureState state = failures.get(key(email), k -> new FailureState());
+        boolean locked = false;
+        synchronized (state) {
+            if (state.lockedUntil != 0 && state.lockedUntil <= now || now - state.lastFailureAt > failureWindowMillis) {
+                // The lock has run out, or the earlier failures are too old to count
+                state.count = 0;
+                state.lockedUntil = 0;
+            }
+            state.count++;
+            state.lastFailureAt = now;
+            if (state.count >= lockThreshold && state.lockedUntil == 0) {
+                state.lockedUntil = now + lockDurationMillis;
+                locked = true;
+            }
+        }
+        // Re-put so the expiry is measured from the latest failure
+        failures.put(key(email), state);
+        
+        if (locked) {
+            lockouts.increment();
+            log.warn("Login locked for {} ms after {} failed attempts", lockDurationMillis, lockThreshold);
+        }
+    }
+    
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        String email = event.getAuthentication().getName();
+        if (email != null) {
+            failures.invalidate(key(email));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    private void release(FailureState state) {
+        synchronized (state) {
+            state.attemptPending = false;
+        }
+        pendingDelays.decrementAndGet();
+    }
+    
+    private long delayMillis(FailureState state) {
+        if (state == null) {
+            return 0;
+        }
+        int count;
+        synchronized (state) {
+            if (System.currentTimeMillis() - state.lastFailureAt > failureWindowMillis) {
+                return 0;
+            }
+            count = state.count;
+        }
+        int penalized = count - freeAttempts;
+        if (penalized <= 0) {
+            return 0;
+        }
+        return Math.min(maxDelayMillis, baseDelayMillis << Math.min(penalized - 1, 30));
+    }
+    
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class FailureState {
+        int count;
+        long lastFailureAt;
+        long lockedUntil;
+        // A delayed attempt is scheduled or running; only one per account at a time
+        boolean attemptPending;
+    }
+}
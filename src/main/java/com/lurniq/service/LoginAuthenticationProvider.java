@@ -0,0 +1,78 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.exception.EmailNotVerifiedException;
+import com.lurniq.exception.InvalidCredentialsException;
+import com.lurniq.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Email and password authentication for the login endpoint. The user row is read once, straight from
+ * the repository so verification state is never stale, and becomes the principal of the returned
+ * authentication; callers do not need to look the user up again. Unverified accounts are refused before
+ * the password hash is checked, so they cost no BCrypt work. Failures are thrown without stack traces.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoginAuthenticationProvider implements AuthenticationProvider {
+    
+    private static final String UNKNOWN_USER_PASSWORD = "userNotFoundPassword";
+    
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final LoginMetrics loginMetrics;
+    private final LoginAttemptService loginAttemptService;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    
+    // Hash checked for unknown emails, so their response time matches a wrong password
+    private volatile String unknownUserHash;
+    
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        String email = authentication.getName();
+        String password = authentication.getCredentials() == null ? "" : authentication.getCredentials().toString();
+        
+        // Attempts queued before a lockout kicked in are refused here, before any lookup or hash work
+        loginAttemptService.checkNotLocked(email);
+        
+        User user = loginMetrics.lookup().record(() -> registeredEmailFilter.find(email, userRepository::findByEmail).orElse(null));
+        if (user == null || user.getPassword() == null) {
+            // Unknown email or an OAuth-only account
+            loginMetrics.hash().record(() -> passwordEncoder.matches(password, unknownUserHash()));
+            throw new InvalidCredentialsException();
+        }
+        
+        if (!user.isEnabled()) {
+            throw new EmailNotVerifiedException();
+        }
+        
+        Boolean matches = loginMetrics.hash().record(() -> passwordEncoder.matches(password, user.getPassword()));
+        if (!Boolean.TRUE.equals(matches)) {
+            throw new InvalidCredentialsException();
+        }
+        
+        UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+                user, null, user.getAuthorities());
+        result.setDetails(authentication.getDetails());
+        return result;
+    }
+    
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+    
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UNKNOWN_USER_PASSWORD);
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,49 @@
+package com.lurniq.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-stage login timers, all named {@code auth.login.stage} and tagged by stage: user lookup, password
+ * hash check, token issuing (signing, or creating the opaque session) and building the response body.
+ */
+@Component
+public class LoginMetrics {
+    
+    private final Timer lookup;
+    private final Timer hash;
+    private final Timer sign;
+    private final Timer response;
+    
+    public LoginMetrics(MeterRegistry meterRegistry) {
+        this.lookup = stage(meterRegistry, "lookup");
+        this.hash = stage(meterRegistry, "hash");
+        this.sign = stage(meterRegistry, "sign");
+        this.response = stage(meterRegistry, "response");
+    }
+    
+    public Timer lookup() {
+        return lookup;
+    }
+    
+    public Timer hash() {
+        return hash;
+    }
+    
+    public Timer sign() {
+        return sign;
+    }
+    
+    public Timer response() {
+        return response;
+    }
+    
+    private static Timer stage(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("auth.login.stage")
+                .description("Time spent in each stage of a password login")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
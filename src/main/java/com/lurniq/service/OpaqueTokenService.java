@@ -0,0 +1,474 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.dto.AuthResponse;
+import com.lurniq.dto.UserProfileResponse;
+import com.lurniq.entity.OpaqueSession.Kind;
+import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
+import com.lurniq.exception.RevokedJwtException;
+import com.lurniq.repository.OpaqueSessionRepository;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Opaque reference tokens as an alternative to JWTs. A token is 32 random bytes; the session it
+ * stands for lives in memory, split across independent shards keyed by the token's {@link TokenDigest},
+ * so resolving a token is one lock-free hash lookup. Sessions are immutable and written to Postgres
+ * in batches by a background flush, and reloaded on startup. Tokens issued by another instance
+ * are loaded from the database on first use.
+ * <p>
+ * Revoking a session (logout, or consuming a refresh token) leaves a tombstone that is kept until the
+ * revocation is committed, and for a short while after, so a concurrent database load cannot bring the
+ * session back. Revocations are recorded on the row rather than deleting it, and every instance
+ * periodically drops sessions revoked elsewhere from its shards.
+ * <p>
+ * Resolved sessions are handed out as {@link VerifiedToken}s, so revocation by token epoch,
+ * introspection and forward-auth treat both token modes the same way.
+ */
+@Service
+@Slf4j
+public class OpaqueTokenService {
+    
+    public static final String TOKEN_PREFIX = "lq_";
+    
+    private static final String UPSERT_SESSION_SQL = """
+            INSERT INTO opaque_sessions
+                (token_hash, kind, user_id, email, role, email_verified, token_epoch, issued_at, expiry_date)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (token_hash) DO NOTHING
+            """;
+    private static final String REVOKE_SESSION_SQL = "UPDATE opaque_sessions SET revoked_at = ? WHERE token_hash = ?";
+    private static final String SELECT_SESSION_COLUMNS =
+            "SELECT token_hash, kind, user_id, email, role, email_verified, token_epoch, issued_at, expiry_date FROM opaque_sessions";
+    private static final String SELECT_REVOKED_SINCE_SQL = "SELECT token_hash FROM opaque_sessions WHERE revoked_at > ?";
+    
+    // Marks a session revoked but not yet committed as such; it stays until the revocation is written
+    private static final Session REMOVED = new Session(Kind.ACCESS, 0L, null, null, false, 0, 0L, 0L);
+    // Covers a database read that started before the revocation committed and finishes after it
+    private static final Duration RECENT_REVOCATION_TTL = Duration.ofMinutes(1);
+    
+    private final OpaqueSessionRepository sessionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenEpochService tokenEpochService;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final boolean enabled;
+    private final long expiration;
+    private final long refreshExpiration;
+    private final ConcurrentHashMap<TokenDigest, Session>[] shards;
+    private final int shardMask;
+    // Sessions created or revoked since the last flush; consulted before the database so unflushed revocations hold
+    private final Map<TokenDigest, Session> dirtySessions = new ConcurrentHashMap<>();
+    private final Cache<TokenDigest, Boolean> recentlyRevoked = Caffeine.newBuilder()
+            .expireAfterWrite(RECENT_REVOCATION_TTL)
+            .build();
+    private final Counter droppedRows;
+    
+    private volatile LocalDateTime lastRevocationSync = LocalDateTime.now();
+    
+    @SuppressWarnings("unchecked")
+    public OpaqueTokenService(
+            OpaqueSessionRepository sessionRepository,
+            JdbcTemplate jdbcTemplate,
+            TokenEpochService tokenEpochService,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.opaque-tokens.enabled:false}") boolean enabled,
+            @Value("${jwt.expiration}") long expiration,
+            @Value("${jwt.refresh-expiration}") long refreshExpiration,
+            @Value("${jwt.opaque-tokens.shards:0}") int shardCount
+    ) {
+        this.sessionRepository = sessionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenEpochService = tokenEpochService;
+        this.enabled = enabled;
+        this.expiration = expiration;
+        this.refreshExpiration = refreshExpiration;
+        
+        // Power of two so the shard is picked with a mask; by default a few shards per core
+        int requested = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors() * 4;
+        int size = Integer.highestOneBit(Math.max(1, requested - 1)) << 1;
+        this.shards = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shardMask = size - 1;
+        
+        Gauge.builder("jwt.opaque.sessions", this, OpaqueTokenService::sessionCount)
+                .description("Opaque token sessions held in memory")
+                .register(meterRegistry);
+        this.droppedRows = Counter.builder("jwt.opaque.sessions.dropped")
+                .description("Opaque session writes discarded because the database refused the row")
+                .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Whether a bearer value is an opaque token rather than a JWT.
+     */
+    public static boolean isOpaque(String token) {
+        return token.startsWith(TOKEN_PREFIX);
+    }
+    
+    /**
+     * Issue an opaque access and refresh token pair for a fresh login.
+     */
+    public AuthResponse issue(User user) {
+        return AuthResponse.builder()
+                .accessToken(createToken(user, Kind.ACCESS, expiration))
+                .refreshToken(createToken(user, Kind.REFRESH, refreshExpiration))
+                .user(UserProfileResponse.fromUser(user))
+                .build();
+    }
+    
+    /**
+     * Exchange an opaque refresh token for a new pair. The presented token is consumed, so each
+     * refresh token works exactly once.
+     */
+    public AuthResponse refresh(String refreshToken, Function<Long, User> userLoader) {
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        Session session = lookup(digest);
+        if (session == null || session.kind != Kind.REFRESH || session.isExpired(System.currentTimeMillis())) {
+            throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        if (!tokenEpochService.isCurrent(session.userId, session.tokenEpoch)) {
+            throw AuthFailure.REFRESH_TOKEN_OUTDATED.exception();
+        }
+        // Only the caller that places the tombstone may use the token
+        if (dirtySessions.put(digest, REMOVED) == REMOVED || recentlyRevoked.getIfPresent(digest) != null) {
+            throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        shard(digest).remove(digest);
+        return issue(userLoader.apply(session.userId));
+    }
+    
+    /**
+     * Resolve an opaque access token. Throws {@link RevokedJwtException} for unknown or revoked tokens,
+     * {@link ExpiredJwtException} for expired ones and {@link UnsupportedJwtException} for refresh tokens.
+     */
+    public VerifiedToken resolve(TokenDigest digest) {
+        Session session = lookup(digest);
+        if (session == null) {
+            throw new RevokedJwtException("Unknown or revoked opaque token");
+        }
+        if (session.isExpired(System.currentTimeMillis())) {
+            throw new ExpiredJwtException(null, null, "Opaque token expired");
+        }
+        if (session.kind != Kind.ACCESS) {
+            throw new UnsupportedJwtException("Refresh tokens cannot be used as access tokens");
+        }
+        return session.toVerifiedToken();
+    }
+    
+    /**
+     * End the session behind an opaque token on this instance immediately, in the database on the next flush
+     * and on other instances at their next revocation sync.
+     */
+    public void revoke(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        // Tombstone first, so a lookup racing the removal cannot reload the session
+        dirtySessions.put(digest, REMOVED);
+        shard(digest).remove(digest);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSessions() {
+        if (!enabled) {
+            return;
+        }
+        long[] loaded = {0};
+        jdbcTemplate.query(SELECT_SESSION_COLUMNS + " WHERE expiry_date > ? AND revoked_at IS NULL", rs -> {
+            TokenDigest digest = digestOf(rs.getString("token_hash"));
+            shard(digest).putIfAbsent(digest, Session.from(rs));
+            loaded[0]++;
+        }, Timestamp.valueOf(LocalDateTime.now()));
+        log.info("Loaded {} opaque token sessions", loaded[0]);
+    }
+    
+    /**
+     * Write sessions created or revoked since the last run in two JDBC batches. Tombstones are only cleared
+     * once their revocation is committed; rows the database refuses are dropped rather than retried forever.
+     */
+    @Scheduled(fixedDelayString = "${jwt.opaque-tokens.flush-interval-ms:1000}")
+    public void flushSessions() {
+        if (dirtySessions.isEmpty()) {
+            return;
+        }
+        
+        List<TokenDigest> created = new ArrayList<>();
+        List<Session> createdSessions = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        List<TokenDigest> revoked = new ArrayList<>();
+        List<Object[]> revocations = new ArrayList<>();
+        Timestamp revokedAt = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<TokenDigest, Session> entry : dirtySessions.entrySet()) {
+            TokenDigest digest = entry.getKey();
+            Session session = entry.getValue();
+            if (session == REMOVED) {
+                revoked.add(digest);
+                revocations.add(new Object[] {revokedAt, hexOf(digest)});
+            } else if (dirtySessions.remove(digest, session)) {
+                created.add(digest);
+                createdSessions.add(session);
+                upserts.add(session.toRow(hexOf(digest)));
+            }
+        }
+        
+        WriteOutcome[] upserted = write(UPSERT_SESSION_SQL, upserts);
+        for (int i = 0; i < upserted.length; i++) {
+            if (upserted[i] == WriteOutcome.RETRY) {
+                // A revocation that arrived meanwhile wins over the pending write
+                dirtySessions.putIfAbsent(created.get(i), createdSessions.get(i));
+            }
+        }
+        WriteOutcome[] written = write(REVOKE_SESSION_SQL, revocations);
+        for (int i = 0; i < written.length; i++) {
+            if (written[i] != WriteOutcome.RETRY) {
+                recentlyRevoked.put(revoked.get(i), Boolean.TRUE);
+                dirtySessions.remove(revoked.get(i), REMOVED);
+            }
+        }
+        log.debug("Persisted {} opaque sessions and revoked {}", upserts.size(), revocations.size());
+    }
+    
+    /**
+     * Drop sessions revoked on other instances since the last sync from the in-memory shards.
+     */
+    @Scheduled(fixedDelayString = "${jwt.opaque-tokens.revocation-sync-interval-ms:5000}")
+    public void syncRevocations() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime syncStart = LocalDateTime.now();
+        // Overlap the window slightly so a revocation committed during the previous sync is not missed
+        jdbcTemplate.query(SELECT_REVOKED_SINCE_SQL, rs -> {
+            TokenDigest digest = digestOf(rs.getString("token_hash"));
+            recentlyRevoked.put(digest, Boolean.TRUE);
+            shard(digest).remove(digest);
+        }, Timestamp.valueOf(lastRevocationSync.minusSeconds(5)));
+        lastRevocationSync = syncStart;
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushSessions();
+    }
+    
+    /**
+     * Drop expired sessions from memory, one shard at a time.
+     */
+    @Scheduled(fixedDelayString = "${jwt.opaque-tokens.sweep-interval-ms:60000}")
+    public void sweepExpiredSessions() {
+        long now = System.currentTimeMillis();
+        for (ConcurrentHashMap<TokenDigest, Session> shard : shards) {
+            shard.values().removeIf(session -> session.isExpired(now));
+        }
+    }
+    
+    /**
+     * Clean up expired sessions (runs every hour)
+     */
+    @Scheduled(cron = "0 45 * * * ?")
+    @Transactional
+    public void cleanupExpiredSessions() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deletedCount = sessionRepository.deleteExpiredSessions(LocalDateTime.now());
+            if (deletedCount > 0) {
+                log.info("Cleaned up {} expired opaque token sessions", deletedCount);
+            }
+        } catch (Exception e) {
+            log.error("Failed to clean up expired opaque token sessions: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Run the rows as one batch, or one at a time if the batch fails, and report what became of each row.
+     */
+    private WriteOutcome[] write(String sql, List<Object[]> rows) {
+        WriteOutcome[] outcomes = new WriteOutcome[rows.size()];
+        if (rows.isEmpty()) {
+            return outcomes;
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, rows);
+            Arrays.fill(outcomes, WriteOutcome.WRITTEN);
+            return outcomes;
+        } catch (Exception e) {
+            log.warn("Batch write of {} opaque session rows failed, retrying one at a time: {}", rows.size(), e.getMessage());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                jdbcTemplate.update(sql, rows.get(i));
+                outcomes[i] = WriteOutcome.WRITTEN;
+            } catch (DataIntegrityViolationException e) {
+                // The row itself is refused, e.g. its user has been deleted; retrying can never succeed
+                droppedRows.increment();
+                outcomes[i] = WriteOutcome.DROPPED;
+                log.error("Dropped an opaque session write the database refuses: {}", e.getMessage());
+            } catch (Exception e) {
+                // Not the row's fault; keep it and the rest for the next flush
+                Arrays.fill(outcomes, i, outcomes.length, WriteOutcome.RETRY);
+                log.error("Failed to persist opaque token sessions: {}", e.getMessage());
+                break;
+            }
+        }
+        return outcomes;
+    }
+    
+    private String createToken(User user, Kind kind, long lifetime) {
+        byte[] random = new byte[32];
+        secureRandom.nextBytes(random);
+        String token = TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        
+        long now = System.currentTimeMillis();
+        Session session = new Session(kind, user.getId(), user.getEmail(), user.getRole(),
+                Boolean.TRUE.equals(user.getEmailVerified()), tokenEpochService.issueEpoch(user), now, now + lifetime);
+        TokenDigest digest = TokenDigest.of(token);
+        shard(digest).put(digest, session);
+        dirtySessions.put(digest, session);
+        return token;
+    }
+    
+    private Session lookup(TokenDigest digest) {
+        Session session = shard(digest).get(digest);
+        if (session != null) {
+            return session;
+        }
+        
+        // Not issued here, or issued before a restart that lost unflushed state
+        Session pending = dirtySessions.get(digest);
+        if (pending != null) {
+            return pending == REMOVED ? null : pending;
+        }
+        if (recentlyRevoked.getIfPresent(digest) != null) {
+            return null;
+        }
+        List<Session> stored = jdbcTemplate.query(SELECT_SESSION_COLUMNS + " WHERE token_hash = ? AND revoked_at IS NULL",
+                (rs, rowNum) -> Session.from(rs), hexOf(digest));
+        if (stored.isEmpty()) {
+            return null;
+        }
+        Session loaded = stored.get(0);
+        Session raced = shard(digest).putIfAbsent(digest, loaded);
+        Session current = raced != null ? raced : loaded;
+        // The session may have been revoked while the row was being read; the tombstone wins
+        if (isTombstoned(digest)) {
+            shard(digest).remove(digest, current);
+            return null;
+        }
+        return current;
+    }
+    
+    private boolean isTombstoned(TokenDigest digest) {
+        return dirtySessions.get(digest) == REMOVED || recentlyRevoked.getIfPresent(digest) != null;
+    }
+    
+    private ConcurrentHashMap<TokenDigest, Session> shard(TokenDigest digest) {
+        return shards[(int) digest.low() & shardMask];
+    }
+    
+    private long sessionCount() {
+        long count = 0;
+        for (ConcurrentHashMap<TokenDigest, Session> shard : shards) {
+            count += shard.size();
+        }
+        return count;
+    }
+    
+    private enum WriteOutcome {
+        WRITTEN, DROPPED, RETRY
+    }
+    
+    private static String hexOf(TokenDigest digest) {
+        return String.format("%016x%016x", digest.high(), digest.low());
+    }
+    
+    private static TokenDigest digestOf(String hex) {
+        return new TokenDigest(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+    
+    /**
+     * Immutable session state; replaced, never mutated, so readers need no locking.
+     */
+    private record Session(
+        Kind kind,
+        Long userId,
+        String email,
+        User.Role role,
+        boolean emailVerified,
+        int tokenEpoch,
+        long issuedAt,
+        long expiresAt
+    ) {
+        
+        static Session from(ResultSet rs) throws SQLException {
+            return new Session(
+                Kind.valueOf(rs.getString("kind")),
+                rs.getLong("user_id"),
+                rs.getString("email"),
+                User.Role.valueOf(rs.getString("role")),
+                rs.getBoolean("email_verified"),
+                rs.getInt("token_epoch"),
+                rs.getTimestamp("issued_at").getTime(),
+                rs.getTimestamp("expiry_date").getTime()
+            );
+        }
+        
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+        
+        VerifiedToken toVerifiedToken() {
+            return new VerifiedToken(email, issuedAt, expiresAt, null, userId, role.name(), emailVerified, tokenEpoch, null, null);
+        }
+        
+        Object[] toRow(String tokenHash) {
+            return new Object[] {
+                tokenHash,
+                kind.name(),
+                userId,
+                email,
+                role.name(),
+                emailVerified,
+                tokenEpoch,
+                new Timestamp(issuedAt),
+                new Timestamp(expiresAt)
+            };
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.lurniq.service;
+
+import com.lurniq.exception.ServiceOverloadedException;
+import com.lurniq.exception.StacklessCompletionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing work (login verification, registration) on the bounded
+ * {@code passwordHashingExecutor} instead of the request thread. When the queue is full the work is
+ * refused up front with a {@link ServiceOverloadedException}, which the API answers with 503 and Retry-After.
+ * Queue wait and hashing duration are recorded per operation as histograms.
+ */
+@Service
+public class PasswordHashingService {
+    
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final long retryAfterSeconds;
+    private final Counter rejected;
+    private final Map<String, Timer> queueWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> durationTimers = new ConcurrentHashMap<>();
+    
+    public PasswordHashingService(
+            @Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+            MeterRegistry meterRegistry,
+            @Value("${auth.password-hashing.retry-after-seconds:1}") long retryAfterSeconds
+    ) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejected = Counter.builder("auth.password.hashing.rejected")
+                .description("Hashing requests refused because the queue was full")
+                .register(meterRegistry);
+        
+        Gauge.builder("auth.password.hashing.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Hashing requests waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Hashing threads currently busy")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Run the task on the hashing executor. The logging context of the caller is carried over so trace ids
+     * in logs and responses stay the same. Throws {@link ServiceOverloadedException} if the queue is full.
+     * Callers build the final response inside the task rather than in dependent stages, and a failure
+     * completes the future as a {@link StacklessCompletionException}, so no stage adds a stack trace to it.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        Timer queueWait = queueWaitTimers.computeIfAbsent(operation, op -> timer("auth.password.hashing.queue.wait",
+                "Time hashing requests wait for a thread", op));
+        Timer duration = durationTimers.computeIfAbsent(operation, op -> timer("auth.password.hashing.duration",
+                "Time spent running hashing requests", op));
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        long submittedAt = System.nanoTime();
+        
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                // Completed while the context is still set, so dependent stages log and respond with the same trace id
+                try {
+                    T value = task.get();
+                    duration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    result.complete(value);
+                } catch (Throwable e) {
+                    duration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    result.completeExceptionally(StacklessCompletionException.wrap(e));
+                } finally {
+                    MDC.clear();
+                }
+            });
+            return result;
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Password hashing queue is full", retryAfterSeconds);
+        }
+    }
+    
+    /**
+     * Share of the executor's threads and queue slots in use, from 0 (idle) to 1 (new work is rejected).
+     */
+    public double saturation() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        int queued = pool.getQueue().size();
+        int capacity = pool.getMaximumPoolSize() + queued + pool.getQueue().remainingCapacity();
+        return Math.min(1.0, (double) (pool.getActiveCount() + queued) / capacity);
+    }
+    
+    private Timer timer(String name, String description, String operation) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.exception.ServiceOverloadedException;
+import com.lurniq.repository.UserRepository;
+import com.lurniq.util.PasswordHashPolicy;
+import com.lurniq.util.PasswordHashPolicy.HashParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings stored password hashes in line with the current {@link PasswordHashPolicy}. The plaintext is
+ * only available at login, so a successful login whose hash is outdated (or costs more than the latency
+ * budget allows) queues a rehash on the hashing executor; the response does not wait for it. The update
+ * only applies if the stored hash is still the one that was checked, so a concurrent password change wins.
+ * The spread of schemes and costs across all users is published as the {@code auth.password.hashes} gauge.
+ */
+@Service
+@Slf4j
+public class PasswordRehashService {
+    
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final PasswordHashPolicy policy;
+    private final CacheManager cacheManager;
+    private final Counter rehashed;
+    private final Counter skipped;
+    private final MultiGauge hashDistribution;
+    
+    public PasswordRehashService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
+            PasswordHashPolicy policy,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.policy = policy;
+        this.cacheManager = cacheManager;
+        this.rehashed = Counter.builder("auth.password.rehashed")
+                .description("Stored password hashes upgraded to the current policy at login")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("auth.password.rehash.skipped")
+                .description("Rehashes dropped because the hashing queue was full")
+                .register(meterRegistry);
+        this.hashDistribution = MultiGauge.builder("auth.password.hashes")
+                .description("Users by stored password hash scheme and cost")
+                .register(meterRegistry);
+        
+        Gauge.builder("auth.password.hashing.cost", policy, PasswordHashPolicy::getCost)
+                .description("BCrypt cost used for new hashes")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.expected.millis", policy, PasswordHashPolicy::getExpectedMillis)
+                .description("Expected time to hash one password at the current cost")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Queue a rehash if the user's stored hash is outside the current policy. Call only after the password
+     * has been verified. Best effort: when the hashing queue is full the rehash waits for a later login.
+     */
+    public void rehashIfNeeded(User user, String rawPassword) {
+        String current = user.getPassword();
+        if (current == null || !passwordEncoder.upgradeEncoding(current)) {
+            return;
+        }
+        
+        try {
+            passwordHashingService.submit("rehash", () -> rehash(user, current, rawPassword));
+        } catch (ServiceOverloadedException e) {
+            skipped.increment();
+        }
+    }
+    
+    private boolean rehash(User user, String current, String rawPassword) {
+        String upgraded = passwordEncoder.encode(rawPassword);
+        if (userRepository.updatePasswordIfUnchanged(user.getId(), current, upgraded, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        
+        // Login reads the repository directly; the cached copy is the principal that the JWT and forward-auth
+        // filters (for tokens without identity claims) and /api/user/profile load, and it still holds the old hash
+        Cache userDetails = cacheManager.getCache("userDetails");
+        if (userDetails != null) {
+            userDetails.evict(user.getEmail());
+        }
+        rehashed.increment();
+        log.debug("Password hash upgraded for user ID: {}", user.getId());
+        return true;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${auth.password-hashing.stats-interval-ms:600000}",
+            initialDelayString = "${auth.password-hashing.stats-interval-ms:600000}")
+    public void refreshHashDistribution() {
+        try {
+            Map<Tags, Long> counts = new HashMap<>();
+            for (Object[] row : userRepository.countPasswordHashesByPrefix()) {
+                HashParameters parameters = policy.describe((String) row[0]);
+                Tags tags = Tags.of(
+                        "scheme", parameters.scheme(),
+                        "cost", parameters.cost() < 0 ? "unknown" : String.valueOf(parameters.cost()),
+                        "status", parameters.needsRehash() ? "outdated" : "current");
+                counts.merge(tags, ((Number) row[1]).longValue(), Long::sum);
+            }
+            
+            List<MultiGauge.Row<?>> rows = new ArrayList<>();
+            counts.forEach((tags, count) -> rows.add(MultiGauge.Row.of(tags, count)));
+            hashDistribution.register(rows, true);
+        } catch (Exception e) {
+            log.warn("Failed to refresh password hash distribution: {}", e.getMessage());
+        }
+    }
+}
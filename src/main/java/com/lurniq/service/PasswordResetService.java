@@ -26,6 +26,9 @@ public class PasswordResetService {
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final TokenEpochService tokenEpochService;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final BreachedPasswordService breachedPasswordService;
     
     @Value("${email.password-reset.expiration-hours:1}")
     private int expirationHours;
@@ -41,7 +44,8 @@ public class PasswordResetService {
     @Transactional
     public boolean sendPasswordResetEmail(String email) {
         try {
-            Optional<User> userOpt = userRepository.findByEmail(email);
+            // Most requests for unknown emails are answered by the filter without a query
+            Optional<User> userOpt = registeredEmailFilter.find(email, userRepository::findByEmail);
             
             if (userOpt.isEmpty()) {
                 log.warn("Password reset requested for non-existent email: {}", email);
@@ -143,6 +147,9 @@ public class PasswordResetService {
             user.setPassword(passwordEncoder.encode(newPassword));
             userRepository.save(user);
             
+            // Invalidate every JWT and refresh token issued before the reset
+            tokenEpochService.bump(user.getId());
+            
             // Mark token as used
             resetToken.setUsed(true);
             tokenRepository.save(resetToken);
@@ -236,4 +243,11 @@ public class PasswordResetService {
         
         return hasUpper && hasLower && hasDigit && hasSpecial;
     }
+    
+    /**
+     * Check the password against the breached password list
+     */
+    public boolean isPasswordBreached(String password) {
+        return breachedPasswordService.isBreached(password);
+    }
 }
@@ -0,0 +1,366 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.dto.AuthResponse;
+import com.lurniq.dto.UserProfileResponse;
+import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
+import com.lurniq.repository.RefreshTokenFamilyRepository;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.JwtUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * One-time refresh token rotation. Every login starts a token family; each refresh replaces the
+ * family's current token and presenting any older token revokes the whole family. A retry with the
+ * just-replaced token inside a short grace window gets the same token pair back instead of a new one.
+ * <p>
+ * The database row is the only authority on which token is current. A rotation is a conditional
+ * {@code UPDATE ... WHERE current_token_id = ?}, so when several instances serve at once (a revision
+ * rollout) exactly one exchange of a token wins and reuse is detected whichever instance sees it. New
+ * families are written in batches by a background flush, as a fresh login's token is not exchanged for a
+ * while; a family still waiting for the flush is written before its first rotation. The pair handed out
+ * by the last rotation stays in memory for the grace window, so a retry reaching the same instance is
+ * answered without signing or a query; one reaching another instance is refused without revoking.
+ * <p>
+ * Refresh tokens issued before families existed carry no family id. They are accepted only when issued
+ * before {@code jwt.refresh.legacy-issued-before}, and each is exchanged into a family whose id is derived
+ * from the token itself, so presenting it a second time is detected as reuse like any other old token.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+    
+    private static final String INSERT_FAMILY_SQL = """
+            INSERT INTO refresh_token_families
+                (family_id, user_id, current_token_id, previous_token_id, rotated_at, revoked, expiry_date, created_at)
+            VALUES (?, ?, ?, NULL, NULL, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+    
+    private static final String ROTATE_SQL = """
+            UPDATE refresh_token_families
+            SET previous_token_id = current_token_id, current_token_id = ?, rotated_at = ?, expiry_date = ?
+            WHERE family_id = ? AND current_token_id = ? AND revoked = false
+            """;
+    
+    private static final String FIND_FAMILY_SQL =
+            "SELECT previous_token_id, rotated_at, revoked FROM refresh_token_families WHERE family_id = ?";
+    
+    private static final String REVOKE_SQL = "UPDATE refresh_token_families SET revoked = true WHERE family_id = ?";
+    
+    private static final int LOCK_STRIPES = 64;
+    
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtUtil jwtUtil;
+    private final long expiration;
+    private final long refreshExpiration;
+    private final long legacyIssuedBeforeMillis;
+    private final long reuseGraceMillis;
+    // Last pair handed out per family, kept for the grace window only
+    private final Cache<String, Rotation> lastRotations;
+    private final Counter droppedFamilies;
+    // Families created by logins since the last flush, as insert rows
+    private final Map<String, Object[]> pendingFamilies = new ConcurrentHashMap<>();
+    // Serialises rotations of one family on this instance, so a concurrent retry finds the cached pair
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    public RefreshTokenService(
+            RefreshTokenFamilyRepository familyRepository,
+            JdbcTemplate jdbcTemplate,
+            JwtUtil jwtUtil,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.expiration}") long expiration,
+            @Value("${jwt.refresh-expiration}") long refreshExpiration,
+            @Value("${jwt.refresh.reuse-grace-ms:10000}") long reuseGraceMillis,
+            @Value("${jwt.refresh.maximum-families:100000}") long maximumFamilies,
+            @Value("${jwt.refresh.legacy-issued-before:}") String legacyIssuedBefore
+    ) {
+        this.familyRepository = familyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jwtUtil = jwtUtil;
+        this.expiration = expiration;
+        this.refreshExpiration = refreshExpiration;
+        this.reuseGraceMillis = reuseGraceMillis;
+        // Unset means no refresh token without a family is accepted
+        this.legacyIssuedBeforeMillis = legacyIssuedBefore.isBlank()
+                ? Long.MIN_VALUE : Instant.parse(legacyIssuedBefore).toEpochMilli();
+        this.lastRotations = Caffeine.newBuilder()
+                .maximumSize(maximumFamilies)
+                .expireAfterWrite(Duration.ofMillis(Math.max(reuseGraceMillis, 1)))
+                .build();
+        this.droppedFamilies = Counter.builder("jwt.refresh.families.dropped")
+                .description("New refresh token families discarded because the database refused the row")
+                .register(meterRegistry);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Start a new family for a fresh login and return its first refresh token.
+     */
+    public String issue(User user) {
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        pendingFamilies.put(familyId, familyRow(familyId, user.getId(), tokenId, false, now + refreshExpiration, now));
+        return jwtUtil.generateRefreshToken(user, familyId, tokenId);
+    }
+    
+    /**
+     * Exchange a verified refresh token for a new token pair. The user is only loaded when a new
+     * pair is actually signed; retries inside the grace window are answered from memory.
+     */
+    public AuthResponse rotate(VerifiedToken refreshToken, Supplier<User> userLoader) {
+        String familyId = refreshToken.familyId();
+        String presentedTokenId = refreshToken.id();
+        boolean legacy = familyId == null;
+        if (legacy) {
+            if (!isLegacyRefreshToken(refreshToken)) {
+                throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+            }
+            // The family and the token share the derived id; once rotated, the legacy token is the previous one
+            familyId = legacyFamilyId(refreshToken);
+            presentedTokenId = familyId;
+        } else if (presentedTokenId == null) {
+            throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        
+        synchronized (lock(familyId)) {
+            long now = System.currentTimeMillis();
+            Rotation last = lastRotations.getIfPresent(familyId);
+            if (last != null && presentedTokenId.equals(last.previousTokenId) && now - last.rotatedAt <= reuseGraceMillis) {
+                return last.response;
+            }
+            
+            writePending(familyId);
+            String tokenId = UUID.randomUUID().toString();
+            if (!exchange(familyId, presentedTokenId, tokenId, now)) {
+                FamilyRow row = findFamily(familyId);
+                if (row != null || !legacy) {
+                    throw reject(familyId, row, presentedTokenId, now);
+                }
+                // First exchange of a legacy token: its family starts with that token as the current one
+                User user = userLoader.get();
+                userLoader = () -> user;
+                jdbcTemplate.update(INSERT_FAMILY_SQL, familyRow(familyId, user.getId(), presentedTokenId, false,
+                        refreshToken.expiresAtMillis(), now));
+                if (!exchange(familyId, presentedTokenId, tokenId, now)) {
+                    throw reject(familyId, findFamily(familyId), presentedTokenId, now);
+                }
+            }
+            
+            User user = userLoader.get();
+            AuthResponse response = buildResponse(user, jwtUtil.generateRefreshToken(user, familyId, tokenId));
+            lastRotations.put(familyId, new Rotation(presentedTokenId, response, now));
+            return response;
+        }
+    }
+    
+    /**
+     * Revoke the family of a verified refresh token, so neither it nor any later token of the session can be
+     * exchanged again. A legacy token's family is recorded as revoked before its first exchange can create it.
+     */
+    public void revokeFamily(VerifiedToken refreshToken, Long userId) {
+        String familyId = refreshToken.familyId();
+        boolean legacy = familyId == null;
+        if (legacy) {
+            if (!isLegacyRefreshToken(refreshToken)) {
+                throw AuthFailure.INVALID_REFRESH_TOKEN.exception();
+            }
+            familyId = legacyFamilyId(refreshToken);
+        }
+        
+        synchronized (lock(familyId)) {
+            writePending(familyId);
+            lastRotations.invalidate(familyId);
+            if (jdbcTemplate.update(REVOKE_SQL, familyId) == 0 && legacy) {
+                long now = System.currentTimeMillis();
+                jdbcTemplate.update(INSERT_FAMILY_SQL, familyRow(familyId, userId, familyId, true,
+                        refreshToken.expiresAtMillis(), now));
+                // Lost a race with the first exchange, which inserted the family unrevoked
+                jdbcTemplate.update(REVOKE_SQL, familyId);
+            }
+        }
+        log.info("Revoked refresh token family {} on logout", familyId);
+    }
+    
+    /**
+     * Write families created since the last run in a single JDBC batch. If the batch fails the rows are
+     * retried one by one, so a row the database will never accept is dropped instead of holding back the rest.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.flush-interval-ms:1000}")
+    public void flushFamilies() {
+        if (pendingFamilies.isEmpty()) {
+            return;
+        }
+        
+        List<String> familyIds = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (String familyId : pendingFamilies.keySet()) {
+            Object[] row = pendingFamilies.remove(familyId);
+            if (row != null) {
+                familyIds.add(familyId);
+                rows.add(row);
+            }
+        }
+        
+        try {
+            jdbcTemplate.batchUpdate(INSERT_FAMILY_SQL, rows);
+            log.debug("Persisted {} refresh token families", rows.size());
+        } catch (Exception e) {
+            log.warn("Batch write of {} refresh token families failed, retrying one at a time: {}", rows.size(), e.getMessage());
+            flushIndividually(familyIds, rows);
+        }
+    }
+    
+    private void flushIndividually(List<String> familyIds, List<Object[]> rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                jdbcTemplate.update(INSERT_FAMILY_SQL, rows.get(i));
+            } catch (DataIntegrityViolationException e) {
+                // The row itself is refused, e.g. its user has been deleted; retrying can never succeed
+                droppedFamilies.increment();
+                log.error("Dropped refresh token family {} the database refuses: {}", familyIds.get(i), e.getMessage());
+            } catch (Exception e) {
+                // Not the row's fault; keep it and the rest for the next flush
+                for (int j = i; j < rows.size(); j++) {
+                    pendingFamilies.putIfAbsent(familyIds.get(j), rows.get(j));
+                }
+                log.error("Failed to persist refresh token families: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushFamilies();
+    }
+    
+    /**
+     * Clean up expired families (runs every hour)
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    @Transactional
+    public void cleanupExpiredFamilies() {
+        try {
+            int deletedCount = familyRepository.deleteExpiredFamilies(LocalDateTime.now());
+            if (deletedCount > 0) {
+                log.info("Cleaned up {} expired refresh token families", deletedCount);
+            }
+        } catch (Exception e) {
+            log.error("Failed to clean up expired refresh token families: {}", e.getMessage());
+        }
+    }
+    
+    // Moves the family from presented to new token only if presented is still current and not revoked
+    private boolean exchange(String familyId, String presentedTokenId, String tokenId, long now) {
+        return jdbcTemplate.update(ROTATE_SQL, tokenId, new Timestamp(now), new Timestamp(now + refreshExpiration),
+                familyId, presentedTokenId) == 1;
+    }
+    
+    private RuntimeException reject(String familyId, FamilyRow row, String presentedTokenId, long now) {
+        if (row == null) {
+            return AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        if (row.revoked) {
+            return AuthFailure.REFRESH_TOKEN_REVOKED.exception();
+        }
+        if (presentedTokenId.equals(row.previousTokenId) && now - row.rotatedAt <= reuseGraceMillis) {
+            // A retry of a rotation made elsewhere, or still in flight here; its pair is not held on this
+            // instance, and the client may be legitimate, so refuse without revoking the family
+            return AuthFailure.INVALID_REFRESH_TOKEN.exception();
+        }
+        
+        jdbcTemplate.update(REVOKE_SQL, familyId);
+        lastRotations.invalidate(familyId);
+        log.warn("Refresh token reuse detected, revoked token family {}", familyId);
+        return AuthFailure.REFRESH_TOKEN_REUSED.exception();
+    }
+    
+    private FamilyRow findFamily(String familyId) {
+        List<FamilyRow> rows = jdbcTemplate.query(FIND_FAMILY_SQL, (rs, rowNum) -> {
+            Timestamp rotatedAt = rs.getTimestamp("rotated_at");
+            return new FamilyRow(rs.getString("previous_token_id"), rotatedAt != null ? rotatedAt.getTime() : 0L,
+                    rs.getBoolean("revoked"));
+        }, familyId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    // A login's family must be in the table before the conditional update can find it
+    private void writePending(String familyId) {
+        Object[] row = pendingFamilies.remove(familyId);
+        if (row == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_FAMILY_SQL, row);
+        } catch (RuntimeException e) {
+            pendingFamilies.putIfAbsent(familyId, row);
+            throw e;
+        }
+    }
+    
+    private Object lock(String familyId) {
+        return locks[(familyId.hashCode() & 0x7FFFFFFF) % LOCK_STRIPES];
+    }
+    
+    /**
+     * Pre-family refresh tokens had no marker of their own. Access tokens never carried a family id either,
+     * but they live no longer than {@code jwt.expiration} and, since identity claims were added, carry a role.
+     */
+    private boolean isLegacyRefreshToken(VerifiedToken token) {
+        return token.role() == null
+                && token.expiresAtMillis() - token.issuedAtMillis() > expiration
+                && token.issuedAtMillis() < legacyIssuedBeforeMillis;
+    }
+    
+    // Early tokens have no jti; subject and issue time identify them closely enough to allow a single exchange
+    private static String legacyFamilyId(VerifiedToken token) {
+        String key = token.id() != null ? token.id() : token.subject() + ":" + token.issuedAtMillis();
+        return UUID.nameUUIDFromBytes(("legacy-refresh:" + key).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    private static Object[] familyRow(String familyId, Long userId, String tokenId, boolean revoked, long expiresAt, long now) {
+        return new Object[] {familyId, userId, tokenId, revoked, new Timestamp(expiresAt), new Timestamp(now)};
+    }
+    
+    private AuthResponse buildResponse(User user, String refreshToken) {
+        return AuthResponse.builder()
+                .accessToken(jwtUtil.generateToken(user))
+                .refreshToken(refreshToken)
+                .user(UserProfileResponse.fromUser(user))
+                .build();
+    }
+    
+    private record Rotation(String previousTokenId, AuthResponse response, long rotatedAt) {
+    }
+    
+    private record FamilyRow(String previousTokenId, long rotatedAt, boolean revoked) {
+    }
+}
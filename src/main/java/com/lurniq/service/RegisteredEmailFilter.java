@@ -0,0 +1,165 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.repository.UserRepository;
+import com.lurniq.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of every registered email, so lookups for addresses that were never registered
+ * (enumeration bots, typos in forgot-password and resend-activation) are answered without a database
+ * round trip. Built at startup by streaming the users table and updated whenever a user is created;
+ * users created on other instances are picked up by a periodic incremental sync on {@code created_at}.
+ * Until the first build completes every email counts as possibly registered.
+ * <p>
+ * Outcomes of guarded lookups are counted as {@code auth.email.filter.lookups} by result; the share of
+ * {@code false_positive} among database lookups is the observed false positive rate. The filter is rebuilt
+ * larger once the users table outgrows it.
+ */
+@Service
+@Slf4j
+public class RegisteredEmailFilter {
+    
+    private final UserRepository userRepository;
+    private final long expectedUsers;
+    private final double falsePositiveProbability;
+    private final Counter definiteMisses;
+    private final Counter falsePositives;
+    private final Counter hits;
+    
+    private volatile BloomFilter filter;
+    // Set while a rebuild streams the table; new emails go into both filters so none are lost in the swap
+    private volatile BloomFilter rebuilding;
+    private volatile boolean ready;
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+    
+    public RegisteredEmailFilter(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${auth.email-filter.expected-users:1000000}") long expectedUsers,
+            @Value("${auth.email-filter.false-positive-probability:0.01}") double falsePositiveProbability
+    ) {
+        this.userRepository = userRepository;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.filter = BloomFilter.create(expectedUsers, falsePositiveProbability);
+        this.definiteMisses = lookups(meterRegistry, "definite_miss");
+        this.falsePositives = lookups(meterRegistry, "false_positive");
+        this.hits = lookups(meterRegistry, "hit");
+        
+        Gauge.builder("auth.email.filter.expected.fpp", this, f -> f.filter.expectedFalsePositiveProbability())
+                .description("False positive probability expected from the filter's current fill")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.filter.memory", this, f -> f.filter.memoryBytes())
+                .description("Memory used by the registered email filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.filter.entries", this, f -> f.filter.approximateInsertions())
+                .description("Emails added to the registered email filter")
+                .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        rebuild();
+        lastSync = syncStart;
+    }
+    
+    /**
+     * Add users created on other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${auth.email-filter.sync-interval-ms:5000}")
+    public void syncCreated() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        // Overlap the window slightly so a user committed during the previous sync is not missed
+        userRepository.findEmailsCreatedSince(lastSync.minusSeconds(5)).forEach(this::add);
+        lastSync = syncStart;
+    }
+    
+    /**
+     * Rebuild with room for twice the current users once the expected false positive rate has doubled.
+     */
+    @Scheduled(fixedDelayString = "${auth.email-filter.check-interval-ms:3600000}",
+            initialDelayString = "${auth.email-filter.check-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void resizeIfNeeded() {
+        if (filter.expectedFalsePositiveProbability() > 2 * falsePositiveProbability) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * False if the email is certainly not registered.
+     */
+    public boolean mightBeRegistered(String email) {
+        return !ready || email == null || filter.mightContain(email);
+    }
+    
+    /**
+     * Look up a user by email, skipping the loader when the filter rules the email out.
+     */
+    public Optional<User> find(String email, Function<String, Optional<User>> loader) {
+        if (!mightBeRegistered(email)) {
+            definiteMisses.increment();
+            return Optional.empty();
+        }
+        Optional<User> user = loader.apply(email);
+        if (ready) {
+            (user.isPresent() ? hits : falsePositives).increment();
+        }
+        return user;
+    }
+    
+    /**
+     * Record a newly created user. Call after the insert has committed.
+     */
+    public void add(String email) {
+        // Rebuild target first: if none is set, any later rebuild streams a table that already has this email
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(email);
+        }
+        filter.put(email);
+    }
+    
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        long users = userRepository.count();
+        BloomFilter rebuilt = BloomFilter.create(Math.max(expectedUsers, users * 2), falsePositiveProbability);
+        rebuilding = rebuilt;
+        try (Stream<String> emails = userRepository.streamAllEmails()) {
+            emails.forEach(rebuilt::put);
+            filter = rebuilt;
+            ready = true;
+        } finally {
+            rebuilding = null;
+        }
+        
+        log.info("Registered email filter built with {} emails in {} ms ({} KiB, expected false positive rate {})",
+                rebuilt.approximateInsertions(), System.currentTimeMillis() - started,
+                rebuilt.memoryBytes() / 1024, String.format("%.4f", rebuilt.expectedFalsePositiveProbability()));
+    }
+    
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.email.filter.lookups")
+                .description("Email lookups guarded by the registered email filter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
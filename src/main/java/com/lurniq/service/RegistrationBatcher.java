@@ -0,0 +1,252 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.exception.EmailAlreadyRegisteredException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for registration bursts. Registrations arriving within a few milliseconds of each other
+ * are written with one multi-row {@code INSERT ... ON CONFLICT (email) DO NOTHING RETURNING id, email},
+ * so a burst costs one statement and one transaction commit instead of one per user. Each caller's future
+ * completes with the new row id, or with {@link EmailAlreadyRegisteredException} when the email was
+ * already taken, including by an earlier registration in the same batch.
+ * <p>
+ * Hibernate cannot batch inserts into an identity column, so the batch goes through JDBC; the ids still
+ * come from the column's own sequence. Futures complete on the general task executor with the caller's
+ * logging context, keeping follow-up work (activation email) off the single batching thread.
+ */
+@Service
+@Slf4j
+public class RegistrationBatcher {
+    
+    private static final String INSERT_PREFIX = """
+            INSERT INTO users
+                (email, password, first_name, last_name, role, provider, email_verified, token_epoch, created_at, updated_at)
+            VALUES\s""";
+    private static final String ROW = "(?, ?, ?, ?, 'USER', 'LOCAL', false, 0, ?, ?)";
+    private static final String INSERT_SUFFIX = " ON CONFLICT (email) DO NOTHING RETURNING id, email";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor completionExecutor;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingRegistration> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+    // Guards the running check in insert against stop, so nothing is queued after the final drain
+    private final Object lifecycle = new Object();
+    
+    private volatile boolean running;
+    private Thread worker;
+    
+    public RegistrationBatcher(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("generalTaskExecutor") Executor completionExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${auth.registration.group-commit.enabled:false}") boolean enabled,
+            @Value("${auth.registration.group-commit.max-wait-ms:5}") long maxWaitMillis,
+            @Value("${auth.registration.group-commit.max-batch-size:200}") int maxBatchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.completionExecutor = completionExecutor;
+        this.enabled = enabled;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("auth.registration.batch.size")
+                .description("Registrations written per group commit")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("auth.registration.batch.flush")
+                .description("Time to write one group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "registration-batcher");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Registration group commit enabled (max wait {} ms, max batch {})",
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos), maxBatchSize);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        synchronized (lifecycle) {
+            running = false;
+        }
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        // Anything still queued is written before shutdown completes; insert refuses new work from here on
+        List<PendingRegistration> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+    
+    /**
+     * Queue a new local user for the next group commit. The user needs email, hashed password and names;
+     * role, provider and verification state are always those of a fresh registration.
+     */
+    public CompletableFuture<Long> insert(User user) {
+        PendingRegistration pending = new PendingRegistration(user, MDC.getCopyOfContextMap(), new CompletableFuture<>());
+        synchronized (lifecycle) {
+            if (!running) {
+                throw new IllegalStateException("Registration group commit is not running");
+            }
+            queue.add(pending);
+        }
+        return pending.result;
+    }
+    
+    private void run() {
+        List<PendingRegistration> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                // Collect whatever else arrives until the batch is full or the oldest entry has waited long enough
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || queue.drainTo(batch, maxBatchSize - batch.size()) == 0
+                            && !pollInto(batch, remaining)) {
+                        break;
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private boolean pollInto(List<PendingRegistration> batch, long timeoutNanos) throws InterruptedException {
+        PendingRegistration next = queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        if (next == null) {
+            return false;
+        }
+        batch.add(next);
+        return true;
+    }
+    
+    private void flush(List<PendingRegistration> batch) {
+        // The first registration for an email goes into the statement; repeats in the same batch are conflicts
+        Map<String, PendingRegistration> rows = new HashMap<>();
+        List<PendingRegistration> duplicates = new ArrayList<>();
+        for (PendingRegistration pending : batch) {
+            if (rows.putIfAbsent(pending.user.getEmail(), pending) != null) {
+                duplicates.add(pending);
+            }
+        }
+        
+        List<PendingRegistration> ordered = new ArrayList<>(rows.values());
+        Map<String, Long> ids = new HashMap<>();
+        try {
+            flushTimer.record(() -> jdbcTemplate.query(insertSql(ordered.size()), ps -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                int index = 1;
+                for (PendingRegistration pending : ordered) {
+                    User user = pending.user;
+                    ps.setString(index++, user.getEmail());
+                    ps.setString(index++, user.getPassword());
+                    ps.setString(index++, user.getFirstName());
+                    ps.setString(index++, user.getLastName());
+                    ps.setTimestamp(index++, now);
+                    ps.setTimestamp(index++, now);
+                }
+            }, rs -> {
+                ids.put(rs.getString(2), rs.getLong(1));
+            }));
+            batchSizes.record(batch.size());
+        } catch (Exception e) {
+            log.error("Failed to write {} registrations: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> complete(pending, null, e));
+            return;
+        }
+        
+        for (PendingRegistration pending : ordered) {
+            Long id = ids.get(pending.user.getEmail());
+            complete(pending, id, id == null ? new EmailAlreadyRegisteredException() : null);
+        }
+        duplicates.forEach(pending -> complete(pending, null, new EmailAlreadyRegisteredException()));
+    }
+    
+    private void complete(PendingRegistration pending, Long id, Throwable failure) {
+        Runnable completion = () -> {
+            if (pending.context != null) {
+                MDC.setContextMap(pending.context);
+            }
+            try {
+                if (failure != null) {
+                    pending.result.completeExceptionally(failure);
+                } else {
+                    pending.result.complete(id);
+                }
+            } finally {
+                MDC.clear();
+            }
+        };
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // The executor may already be shut down when the final drain runs; never leave a caller waiting
+            completion.run();
+        }
+    }
+    
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW.length() + 2) + INSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+        }
+        return sql.append(INSERT_SUFFIX).toString();
+    }
+    
+    private record PendingRegistration(User user, Map<String, String> context, CompletableFuture<Long> result) {
+    }
+}
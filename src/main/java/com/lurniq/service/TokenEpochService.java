@@ -0,0 +1,119 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.entity.User;
+import com.lurniq.repository.UserRepository;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.LongIntMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user token generation counter. Every token carries the epoch that was current when it was
+ * issued; bumping the epoch (password reset, "log out everywhere") invalidates all earlier tokens.
+ * Epochs are persisted on the user row and mirrored in a primitive in-memory map, so the per-request
+ * check is a single map read. Other instances pick up bumps through a periodic incremental sync.
+ * Tokens without a user id claim (issued before it existed) are checked against the user their subject
+ * resolves to, so they are invalidated by a bump like any other token.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenEpochService {
+    
+    private final UserRepository userRepository;
+    private final LongIntMap epochs = new LongIntMap();
+    // Only consulted for tokens without a uid claim; unknown emails are not cached and fail the check
+    private final Cache<String, Long> userIdsBySubject = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadEpochs() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        epochs.putAllIfGreater(toMap(userRepository.findAllTokenEpochs()));
+        lastSync = syncStart;
+        log.info("Loaded token epochs for {} users", epochs.size());
+    }
+    
+    /**
+     * Pick up epochs bumped on other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${jwt.epoch.sync-interval-ms:30000}")
+    public void syncEpochs() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        // Overlap the window slightly so a bump committed during the previous sync is not missed
+        epochs.putAllIfGreater(toMap(userRepository.findTokenEpochsUpdatedSince(lastSync.minusSeconds(5))));
+        lastSync = syncStart;
+    }
+    
+    /**
+     * Epoch to embed in a token issued now: the larger of the loaded user row's and the one known here, so a bump
+     * on another instance that this one has not synced yet is not undone by tokens it issues meanwhile.
+     */
+    public int issueEpoch(User user) {
+        Long userId = user.getId();
+        int rowEpoch = user.getTokenEpoch() != null ? user.getTokenEpoch() : 0;
+        if (userId == null) {
+            return rowEpoch;
+        }
+        // Learn the bump from the row now rather than at the next sync
+        epochs.putIfGreater(userId, rowEpoch);
+        return epochs.get(userId, 0);
+    }
+    
+    /**
+     * True if a token issued at the given epoch is still valid for the user. A missing user id never is.
+     */
+    public boolean isCurrent(Long userId, int tokenEpoch) {
+        return userId != null && tokenEpoch >= epochs.get(userId, 0);
+    }
+    
+    /**
+     * True if the token's epoch is still current for its user, resolving the user from the subject when
+     * the token has no user id claim.
+     */
+    public boolean isCurrent(VerifiedToken token) {
+        Long userId = token.userId();
+        if (userId == null && token.subject() != null) {
+            userId = userIdsBySubject.get(token.subject(), subject -> userRepository.findIdByEmail(subject).orElse(null));
+        }
+        return isCurrent(userId, token.tokenEpoch());
+    }
+    
+    /**
+     * Invalidate every token issued to the user so far.
+     */
+    @Transactional
+    public int bump(Long userId) {
+        userRepository.incrementTokenEpoch(userId, LocalDateTime.now());
+        int epoch = userRepository.findTokenEpochById(userId).orElse(0);
+        epochs.putIfGreater(userId, epoch);
+        log.info("Token epoch bumped to {} for user ID: {}", epoch, userId);
+        return epoch;
+    }
+    
+    // Applied with putAllIfGreater, so an epoch never moves backwards past a newer local bump
+    private static Map<Long, Integer> toMap(List<Object[]> rows) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package com.lurniq.service;
+
+import com.lurniq.dto.IntrospectionResponse;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtPrincipal;
+import com.lurniq.util.JwtRejection;
+import com.lurniq.util.RejectedTokenCache;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * RFC 7662 token introspection for backend services, using the same checks as request authentication.
+ * Results come from the verified and rejected token caches, so only unseen tokens cost a signature check;
+ * large batches are split across the introspection executor so those checks run on all cores.
+ */
+@Service
+@Slf4j
+public class TokenIntrospectionService {
+    
+    private final AccessTokenVerifier accessTokenVerifier;
+    private final RejectedTokenCache rejectedTokenCache;
+    private final Executor introspectionExecutor;
+    private final int parallelThreshold;
+    private final int parallelism;
+    
+    public TokenIntrospectionService(
+            AccessTokenVerifier accessTokenVerifier,
+            RejectedTokenCache rejectedTokenCache,
+            @Qualifier("introspectionTaskExecutor") Executor introspectionExecutor,
+            @Value("${jwt.introspection.parallel-threshold:16}") int parallelThreshold
+    ) {
+        this.accessTokenVerifier = accessTokenVerifier;
+        this.rejectedTokenCache = rejectedTokenCache;
+        this.introspectionExecutor = introspectionExecutor;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    
+    public IntrospectionResponse introspect(String token) {
+        if (token == null || token.isBlank()) {
+            return IntrospectionResponse.inactive();
+        }
+        
+        TokenDigest digest = TokenDigest.of(token);
+        if (rejectedTokenCache.getIfPresent(digest) != null) {
+            return IntrospectionResponse.inactive();
+        }
+        
+        try {
+            return toResponse(accessTokenVerifier.verify(digest, token));
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTokenCache.put(digest, JwtRejection.of(e));
+            return IntrospectionResponse.inactive();
+        }
+    }
+    
+    /**
+     * Introspect every token, preserving order. Small batches run on the calling thread.
+     */
+    public List<IntrospectionResponse> introspectAll(List<String> tokens) {
+        IntrospectionResponse[] results = new IntrospectionResponse[tokens.size()];
+        if (tokens.size() < parallelThreshold || parallelism == 1) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = introspect(tokens.get(i));
+            }
+            return Arrays.asList(results);
+        }
+        
+        // One contiguous slice per core keeps task overhead independent of the batch size
+        int chunks = Math.min(parallelism, results.length);
+        int chunkSize = (results.length + chunks - 1) / chunks;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(from + chunkSize, results.length);
+            futures[chunk] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    results[i] = introspect(tokens.get(i));
+                }
+            }, introspectionExecutor);
+        }
+        CompletableFuture.allOf(futures).join();
+        return Arrays.asList(results);
+    }
+    
+    private IntrospectionResponse toResponse(VerifiedToken token) {
+        IntrospectionResponse.IntrospectionResponseBuilder response = IntrospectionResponse.builder()
+                .active(true)
+                .sub(token.subject())
+                .username(token.subject())
+                .tokenType("access_token")
+                .exp(token.expiresAtMillis() / 1000)
+                .iat(token.issuedAtMillis() / 1000)
+                .jti(token.id())
+                .uid(token.userId());
+        
+        JwtPrincipal.from(token).ifPresent(principal -> response
+                .role(principal.role().name())
+                .emailVerified(principal.emailVerified()));
+        return response.build();
+    }
+}
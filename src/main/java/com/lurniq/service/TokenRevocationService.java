@@ -0,0 +1,172 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lurniq.entity.RevokedToken;
+import com.lurniq.repository.RevokedTokenRepository;
+import com.lurniq.util.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Denylist of revoked token ids ({@code jti}).
+ * A Bloom filter answers the common "not revoked" case without touching the exact set;
+ * the exact set is only consulted on a Bloom hit. Entries expire at the token's own expiry,
+ * and the Bloom filter is periodically rebuilt from the live entries so it never accumulates history.
+ * Every revocation is also written to the {@code revoked_tokens} table, which is loaded on startup
+ * and polled for revocations made on other instances, so a logout survives restarts and scale-to-zero.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+    
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Cache<String, Long> revokedTokens;
+    private final long expectedRevocations;
+    private final double falsePositiveProbability;
+    private volatile BloomFilter bloomFilter;
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+    
+    public TokenRevocationService(
+            RevokedTokenRepository revokedTokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.revocation.expected-revocations:100000}") long expectedRevocations,
+            @Value("${jwt.revocation.false-positive-probability:0.001}") double falsePositiveProbability
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.bloomFilter = BloomFilter.create(expectedRevocations, falsePositiveProbability);
+        // Deliberately unbounded by size: evicting a live revocation would silently un-revoke the token
+        this.revokedTokens = Caffeine.newBuilder()
+                .expireAfter(new RevocationExpiry())
+                .build();
+        
+        Gauge.builder("jwt.revocations.active", revokedTokens, Cache::estimatedSize)
+                .description("Revoked tokens that have not yet expired")
+                .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevocations() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        List<RevokedToken> active = revokedTokenRepository.findActive(syncStart);
+        active.forEach(this::remember);
+        lastSync = syncStart;
+        log.info("Loaded {} revoked token ids", active.size());
+    }
+    
+    /**
+     * Pick up revocations made on other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void syncRevocations() {
+        LocalDateTime syncStart = LocalDateTime.now();
+        // Overlap the window slightly so a revocation committed during the previous sync is not missed
+        revokedTokenRepository.findActiveRevokedSince(syncStart, lastSync.minusSeconds(5)).forEach(this::remember);
+        lastSync = syncStart;
+    }
+    
+    /**
+     * Revoke a token id until the token would have expired anyway. Takes effect here immediately and is
+     * persisted before returning, so a failed write surfaces to the caller instead of a logout that is lost on restart.
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        put(tokenId, expiresAtMillis);
+        revokedTokenRepository.save(RevokedToken.builder()
+                .tokenId(tokenId)
+                .expiryDate(toLocalDateTime(expiresAtMillis))
+                .revokedAt(LocalDateTime.now())
+                .build());
+    }
+    
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokens.getIfPresent(tokenId) != null;
+    }
+    
+    /**
+     * Rebuild the Bloom filter from the live revocations so expired ids stop producing false positives.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.bloom-rebuild-interval-ms:600000}")
+    public void rebuildBloomFilter() {
+        revokedTokens.cleanUp();
+        BloomFilter rebuilt = BloomFilter.create(
+                Math.max(expectedRevocations, revokedTokens.estimatedSize() * 2), falsePositiveProbability);
+        revokedTokens.asMap().keySet().forEach(rebuilt::put);
+        
+        BloomFilter previous = this.bloomFilter;
+        this.bloomFilter = rebuilt;
+        // Ids revoked while rebuilding may have landed only in the old filter
+        revokedTokens.asMap().keySet().forEach(rebuilt::put);
+        
+        log.debug("Rebuilt revocation Bloom filter with {} live entries (previous held {})",
+                revokedTokens.estimatedSize(), previous.approximateInsertions());
+    }
+    
+    /**
+     * Clean up rows of tokens that have expired (runs every hour)
+     */
+    @Scheduled(cron = "0 15 * * * ?")
+    @Transactional
+    public void cleanupExpiredRevocations() {
+        try {
+            int deletedCount = revokedTokenRepository.deleteExpiredTokens(LocalDateTime.now());
+            if (deletedCount > 0) {
+                log.info("Cleaned up {} expired token revocations", deletedCount);
+            }
+        } catch (Exception e) {
+            log.error("Failed to clean up expired token revocations: {}", e.getMessage());
+        }
+    }
+    
+    private void remember(RevokedToken revokedToken) {
+        put(revokedToken.getTokenId(), revokedToken.getExpiryDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+    
+    private void put(String tokenId, long expiresAtMillis) {
+        revokedTokens.put(tokenId, expiresAtMillis);
+        bloomFilter.put(tokenId);
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    
+    private static final class RevocationExpiry implements Expiry<String, Long> {
+        
+        @Override
+        public long expireAfterCreate(String key, Long expiresAtMillis, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, Long expiresAtMillis, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, expiresAtMillis, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String key, Long expiresAtMillis, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
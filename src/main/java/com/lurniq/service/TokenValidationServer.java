@@ -0,0 +1,243 @@
+package com.lurniq.service;
+
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.tokens.wire.ValidationProtocol;
+import com.lurniq.tokens.wire.ValidationResult;
+import com.lurniq.tokens.wire.ValidationStatus;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtRejection;
+import com.lurniq.util.RejectedTokenCache;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional internal listener that validates tokens over the binary protocol in {@link ValidationProtocol}.
+ * Meant for east-west callers that validate at high rates: one long-lived connection carries pipelined
+ * requests, and responses are flushed once per burst instead of once per token. Validation uses the
+ * same {@link AccessTokenVerifier} and negative cache as request authentication.
+ * Disabled by default and bound to loopback unless configured otherwise; there is no caller authentication.
+ */
+@Service
+@Slf4j
+public class TokenValidationServer implements SmartLifecycle {
+    
+    private final AccessTokenVerifier accessTokenVerifier;
+    private final RejectedTokenCache rejectedTokenCache;
+    private final boolean enabled;
+    private final String bindAddress;
+    private final int port;
+    private final int maxConnections;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    
+    private volatile ServerSocket serverSocket;
+    private volatile ExecutorService connectionExecutor;
+    private volatile boolean running;
+    
+    public TokenValidationServer(
+            AccessTokenVerifier accessTokenVerifier,
+            RejectedTokenCache rejectedTokenCache,
+            @Value("${jwt.validation-listener.enabled:false}") boolean enabled,
+            @Value("${jwt.validation-listener.bind-address:127.0.0.1}") String bindAddress,
+            @Value("${jwt.validation-listener.port:9091}") int port,
+            @Value("${jwt.validation-listener.max-connections:64}") int maxConnections
+    ) {
+        this.accessTokenVerifier = accessTokenVerifier;
+        this.rejectedTokenCache = rejectedTokenCache;
+        this.enabled = enabled;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.maxConnections = maxConnections;
+    }
+    
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            serverSocket = new ServerSocket(port, 128, InetAddress.getByName(bindAddress));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to bind token validation listener on " + bindAddress + ":" + port, e);
+        }
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        // One thread per connection; callers are expected to hold a few long-lived pipelined connections
+        connectionExecutor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "TokenValidation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        running = true;
+        
+        Thread acceptor = new Thread(this::acceptConnections, "TokenValidation-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Token validation listener started on {}:{}", bindAddress, getPort());
+    }
+    
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Error closing token validation listener: {}", e.getMessage());
+        }
+        connections.forEach(this::closeQuietly);
+        connectionExecutor.shutdownNow();
+        log.info("Token validation listener stopped");
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * The bound port; differs from the configured one when that was 0.
+     */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : port;
+    }
+    
+    /**
+     * Validate a single token; the same answer the listener sends on the wire.
+     */
+    public ValidationResult validate(int requestId, String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        JwtRejection knownRejection = rejectedTokenCache.getIfPresent(digest);
+        if (knownRejection != null) {
+            return ValidationResult.rejected(requestId, toStatus(knownRejection));
+        }
+        
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = accessTokenVerifier.verify(digest, token);
+        } catch (JwtException | IllegalArgumentException e) {
+            JwtRejection rejection = JwtRejection.of(e);
+            rejectedTokenCache.put(digest, rejection);
+            return ValidationResult.rejected(requestId, toStatus(rejection));
+        } catch (RuntimeException e) {
+            // Not the token's fault (e.g. a subject lookup hit a database error): answer and keep the connection,
+            // and leave it out of the negative cache so the next attempt is checked again
+            log.error("Token validation failed unexpectedly: {}", e.getMessage(), e);
+            return ValidationResult.rejected(requestId, ValidationStatus.INTERNAL_ERROR);
+        }
+        
+        Long userId = verifiedToken.userId();
+        Boolean emailVerified = verifiedToken.emailVerified();
+        return new ValidationResult(
+            requestId,
+            ValidationStatus.VALID,
+            userId != null ? userId : -1L,
+            verifiedToken.expiresAtMillis(),
+            Boolean.TRUE.equals(emailVerified),
+            verifiedToken.subject(),
+            verifiedToken.role()
+        );
+    }
+    
+    private void acceptConnections() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Token validation listener accept failed: {}", e.getMessage());
+                }
+                continue;
+            }
+            try {
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                log.warn("Token validation listener at {} connections, refusing {}", maxConnections, socket.getRemoteSocketAddress());
+                closeQuietly(socket);
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        connections.add(socket);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            if (in.readInt() != ValidationProtocol.MAGIC) {
+                log.warn("Rejecting token validation connection from {}: bad protocol header", socket.getRemoteSocketAddress());
+                return;
+            }
+            
+            byte[] tokenBuffer = new byte[ValidationProtocol.MAX_TOKEN_LENGTH];
+            while (running) {
+                int requestId = in.readInt();
+                String token = ValidationProtocol.readToken(in, tokenBuffer);
+                ValidationProtocol.writeResult(out, validate(requestId, token));
+                // Flush once the pipelined burst has been drained rather than after every response
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException e) {
+            // Client closed the connection
+        } catch (IOException e) {
+            if (running) {
+                log.debug("Token validation connection from {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            // Only the protocol handling itself can get here; validate() answers its own failures
+            log.error("Token validation connection from {} closed after an unexpected error: {}",
+                    socket.getRemoteSocketAddress(), e.getMessage(), e);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+    
+    private static ValidationStatus toStatus(JwtRejection rejection) {
+        return switch (rejection) {
+            case EXPIRED -> ValidationStatus.EXPIRED;
+            case REVOKED -> ValidationStatus.REVOKED;
+            case INVALID_SIGNATURE -> ValidationStatus.INVALID_SIGNATURE;
+            case MALFORMED -> ValidationStatus.MALFORMED;
+            case UNSUPPORTED -> ValidationStatus.UNSUPPORTED;
+            case INVALID -> ValidationStatus.INVALID;
+            case ERROR -> ValidationStatus.ERROR;
+            case INTERNAL_ERROR -> ValidationStatus.INTERNAL_ERROR;
+        };
+    }
+    
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.lurniq.util;
+
+import com.lurniq.exception.RevokedJwtException;
+import com.lurniq.service.OpaqueTokenService;
+import com.lurniq.service.TokenEpochService;
+import com.lurniq.service.TokenRevocationService;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The complete access token check shared by every entry point that accepts a bearer token:
+ * signature and expiry through the verified-token cache, the token kind, the revocation denylist and the
+ * user's token epoch. Opaque tokens, when enabled, are resolved from the session store instead of being verified.
+ * <p>
+ * Refresh tokens are signed with the same keys, so they are refused here explicitly: those with a family id,
+ * and pre-family ones, which carry no role and outlive any access token.
+ */
+@Component
+public class AccessTokenVerifier {
+    
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final TokenEpochService tokenEpochService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final long expiration;
+    
+    public AccessTokenVerifier(
+            VerifiedTokenCache verifiedTokenCache,
+            TokenRevocationService tokenRevocationService,
+            TokenEpochService tokenEpochService,
+            OpaqueTokenService opaqueTokenService,
+            @Value("${jwt.expiration}") long expiration
+    ) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenEpochService = tokenEpochService;
+        this.opaqueTokenService = opaqueTokenService;
+        this.expiration = expiration;
+    }
+    
+    /**
+     * Throws {@link io.jsonwebtoken.JwtException} or {@link IllegalArgumentException} if the token is not acceptable.
+     */
+    public VerifiedToken verify(TokenDigest digest, String token) {
+        // Opaque tokens are one session store lookup; JWTs are served from the verified-token cache,
+        // so jjwt only runs on the first sighting of a token
+        VerifiedToken verifiedToken = opaqueTokenService.isEnabled() && OpaqueTokenService.isOpaque(token)
+                ? opaqueTokenService.resolve(digest)
+                : verifiedTokenCache.verify(digest, token);
+        
+        if (isRefreshToken(verifiedToken)) {
+            throw new JwtException("Refresh tokens are not accepted as access tokens");
+        }
+        
+        // Bloom filter check; the exact denylist is only consulted on a Bloom hit
+        if (tokenRevocationService.isRevoked(verifiedToken.id())) {
+            throw new RevokedJwtException("Token has been revoked");
+        }
+        
+        // Tokens issued before the user's last password reset or "log out everywhere"
+        if (!tokenEpochService.isCurrent(verifiedToken)) {
+            throw new RevokedJwtException("Token epoch is no longer current");
+        }
+        return verifiedToken;
+    }
+    
+    public VerifiedToken verify(String token) {
+        return verify(TokenDigest.of(token), token);
+    }
+    
+    private boolean isRefreshToken(VerifiedToken token) {
+        return token.familyId() != null
+                || token.role() == null && token.expiresAtMillis() - token.issuedAtMillis() > expiration;
+    }
+}
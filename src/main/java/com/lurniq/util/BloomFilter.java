@@ -0,0 +1,109 @@
+package com.lurniq.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over 64-bit hashes. Answers "definitely absent" or "possibly present";
+ * there are no false negatives. Bit indexes are derived by double hashing a single 64-bit hash.
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+    
+    private BloomFilter(long bitSize, int hashFunctions) {
+        this.bitSize = bitSize;
+        this.hashFunctions = hashFunctions;
+        this.bits = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+    }
+    
+    /**
+     * Size a filter for the expected number of insertions at the given false positive probability.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE * 64));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k);
+    }
+    
+    public void put(String value) {
+        putHash(hash(value));
+    }
+    
+    public boolean mightContain(String value) {
+        return mightContainHash(hash(value));
+    }
+    
+    public void putHash(long hash) {
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            setBit(index);
+        }
+        insertions.increment();
+    }
+    
+    public boolean mightContainHash(long hash) {
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Current false positive probability estimated from the number of insertions so far.
+     */
+    public double expectedFalsePositiveProbability() {
+        double fillRatio = 1 - Math.exp(-(double) hashFunctions * insertions.sum() / bitSize);
+        return Math.pow(fillRatio, hashFunctions);
+    }
+    
+    public long approximateInsertions() {
+        return insertions.sum();
+    }
+    
+    public long memoryBytes() {
+        return (long) bits.length() * Long.BYTES;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units followed by a finalising mix.
+     */
+    public static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+    
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
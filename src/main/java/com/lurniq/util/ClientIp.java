@@ -0,0 +1,28 @@
+package com.lurniq.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Client address for rate limits, failure counts and proof-of-work challenges. The service runs behind one
+ * trusted proxy (the Cloud Run front end), which appends the address it received the connection from to
+ * {@code X-Forwarded-For}. Everything before that last entry, and {@code X-Real-IP}, comes from the client
+ * and can be set to anything, so only the last entry is used; without one the connection's own remote
+ * address is.
+ */
+public final class ClientIp {
+    
+    private ClientIp() {
+    }
+    
+    public static String resolve(HttpServletRequest request) {
+        return resolve(request.getHeader("X-Forwarded-For"), request.getRemoteAddr());
+    }
+    
+    static String resolve(String forwardedFor, String remoteAddr) {
+        if (forwardedFor == null) {
+            return remoteAddr;
+        }
+        String lastHop = forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+        return lastHop.isEmpty() ? remoteAddr : lastHop;
+    }
+}
@@ -0,0 +1,209 @@
+package com.lurniq.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of domains keyed on reversed labels ({@code mail.example.com} is stored under
+ * {@code com}, {@code example}, {@code mail} in that order), so a domain and all of its subdomains match
+ * one entry. Nodes are flattened into arrays, and every parent-to-child edge goes into one open-addressing
+ * table keyed on the parent and the label's hash. A lookup walks the address's labels right to left,
+ * hashing each in place, so each label costs about one probe however many siblings it has, without
+ * allocating.
+ */
+public final class DomainTrie {
+    
+    private static final DomainTrie EMPTY = build(List.of());
+    
+    private final String[] labels;
+    private final int[] labelHashes;
+    private final int[] parents;
+    private final boolean[] terminal;
+    // Node index + 1 per slot, 0 when empty; the length is a power of two at least twice the node count
+    private final int[] edges;
+    private final int size;
+    
+    private DomainTrie(String[] labels, int[] labelHashes, int[] parents, boolean[] terminal, int[] edges, int size) {
+        this.labels = labels;
+        this.labelHashes = labelHashes;
+        this.parents = parents;
+        this.terminal = terminal;
+        this.edges = edges;
+        this.size = size;
+    }
+    
+    public static DomainTrie empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Build from domain names; case, surrounding whitespace, a leading {@code *.} or {@code @} and a
+     * trailing dot are ignored. Blank entries are skipped.
+     */
+    public static DomainTrie build(Collection<String> domains) {
+        Node root = new Node();
+        int size = 0;
+        for (String domain : domains) {
+            String normalized = normalize(domain);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            int end = normalized.length();
+            while (end > 0) {
+                int dot = normalized.lastIndexOf('.', end - 1);
+                node = node.children.computeIfAbsent(normalized.substring(dot + 1, end), label -> new Node());
+                end = dot;
+            }
+            if (!node.terminal) {
+                node.terminal = true;
+                size++;
+            }
+        }
+        
+        // Breadth-first numbering; node 0 is the root and has no label
+        List<Node> order = new ArrayList<>();
+        List<String> orderLabels = new ArrayList<>();
+        List<Integer> orderParents = new ArrayList<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        order.add(root);
+        orderLabels.add("");
+        orderParents.add(-1);
+        queue.add(root);
+        for (int parent = 0; !queue.isEmpty(); parent++) {
+            int parentIndex = parent;
+            queue.poll().children.forEach((label, child) -> {
+                order.add(child);
+                orderLabels.add(label);
+                orderParents.add(parentIndex);
+                queue.add(child);
+            });
+        }
+        
+        int nodes = order.size();
+        String[] labels = orderLabels.toArray(new String[0]);
+        int[] labelHashes = new int[nodes];
+        int[] parents = new int[nodes];
+        boolean[] terminal = new boolean[nodes];
+        int[] edges = new int[Integer.highestOneBit(Math.max(nodes, 1)) << 2];
+        int mask = edges.length - 1;
+        for (int i = 0; i < nodes; i++) {
+            labelHashes[i] = labels[i].hashCode();
+            parents[i] = orderParents.get(i);
+            terminal[i] = order.get(i).terminal;
+            if (i > 0) {
+                int slot = slot(parents[i], labelHashes[i], mask);
+                while (edges[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                edges[slot] = i + 1;
+            }
+        }
+        return new DomainTrie(labels, labelHashes, parents, terminal, edges, size);
+    }
+    
+    /**
+     * True if the domain of the address (the part after the last {@code @}, or the whole value when there
+     * is none) is a listed domain or a subdomain of one. ASCII case is ignored.
+     */
+    public boolean matches(CharSequence address) {
+        int length = address.length();
+        int start = lastIndexOf(address, '@', length) + 1;
+        int end = length;
+        if (end > start && address.charAt(end - 1) == '.') {
+            end--;
+        }
+        
+        int node = 0;
+        while (end > start) {
+            int dot = lastIndexOf(address, '.', end);
+            int labelStart = Math.max(dot + 1, start);
+            node = child(node, address, labelStart, end);
+            if (node < 0) {
+                return false;
+            }
+            if (terminal[node]) {
+                return true;
+            }
+            end = labelStart - 1;
+        }
+        return false;
+    }
+    
+    /**
+     * Number of distinct domains in the set.
+     */
+    public int size() {
+        return size;
+    }
+    
+    private int child(int node, CharSequence address, int start, int end) {
+        // String.hashCode of the lower-cased label, which is how the stored labels were hashed
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + toLowerAscii(address.charAt(i));
+        }
+        int mask = edges.length - 1;
+        for (int slot = slot(node, hash, mask); edges[slot] != 0; slot = (slot + 1) & mask) {
+            int candidate = edges[slot] - 1;
+            if (parents[candidate] == node && labelHashes[candidate] == hash
+                    && equalsLabel(labels[candidate], address, start, end)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+    
+    private static int slot(int parent, int labelHash, int mask) {
+        int h = labelHash * 0x9E3779B9 + parent;
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    private static boolean equalsLabel(String label, CharSequence address, int start, int end) {
+        if (label.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < label.length(); i++) {
+            if (label.charAt(i) != toLowerAscii(address.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int lastIndexOf(CharSequence value, char ch, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (value.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static char toLowerAscii(char ch) {
+        return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+    
+    private static String normalize(String domain) {
+        String normalized = domain == null ? "" : domain.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith("*.")) {
+            normalized = normalized.substring(2);
+        } else if (normalized.startsWith("@")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    private static final class Node {
+        private final TreeMap<String, Node> children = new TreeMap<>();
+        private boolean terminal;
+    }
+}
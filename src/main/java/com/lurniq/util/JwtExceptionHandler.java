@@ -1,21 +1,18 @@
 package com.lurniq.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lurniq.dto.ErrorResponse;
 import com.lurniq.service.RequestTrackingService;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.UnsupportedJwtException;
-import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Component
 @Slf4j
@@ -25,113 +22,84 @@ public class JwtExceptionHandler {
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final RequestTrackingService requestTrackingService;
     
-    public void handleJwtException(HttpServletResponse response, Exception exception, String requestUri) throws IOException {
-        ErrorResponse errorResponse;
-        HttpStatus status;
+    // Static error bodies written for tokens already known to be invalid
+    private final Map<JwtRejection, byte[]> precomputedBodies = precomputeBodies();
+    
+    /**
+     * Map the exception to an error response and write it. Returns the rejection so callers can remember it.
+     */
+    public JwtRejection handleJwtException(HttpServletResponse response, Exception exception, String requestUri) throws IOException {
+        JwtRejection rejection = JwtRejection.of(exception);
         
         // Get current trace ID from MDC
-        String traceId = requestTrackingService.getTraceId();
-        if (traceId == null || traceId.isEmpty()) {
-            traceId = "unknown";
-        }
+        String traceId = currentTraceId();
         
         // Get elapsed time
         Long timeTaken = requestTrackingService.getTimeTaken();
         
-        if (exception instanceof ExpiredJwtException) {
-            status = HttpStatus.UNAUTHORIZED;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_EXPIRED",
-                "Your session has expired. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("JWT expired for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
-        } else if (exception instanceof SignatureException) {
-            status = HttpStatus.UNAUTHORIZED;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_INVALID_SIGNATURE",
-                "Invalid token signature. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("Invalid JWT signature for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
-        } else if (exception instanceof MalformedJwtException) {
-            status = HttpStatus.BAD_REQUEST;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_MALFORMED",
-                "Invalid token format. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("Malformed JWT for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
-        } else if (exception instanceof UnsupportedJwtException) {
-            status = HttpStatus.BAD_REQUEST;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_UNSUPPORTED",
-                "Unsupported token format. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("Unsupported JWT for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
-        } else if (exception instanceof IllegalArgumentException) {
-            status = HttpStatus.BAD_REQUEST;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_INVALID",
-                "Invalid token. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("Invalid JWT argument for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
-        } else if (exception instanceof JwtException) {
-            status = HttpStatus.UNAUTHORIZED;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "JWT_ERROR",
-                "Token validation failed. Please log in again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.warn("JWT validation error for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage());
-            
+        ErrorResponse errorResponse = ErrorResponse.of(
+            rejection.getStatus().value(),
+            rejection.getError(),
+            rejection.getMessage(),
+            requestUri,
+            traceId,
+            timeTaken
+        );
+        
+        if (rejection == JwtRejection.INTERNAL_ERROR) {
+            log.error("{} for request: {} - TraceID: {} - {}", rejection.getLogLabel(), requestUri, traceId, exception.getMessage(), exception);
         } else {
-            status = HttpStatus.INTERNAL_SERVER_ERROR;
-            errorResponse = ErrorResponse.of(
-                status.value(),
-                "INTERNAL_ERROR",
-                "An unexpected error occurred. Please try again.",
-                requestUri,
-                traceId,
-                timeTaken
-            );
-            log.error("Unexpected error during JWT processing for request: {} - TraceID: {} - {}", requestUri, traceId, exception.getMessage(), exception);
+            log.warn("{} for request: {} - TraceID: {} - {}", rejection.getLogLabel(), requestUri, traceId, exception.getMessage());
         }
         
-        response.setStatus(status.value());
+        prepareResponse(response, rejection, traceId);
+        
+        String jsonResponse = objectMapper.writeValueAsString(errorResponse);
+        response.getWriter().write(jsonResponse);
+        response.getWriter().flush();
+        return rejection;
+    }
+    
+    /**
+     * Write the precomputed response for a rejection without building or logging anything.
+     * The body omits the per-request path, timing and timestamp; the trace ID stays in the header.
+     */
+    public void writeRejection(HttpServletResponse response, JwtRejection rejection) throws IOException {
+        prepareResponse(response, rejection, currentTraceId());
+        response.getOutputStream().write(precomputedBodies.get(rejection));
+        response.getOutputStream().flush();
+    }
+    
+    private void prepareResponse(HttpServletResponse response, JwtRejection rejection, String traceId) {
+        response.setStatus(rejection.getStatus().value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setCharacterEncoding("UTF-8");
         
         // Add trace ID to response header
         response.setHeader("X-Trace-ID", traceId);
-        
-        String jsonResponse = objectMapper.writeValueAsString(errorResponse);
-        response.getWriter().write(jsonResponse);
-        response.getWriter().flush();
+    }
+    
+    private String currentTraceId() {
+        String traceId = requestTrackingService.getTraceId();
+        if (traceId == null || traceId.isEmpty()) {
+            traceId = "unknown";
+        }
+        return traceId;
+    }
+    
+    private Map<JwtRejection, byte[]> precomputeBodies() {
+        Map<JwtRejection, byte[]> bodies = new EnumMap<>(JwtRejection.class);
+        for (JwtRejection rejection : JwtRejection.values()) {
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .error(rejection.getError())
+                    .message(rejection.getMessage())
+                    .build();
+            try {
+                bodies.put(rejection, objectMapper.writeValueAsBytes(errorResponse));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to precompute JWT error body", e);
+            }
+        }
+        return bodies;
     }
 }
@@ -0,0 +1,292 @@
+package com.lurniq.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.config.JwtKeyRingProperties.KeyDefinition;
+import com.lurniq.tokens.HmacTokenCodec.HmacKey;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set of JWT signing keys selected by {@code kid}. Supports HS256, ES256 and EdDSA (Ed25519)
+ * with overlapping validity windows so keys can be rotated without invalidating live tokens.
+ * Acts as the jjwt key locator, resolving the verification key through a precomputed map.
+ */
+@Component
+@Slf4j
+public class JwtKeyRing extends LocatorAdapter<Key> {
+    
+    public enum Algorithm {
+        HS256, ES256, EdDSA
+    }
+    
+    private final Map<String, SigningKey> keysByKid;
+    private final Map<String, HmacKey> hmacKeysByKid;
+    private final SigningKey[] keys;
+    private final SigningKey legacyKey;
+    private final SigningKey activeKey;
+    private final long verificationGraceMillis;
+    private final String jwksJson;
+    
+    public JwtKeyRing(
+            JwtKeyRingProperties properties,
+            ObjectMapper objectMapper,
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.refresh-expiration}") long refreshExpiration
+    ) {
+        this.legacyKey = SigningKey.legacy(properties.getSecretKid(), Keys.hmacShaKeyFor(secret.getBytes()),
+                properties.getSecretNotAfter() != null ? properties.getSecretNotAfter().toEpochMilli() : Long.MAX_VALUE);
+        this.verificationGraceMillis = refreshExpiration;
+        
+        Map<String, SigningKey> byKid = new HashMap<>();
+        byKid.put(legacyKey.kid(), legacyKey);
+        for (KeyDefinition definition : properties.getKeys()) {
+            SigningKey key = SigningKey.from(definition);
+            if (byKid.putIfAbsent(key.kid(), key) != null) {
+                throw new IllegalStateException("Duplicate JWT key id: " + key.kid());
+            }
+        }
+        String activeKid = properties.getActiveKid();
+        if (activeKid != null && !activeKid.isBlank()) {
+            SigningKey active = byKid.get(activeKid);
+            if (active == null || active.signKey() == null) {
+                throw new IllegalStateException("Active JWT key id is not configured with signing material: " + activeKid);
+            }
+            if (!active.canSign(System.currentTimeMillis())) {
+                throw new IllegalStateException("Active JWT key id is outside its signing window: " + activeKid);
+            }
+            this.activeKey = active;
+        } else {
+            this.activeKey = null;
+        }
+        
+        this.keysByKid = Map.copyOf(byKid);
+        this.hmacKeysByKid = hmacKeys(byKid.values());
+        this.keys = byKid.values().toArray(new SigningKey[0]);
+        this.jwksJson = buildJwks(objectMapper);
+        
+        log.info("Loaded JWT key ring with {} key(s), active kid: {}", keys.length, signingKey(System.currentTimeMillis()).kid());
+    }
+    
+    /**
+     * Sign a token with the key that is active right now, adding its {@code kid} to the header.
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        SigningKey key = signingKey(System.currentTimeMillis());
+        return key.sign(builder.header().keyId(key.kid()).and());
+    }
+    
+    /**
+     * The active signing key for the HMAC codec, or null if the active key is not symmetric.
+     */
+    public HmacKey activeHmacSigningKey() {
+        return hmacKeysByKid.get(signingKey(System.currentTimeMillis()).kid());
+    }
+    
+    /**
+     * Verification key for the HMAC codec: the secret for an HS key within its verification window,
+     * otherwise null so the token is left to jjwt and {@link #locate(JwsHeader)}.
+     */
+    public SecretKey hmacVerificationKey(String kid) {
+        SigningKey key = kid == null ? legacyKey : keysByKid.get(kid);
+        if (key == null || key.algorithm() != Algorithm.HS256
+                || !key.canVerify(System.currentTimeMillis(), verificationGraceMillis)) {
+            return null;
+        }
+        return (SecretKey) key.verificationKey();
+    }
+    
+    /**
+     * Public keys as a JWKS document. Symmetric keys are never published.
+     */
+    public String getJwksJson() {
+        return jwksJson;
+    }
+    
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        SigningKey key = kid == null ? legacyKey : keysByKid.get(kid);
+        if (key == null || !key.canVerify(System.currentTimeMillis(), verificationGraceMillis)) {
+            throw new SignatureException("Unknown or retired signing key");
+        }
+        return key.verificationKey();
+    }
+    
+    private SigningKey signingKey(long now) {
+        // A pinned key signs only within its own window; once that closes, selection falls back to the newest key
+        if (activeKey != null && activeKey.canSign(now)) {
+            return activeKey;
+        }
+        
+        // Newest key whose signing window is open; the legacy secret is the fallback until it is retired
+        SigningKey selected = null;
+        for (SigningKey key : keys) {
+            if (key.canSign(now) && key != legacyKey
+                    && (selected == null || key.notBefore() > selected.notBefore())) {
+                selected = key;
+            }
+        }
+        if (selected != null) {
+            return selected;
+        }
+        if (!legacyKey.canSign(now)) {
+            throw new IllegalStateException("No JWT key can sign: jwt.secret is retired and no other key's signing window is open");
+        }
+        return legacyKey;
+    }
+    
+    private static Map<String, HmacKey> hmacKeys(Collection<SigningKey> keys) {
+        Map<String, HmacKey> hmacKeys = new HashMap<>();
+        for (SigningKey key : keys) {
+            if (key.algorithm() == Algorithm.HS256 && key.signKey() != null) {
+                // The legacy secret keeps the algorithm jjwt derives from its length, as in SigningKey.sign
+                hmacKeys.put(key.kid(), key.legacy()
+                        ? HmacKey.of(key.kid(), (SecretKey) key.signKey())
+                        : HmacKey.of(key.kid(), (SecretKey) key.signKey(), Algorithm.HS256.name()));
+            }
+        }
+        return Map.copyOf(hmacKeys);
+    }
+    
+    private String buildJwks(ObjectMapper objectMapper) {
+        List<Map<String, String>> jwks = new ArrayList<>();
+        for (SigningKey key : keys) {
+            if (key.algorithm() != Algorithm.HS256 && key.verificationKey() instanceof PublicKey) {
+                jwks.add(key.toJwk());
+            }
+        }
+        try {
+            return objectMapper.writeValueAsString(Map.of("keys", jwks));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise JWKS", e);
+        }
+    }
+    
+    private record SigningKey(
+        String kid,
+        Algorithm algorithm,
+        Key signKey,
+        Key verificationKey,
+        long notBefore,
+        long notAfter,
+        boolean legacy
+    ) {
+        
+        static SigningKey legacy(String kid, SecretKey key, long notAfter) {
+            return new SigningKey(kid, Algorithm.HS256, key, key, Long.MIN_VALUE, notAfter, true);
+        }
+        
+        static SigningKey from(KeyDefinition definition) {
+            if (definition.getKid() == null || definition.getKid().isBlank()) {
+                throw new IllegalStateException("JWT key is missing a kid");
+            }
+            Algorithm algorithm = Algorithm.valueOf(definition.getAlgorithm());
+            long notBefore = definition.getNotBefore() != null ? definition.getNotBefore().toEpochMilli() : Long.MIN_VALUE;
+            long notAfter = definition.getNotAfter() != null ? definition.getNotAfter().toEpochMilli() : Long.MAX_VALUE;
+            
+            if (algorithm == Algorithm.HS256) {
+                SecretKey secretKey = Keys.hmacShaKeyFor(definition.getSecret().getBytes(StandardCharsets.UTF_8));
+                return new SigningKey(definition.getKid(), algorithm, secretKey, secretKey, notBefore, notAfter, false);
+            }
+            
+            String keyFactoryAlgorithm = algorithm == Algorithm.ES256 ? "EC" : "Ed25519";
+            try {
+                KeyFactory keyFactory = KeyFactory.getInstance(keyFactoryAlgorithm);
+                PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodeDer(definition.getPublicKey())));
+                PrivateKey privateKey = definition.getPrivateKey() != null
+                        ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodeDer(definition.getPrivateKey())))
+                        : null;
+                return new SigningKey(definition.getKid(), algorithm, privateKey, publicKey, notBefore, notAfter, false);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid " + algorithm + " key material for kid " + definition.getKid(), e);
+            }
+        }
+        
+        boolean canSign(long now) {
+            return signKey != null && now >= notBefore && now < notAfter;
+        }
+        
+        boolean canVerify(long now, long graceMillis) {
+            return now >= notBefore && (notAfter == Long.MAX_VALUE || now < notAfter + graceMillis);
+        }
+        
+        JwtBuilder sign(JwtBuilder builder) {
+            if (legacy) {
+                // Keep the algorithm jjwt derives from the secret length so existing tokens stay compatible
+                return builder.signWith((SecretKey) signKey);
+            }
+            return switch (algorithm) {
+                case HS256 -> builder.signWith((SecretKey) signKey, Jwts.SIG.HS256);
+                case ES256 -> builder.signWith((PrivateKey) signKey, Jwts.SIG.ES256);
+                case EdDSA -> builder.signWith((PrivateKey) signKey, Jwts.SIG.EdDSA);
+            };
+        }
+        
+        Map<String, String> toJwk() {
+            Map<String, String> jwk = new LinkedHashMap<>();
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            if (algorithm == Algorithm.ES256) {
+                ECPublicKey ecKey = (ECPublicKey) verificationKey;
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", encoder.encodeToString(unsignedFixed(ecKey.getW().getAffineX(), 32)));
+                jwk.put("y", encoder.encodeToString(unsignedFixed(ecKey.getW().getAffineY(), 32)));
+            } else {
+                // X.509 encoding of an Ed25519 key is a fixed 12 byte prefix followed by the 32 byte key
+                byte[] encoded = verificationKey.getEncoded();
+                jwk.put("kty", "OKP");
+                jwk.put("crv", "Ed25519");
+                jwk.put("x", encoder.encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+            }
+            jwk.put("kid", kid);
+            jwk.put("alg", algorithm.name());
+            jwk.put("use", "sig");
+            return jwk;
+        }
+        
+        private static byte[] unsignedFixed(BigInteger value, int length) {
+            byte[] bytes = value.toByteArray();
+            if (bytes.length == length) {
+                return bytes;
+            }
+            byte[] fixed = new byte[length];
+            int copy = Math.min(bytes.length, length);
+            System.arraycopy(bytes, bytes.length - copy, fixed, length - copy, copy);
+            return fixed;
+        }
+        
+        private static byte[] decodeDer(String encoded) {
+            String base64 = encoded.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+            return Base64.getDecoder().decode(base64);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.lurniq.util;
+
+import com.lurniq.entity.User;
+import com.lurniq.tokens.TokenClaims;
+import com.lurniq.tokens.VerifiedToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lightweight principal built straight from verified JWT claims.
+ * Used in stateless principal mode so authenticated requests need no user lookup.
+ *
+ * @param id The user's database id
+ * @param email The user's email (token subject)
+ * @param role The user's role
+ * @param emailVerified Whether the user's email was verified when the token was issued
+ */
+public record JwtPrincipal(
+    Long id,
+    String email,
+    User.Role role,
+    boolean emailVerified
+) implements UserDetails {
+    
+    public static final String CLAIM_USER_ID = TokenClaims.USER_ID;
+    public static final String CLAIM_ROLE = TokenClaims.ROLE;
+    public static final String CLAIM_EMAIL_VERIFIED = TokenClaims.EMAIL_VERIFIED;
+    
+    // One immutable authority list per role instead of one per request
+    private static final Map<User.Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(User.Role.class);
+    
+    static {
+        for (User.Role role : User.Role.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        }
+    }
+    
+    /**
+     * Build a principal from a verified token, or empty if the token predates the identity claims.
+     */
+    public static Optional<JwtPrincipal> from(VerifiedToken token) {
+        Long userId = token.userId();
+        String role = token.role();
+        Boolean emailVerified = token.emailVerified();
+        
+        if (token.subject() == null || userId == null || role == null || emailVerified == null) {
+            return Optional.empty();
+        }
+        
+        try {
+            return Optional.of(new JwtPrincipal(userId, token.subject(), User.Role.valueOf(role), emailVerified));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Principal for a loaded user, for callers that need the compact form of a full user record.
+     */
+    public static JwtPrincipal of(User user) {
+        return new JwtPrincipal(user.getId(), user.getEmail(), user.getRole(), Boolean.TRUE.equals(user.getEmailVerified()));
+    }
+    
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES.get(role);
+    }
+    
+    @Override
+    public String getPassword() {
+        return null;
+    }
+    
+    @Override
+    public String getUsername() {
+        return email;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return emailVerified;
+    }
+}
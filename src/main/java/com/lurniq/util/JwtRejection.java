@@ -0,0 +1,78 @@
+package com.lurniq.util;
+
+import com.lurniq.exception.RevokedJwtException;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of a failed token check, mapped to the HTTP status and error body returned to the client.
+ */
+public enum JwtRejection {
+    
+    EXPIRED(HttpStatus.UNAUTHORIZED, "JWT_EXPIRED", "Your session has expired. Please log in again.", "JWT expired"),
+    REVOKED(HttpStatus.UNAUTHORIZED, "JWT_REVOKED", "Your session has been signed out. Please log in again.", "Revoked JWT"),
+    INVALID_SIGNATURE(HttpStatus.UNAUTHORIZED, "JWT_INVALID_SIGNATURE", "Invalid token signature. Please log in again.", "Invalid JWT signature"),
+    MALFORMED(HttpStatus.BAD_REQUEST, "JWT_MALFORMED", "Invalid token format. Please log in again.", "Malformed JWT"),
+    UNSUPPORTED(HttpStatus.BAD_REQUEST, "JWT_UNSUPPORTED", "Unsupported token format. Please log in again.", "Unsupported JWT"),
+    INVALID(HttpStatus.BAD_REQUEST, "JWT_INVALID", "Invalid token. Please log in again.", "Invalid JWT argument"),
+    ERROR(HttpStatus.UNAUTHORIZED, "JWT_ERROR", "Token validation failed. Please log in again.", "JWT validation error"),
+    INTERNAL_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "INTERNAL_ERROR", "An unexpected error occurred. Please try again.", "Unexpected error during JWT processing");
+    
+    private final HttpStatus status;
+    private final String error;
+    private final String message;
+    private final String logLabel;
+    
+    JwtRejection(HttpStatus status, String error, String message, String logLabel) {
+        this.status = status;
+        this.error = error;
+        this.message = message;
+        this.logLabel = logLabel;
+    }
+    
+    public static JwtRejection of(Exception exception) {
+        if (exception instanceof ExpiredJwtException) {
+            return EXPIRED;
+        } else if (exception instanceof RevokedJwtException) {
+            return REVOKED;
+        } else if (exception instanceof SignatureException) {
+            return INVALID_SIGNATURE;
+        } else if (exception instanceof MalformedJwtException) {
+            return MALFORMED;
+        } else if (exception instanceof UnsupportedJwtException) {
+            return UNSUPPORTED;
+        } else if (exception instanceof IllegalArgumentException) {
+            return INVALID;
+        } else if (exception instanceof JwtException) {
+            return ERROR;
+        }
+        return INTERNAL_ERROR;
+    }
+    
+    /**
+     * Whether the rejection depends only on the token itself, so the same token will be rejected again.
+     */
+    public boolean isPermanent() {
+        return this != INTERNAL_ERROR;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public String getLogLabel() {
+        return logLabel;
+    }
+}
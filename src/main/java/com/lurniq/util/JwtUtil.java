@@ -1,22 +1,34 @@
 package com.lurniq.util;
 
+import com.lurniq.entity.User;
+import com.lurniq.service.TokenEpochService;
+import com.lurniq.tokens.HmacTokenCodec;
+import com.lurniq.tokens.HmacTokenCodec.HmacKey;
+import com.lurniq.tokens.TokenClaims;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.TokenFields;
+import com.lurniq.tokens.TokenVerifier;
+import com.lurniq.tokens.VerifiedToken;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
     
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String CLAIM_TOKEN_EPOCH = TokenClaims.TOKEN_EPOCH;
+    public static final String CLAIM_FAMILY_ID = TokenClaims.FAMILY_ID;
     
     @Value("${jwt.expiration}")
     private Long expiration;
@@ -24,8 +36,60 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+    
+    @Value("${jwt.fast-codec.enabled:false}")
+    private boolean fastCodecEnabled;
+    
+    private final JwtKeyRing keyRing;
+    private final TokenEpochService tokenEpochService;
+    
+    // Same verifier other services embed; keys are resolved by kid through the key ring
+    private TokenVerifier tokenVerifier;
+    private HmacTokenCodec hmacTokenCodec;
+    
+    @PostConstruct
+    void init() {
+        TokenVerifier.Builder builder = TokenVerifier.builder()
+                .keyLocator(keyRing)
+                .cacheMaximumSize(cacheMaximumSize);
+        if (fastCodecEnabled) {
+            this.hmacTokenCodec = new HmacTokenCodec(keyRing::hmacVerificationKey);
+            builder.hmacCodec(hmacTokenCodec);
+        }
+        this.tokenVerifier = builder.build();
+    }
+    
+    /**
+     * Verify the signature and expiry of a token and return its claims. Each distinct token is only
+     * verified once; repeats are served from the verifier's cache until the token expires.
+     * Throws the underlying {@link JwtException} or {@link IllegalArgumentException} on failure.
+     */
+    public VerifiedToken parseToken(String token) {
+        return tokenVerifier.verify(token);
+    }
+    
+    /**
+     * Same as {@link #parseToken(String)} for callers that already computed the token digest.
+     */
+    public VerifiedToken parseToken(TokenDigest digest, String token) {
+        return tokenVerifier.verify(digest, token);
+    }
+    
+    public TokenVerifier getTokenVerifier() {
+        return tokenVerifier;
+    }
+    
+    /**
+     * Same as {@link #parseToken(String)} but returns empty instead of throwing for invalid tokens.
+     */
+    public Optional<VerifiedToken> verifyToken(String token) {
+        try {
+            return Optional.of(parseToken(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
     
     public String extractUsername(String token) {
@@ -37,56 +101,80 @@ public class JwtUtil {
     }
     
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(parseToken(token).claims());
     }
     
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public String generateToken(UserDetails userDetails) {
+        long now = System.currentTimeMillis();
+        String tokenId = UUID.randomUUID().toString();
+        // Identity claims let the filter build a principal without a user lookup
+        if (userDetails instanceof User user) {
+            return createToken(new TokenFields(tokenId, user.getUsername(), user.getId(), user.getRole().name(),
+                    Boolean.TRUE.equals(user.getEmailVerified()), tokenEpochService.issueEpoch(user),
+                    null, now, now + expiration));
+        }
+        return createToken(new TokenFields(tokenId, userDetails.getUsername(), null, null, null, null, null, now, now + expiration));
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Refresh token belonging to a rotation family; the token id is tracked by {@code RefreshTokenService}.
+     */
+    public String generateRefreshToken(UserDetails userDetails, String familyId, String tokenId) {
+        long now = System.currentTimeMillis();
+        User user = userDetails instanceof User u ? u : null;
+        Long userId = user != null ? user.getId() : null;
+        Integer tokenEpoch = userId != null ? tokenEpochService.issueEpoch(user) : null;
+        return createToken(new TokenFields(tokenId, userDetails.getUsername(), userId, null, null, tokenEpoch,
+                familyId, now, now + refreshExpiration));
     }
     
-    public String generateToken(UserDetails userDetails) {
+    /**
+     * Sign with the hand-rolled HMAC codec when it is enabled and the active key is symmetric, otherwise with jjwt.
+     * Both produce the same claims and header, so either side can verify the other's tokens.
+     */
+    private String createToken(TokenFields fields) {
+        if (hmacTokenCodec != null) {
+            HmacKey signingKey = keyRing.activeHmacSigningKey();
+            if (signingKey != null) {
+                return hmacTokenCodec.sign(signingKey, fields);
+            }
+        }
+        
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername(), expiration);
+        putIfPresent(claims, JwtPrincipal.CLAIM_USER_ID, fields.userId());
+        putIfPresent(claims, JwtPrincipal.CLAIM_ROLE, fields.role());
+        putIfPresent(claims, JwtPrincipal.CLAIM_EMAIL_VERIFIED, fields.emailVerified());
+        putIfPresent(claims, CLAIM_TOKEN_EPOCH, fields.tokenEpoch());
+        putIfPresent(claims, CLAIM_FAMILY_ID, fields.familyId());
+        JwtBuilder builder = Jwts.builder()
+                .claims(claims)
+                .id(fields.id())
+                .subject(fields.subject())
+                .issuedAt(new Date(fields.issuedAtMillis()))
+                .expiration(new Date(fields.expiresAtMillis()));
+        return keyRing.sign(builder).compact();
     }
     
-    public String generateRefreshToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername(), refreshExpiration);
+    private static void putIfPresent(Map<String, Object> claims, String name, Object value) {
+        if (value != null) {
+            claims.put(name, value);
+        }
     }
     
-    private String createToken(Map<String, Object> claims, String subject, Long expiration) {
-        return Jwts.builder()
-                .claims(claims)
-                .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+    /**
+     * Check an already verified token against the loaded user. Expiry was enforced by the parser.
+     */
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return token.subject() != null
+                && token.subject().equals(userDetails.getUsername())
+                && !token.isExpired(System.currentTimeMillis());
     }
     
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
     }
     
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verifyToken(token).isPresent();
     }
 }
@@ -0,0 +1,143 @@
+package com.lurniq.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Small primitive long to int hash map without boxing. Reads are lock-free against an immutable
+ * open-addressing snapshot; writes are serialised and publish a new snapshot (copy-on-write),
+ * which suits read-heavy data with rare updates.
+ */
+public final class LongIntMap {
+    
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private volatile Table table = Table.create(16);
+    
+    public int get(long key, int defaultValue) {
+        return table.get(key, defaultValue);
+    }
+    
+    public synchronized void put(long key, int value) {
+        Table current = table;
+        Table next = current.copy(current.size + 1);
+        next.insert(key, value);
+        table = next;
+    }
+    
+    public synchronized void putAll(Map<Long, Integer> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Table current = table;
+        Table next = current.copy(current.size + entries.size());
+        entries.forEach(next::insert);
+        table = next;
+    }
+    
+    /**
+     * Store the value unless the key already maps to one at least as large. The comparison and the write happen
+     * under the same lock as every other write, so a concurrent larger value can never be overwritten.
+     */
+    public void putIfGreater(long key, int value) {
+        // Most calls change nothing; skip the lock and the copy for them
+        if (table.get(key, Integer.MIN_VALUE) >= value) {
+            return;
+        }
+        synchronized (this) {
+            Table current = table;
+            if (current.get(key, Integer.MIN_VALUE) >= value) {
+                return;
+            }
+            Table next = current.copy(current.size + 1);
+            next.insert(key, value);
+            table = next;
+        }
+    }
+    
+    /**
+     * {@link #putIfGreater} for many entries, published as one snapshot.
+     */
+    public synchronized void putAllIfGreater(Map<Long, Integer> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Table current = table;
+        Table next = current.copy(current.size + entries.size());
+        entries.forEach((key, value) -> {
+            if (next.get(key, Integer.MIN_VALUE) < value) {
+                next.insert(key, value);
+            }
+        });
+        table = next;
+    }
+    
+    public int size() {
+        return table.size;
+    }
+    
+    private static final class Table {
+        
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+        private int size;
+        
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+        
+        static Table create(int minimumSize) {
+            // Keep the load factor at or below 0.5 so probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(16, minimumSize * 2 - 1)) << 1;
+            return new Table(capacity);
+        }
+        
+        Table copy(int expectedSize) {
+            Table next = create(Math.max(expectedSize, size));
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    next.insert(keys[i], values[i]);
+                }
+            }
+            return next;
+        }
+        
+        int get(long key, int defaultValue) {
+            int index = slot(key);
+            while (true) {
+                long candidate = keys[index];
+                if (candidate == key) {
+                    return values[index];
+                }
+                if (candidate == EMPTY) {
+                    return defaultValue;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+        
+        void insert(long key, int value) {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("Key not supported: " + key);
+            }
+            int index = slot(key);
+            while (keys[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == EMPTY) {
+                keys[index] = key;
+                size++;
+            }
+            values[index] = value;
+        }
+        
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.lurniq.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Password hashing parameters for this instance. Unless a cost is configured, the BCrypt cost is
+ * calibrated at startup to the highest value whose hash still fits the target latency on the current
+ * hardware. With a configured cost, stored hashes below it, or so far above it that verifying them blows
+ * the latency budget, are reported as needing a rehash, which happens in the background on the next login.
+ * <p>
+ * A calibrated cost is only this instance's view: instances measured during a startup CPU boost or on
+ * other hardware disagree, and rehashing towards each one's cost would move users back and forth. It is
+ * therefore used for new hashes only, and just hashes outside {@code min-cost..max-cost} are rehashed.
+ * Deployments with more than one instance should configure the cost; calibration then only advises.
+ */
+@Component
+@Slf4j
+public class PasswordHashPolicy {
+    
+    public static final String BCRYPT_ID = "bcrypt";
+    
+    private static final String BCRYPT_PREFIX = "{" + BCRYPT_ID + "}";
+    private static final String CALIBRATION_INPUT = "calibration-password";
+    
+    private final int cost;
+    private final boolean configured;
+    private final int minCost;
+    private final int maxCost;
+    private final int toleratedExtraCost;
+    private final double expectedMillis;
+    private final PolicyBCryptPasswordEncoder bcrypt;
+    
+    public PasswordHashPolicy(
+            @Value("${auth.password-hashing.bcrypt-cost:0}") int configuredCost,
+            @Value("${auth.password-hashing.target-ms:250}") long targetMillis,
+            @Value("${auth.password-hashing.min-cost:10}") int minCost,
+            @Value("${auth.password-hashing.max-cost:14}") int maxCost,
+            @Value("${auth.password-hashing.tolerated-extra-cost:1}") int toleratedExtraCost
+    ) {
+        double millisAtMinCost = measure(minCost);
+        // Each cost step doubles the work, so one measurement at the minimum predicts every higher cost
+        int calibrated = minCost;
+        while (calibrated < maxCost && millisAtMinCost * (1L << (calibrated + 1 - minCost)) <= targetMillis) {
+            calibrated++;
+        }
+        this.configured = configuredCost > 0;
+        this.cost = configured ? configuredCost : calibrated;
+        this.minCost = minCost;
+        this.maxCost = maxCost;
+        this.toleratedExtraCost = toleratedExtraCost;
+        this.expectedMillis = millisAtMinCost * Math.pow(2, cost - minCost);
+        this.bcrypt = new PolicyBCryptPasswordEncoder(this);
+        
+        if (configured) {
+            log.info("Password hashing uses configured BCrypt cost {} (~{} ms per hash here; calibration suggests {} for a {} ms target)",
+                    cost, Math.round(expectedMillis), calibrated, targetMillis);
+        } else {
+            log.info("Password hashing uses calibrated BCrypt cost {} (~{} ms per hash, target {} ms); set bcrypt-cost when running several instances",
+                    cost, Math.round(expectedMillis), targetMillis);
+        }
+    }
+    
+    /**
+     * Encoder writing {@code {bcrypt}} hashes at the policy cost. Hashes stored before ids were added have
+     * no prefix; they are all BCrypt and still match, and are rewritten with the prefix on the next rehash.
+     */
+    public PasswordEncoder createEncoder() {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+    
+    public int getCost() {
+        return cost;
+    }
+    
+    public double getExpectedMillis() {
+        return expectedMillis;
+    }
+    
+    /**
+     * Scheme and cost of a stored hash, or of just its leading characters.
+     */
+    public HashParameters describe(String encoded) {
+        if (encoded.startsWith(BCRYPT_PREFIX)) {
+            int storedCost = bcryptCost(encoded.substring(BCRYPT_PREFIX.length()));
+            return new HashParameters(BCRYPT_ID, storedCost, storedCost < 0 || needsRehash(storedCost));
+        }
+        if (encoded.startsWith("$2")) {
+            return new HashParameters("bcrypt-unprefixed", bcryptCost(encoded), true);
+        }
+        return new HashParameters("unknown", -1, true);
+    }
+    
+    private boolean needsRehash(int storedCost) {
+        if (!configured) {
+            return storedCost < minCost || storedCost > maxCost;
+        }
+        return storedCost < cost || storedCost > cost + toleratedExtraCost;
+    }
+    
+    // Cost field of a modular crypt BCrypt hash such as $2a$12$...; -1 if it is not one
+    private static int bcryptCost(String hash) {
+        if (hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$'
+                || !Character.isDigit(hash.charAt(4)) || !Character.isDigit(hash.charAt(5))) {
+            return -1;
+        }
+        return (hash.charAt(4) - '0') * 10 + (hash.charAt(5) - '0');
+    }
+    
+    private static double measure(int cost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(cost);
+        probe.encode(CALIBRATION_INPUT);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode(CALIBRATION_INPUT);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+    
+    /**
+     * @param scheme Encoder id, {@code bcrypt-unprefixed} for hashes stored before ids were added, or {@code unknown}
+     * @param cost BCrypt cost, or -1 if not known
+     * @param needsRehash Whether the hash is outside the current policy
+     */
+    public record HashParameters(String scheme, int cost, boolean needsRehash) {
+    }
+    
+    /**
+     * BCrypt at the policy cost; {@link #upgradeEncoding} follows the policy in both directions.
+     */
+    private static final class PolicyBCryptPasswordEncoder extends BCryptPasswordEncoder {
+        
+        private final PasswordHashPolicy policy;
+        
+        PolicyBCryptPasswordEncoder(PasswordHashPolicy policy) {
+            super(policy.cost);
+            this.policy = policy;
+        }
+        
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            if (encodedPassword == null || encodedPassword.isEmpty()) {
+                return false;
+            }
+            int storedCost = bcryptCost(encodedPassword);
+            return storedCost >= 0 && policy.needsRehash(storedCost);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.lurniq.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Stateless hash-puzzle challenges. A challenge is {@code expiry.difficulty.salt.mac}, where the MAC binds
+ * the first three parts to the client IP so challenges cannot be forged, lowered or shared between clients.
+ * A solution is {@code challenge:nonce} such that SHA-256 of that string starts with {@code difficulty}
+ * zero bits; finding one takes about 2^difficulty hashes, checking one takes a single hash.
+ * <p>
+ * The MAC is only checked once the puzzle hash passes, so junk solutions cost exactly one SHA-256.
+ * Replays within the expiry window are the caller's concern.
+ */
+public class ProofOfWork {
+    
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int SALT_BYTES = 12;
+    private static final int MAC_BYTES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> newInstance("SHA-256"));
+    private final ThreadLocal<Mac> mac;
+    
+    public ProofOfWork(byte[] secret, long ttlSeconds) {
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(MAC_ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+    
+    /**
+     * New challenge for the client at the given difficulty in leading zero bits.
+     */
+    public String issue(String clientIp, int difficulty) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        String body = (System.currentTimeMillis() / 1000 + ttlSeconds) + "." + difficulty + "." + ENCODER.encodeToString(salt);
+        return body + "." + ENCODER.encodeToString(sign(clientIp, body));
+    }
+    
+    /**
+     * Check a {@code challenge:nonce} solution for the client. Returns the solved challenge, or null if the
+     * solution is malformed, expired, not hard enough or was issued to someone else.
+     */
+    public String verify(String solution, String clientIp) {
+        // The challenge never contains ':', so the first one separates it from the nonce
+        int nonceStart = solution.indexOf(':');
+        int macStart = solution.lastIndexOf('.', nonceStart);
+        int saltStart = macStart < 0 ? -1 : solution.lastIndexOf('.', macStart - 1);
+        int difficultyStart = saltStart < 0 ? -1 : solution.lastIndexOf('.', saltStart - 1);
+        if (nonceStart < 0 || difficultyStart <= 0 || nonceStart - macStart < 2) {
+            return null;
+        }
+        
+        long expiresAt;
+        int difficulty;
+        try {
+            expiresAt = Long.parseLong(solution, 0, difficultyStart, 10);
+            difficulty = Integer.parseInt(solution, difficultyStart + 1, saltStart, 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expiresAt < System.currentTimeMillis() / 1000 || difficulty < 0 || difficulty > 64) {
+            return null;
+        }
+        
+        MessageDigest digest = sha256.get();
+        byte[] hash = digest.digest(solution.getBytes(StandardCharsets.UTF_8));
+        if (!hasLeadingZeroBits(hash, difficulty)) {
+            return null;
+        }
+        
+        String body = solution.substring(0, macStart);
+        byte[] presentedMac;
+        try {
+            presentedMac = DECODER.decode(solution.substring(macStart + 1, nonceStart));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(presentedMac, sign(clientIp, body))) {
+            return null;
+        }
+        return solution.substring(0, nonceStart);
+    }
+    
+    public static boolean hasLeadingZeroBits(byte[] hash, int bits) {
+        int fullBytes = bits >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            if (hash[i] != 0) {
+                return false;
+            }
+        }
+        int remaining = bits & 7;
+        return remaining == 0 || (hash[fullBytes] & 0xFF) >>> (8 - remaining) == 0;
+    }
+    
+    private byte[] sign(String clientIp, String body) {
+        Mac instance = mac.get();
+        instance.update(clientIp.getBytes(StandardCharsets.UTF_8));
+        instance.update((byte) '|');
+        byte[] full = instance.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = new byte[MAC_BYTES];
+        System.arraycopy(full, 0, truncated, 0, MAC_BYTES);
+        return truncated;
+    }
+    
+    private static MessageDigest newInstance(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
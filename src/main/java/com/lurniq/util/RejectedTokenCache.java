@@ -0,0 +1,58 @@
+package com.lurniq.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lurniq.tokens.TokenDigest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived negative cache of tokens that already failed verification, keyed by {@link TokenDigest}.
+ * Clients replaying the same expired or forged token get the cached rejection back without another
+ * parse, exception or log line. Both size and TTL are bounded, so a flood of unique garbage tokens
+ * only churns the cache and a token is never rejected for longer than the TTL.
+ */
+@Component
+public class RejectedTokenCache {
+    
+    private final Cache<TokenDigest, JwtRejection> cache;
+    private final Counter avoidedVerifications;
+    
+    public RejectedTokenCache(
+            MeterRegistry meterRegistry,
+            @Value("${jwt.negative-cache.maximum-size:10000}") long maximumSize,
+            @Value("${jwt.negative-cache.ttl-ms:60000}") long ttlMillis
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.rejected");
+        this.avoidedVerifications = Counter.builder("jwt.verifications.avoided")
+                .description("Token verifications skipped because the token was already known to be invalid")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * The cached rejection for this token, or null if it has not failed recently.
+     */
+    public JwtRejection getIfPresent(TokenDigest digest) {
+        JwtRejection rejection = cache.getIfPresent(digest);
+        if (rejection != null) {
+            avoidedVerifications.increment();
+        }
+        return rejection;
+    }
+    
+    public void put(TokenDigest digest, JwtRejection rejection) {
+        if (rejection.isPermanent()) {
+            cache.put(digest, rejection);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.lurniq.util;
+
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.TokenVerifier;
+import com.lurniq.tokens.VerifiedToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verified-token cache of the shared {@link TokenVerifier}, exposed to the request path with metrics.
+ * Repeated requests with the same token skip base64 decoding, JSON parsing and signature verification.
+ * Entries are keyed by {@link TokenDigest} and expire at the token's own {@code exp}; the size is
+ * bounded by {@code jwt.cache.maximum-size}.
+ */
+@Component
+public class VerifiedTokenCache {
+    
+    private final TokenVerifier tokenVerifier;
+    
+    public VerifiedTokenCache(JwtUtil jwtUtil, MeterRegistry meterRegistry) {
+        this.tokenVerifier = jwtUtil.getTokenVerifier();
+        tokenVerifier.cache().ifPresent(cache -> CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified"));
+    }
+    
+    /**
+     * Return the verified token from cache or verify it once and cache the result.
+     * Throws the same exceptions as {@link JwtUtil#parseToken(String)} for invalid tokens.
+     */
+    public VerifiedToken verify(String token) {
+        return tokenVerifier.verify(token);
+    }
+    
+    /**
+     * Same as {@link #verify(String)} for callers that already computed the token digest.
+     */
+    public VerifiedToken verify(TokenDigest digest, String token) {
+        return tokenVerifier.verify(digest, token);
+    }
+    
+    public void invalidate(String token) {
+        tokenVerifier.invalidate(token);
+    }
+}
@@ -0,0 +1,3 @@
+-- Upgrade an existing users table for the registered email filter sync (see user_table.sql for new databases).
+-- Every instance polls for users created since its last sync; without the index that is a full scan each time.
+CREATE INDEX IF NOT EXISTS users_created_at_idx ON users (created_at);
@@ -0,0 +1,5 @@
+-- Upgrade an existing users table for per-user token epochs (see user_table.sql for new databases).
+-- Run before deploying: production validates the schema and refuses to start without the column.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch INTEGER NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN users.token_epoch IS 'Incremented on password reset and "log out everywhere"; tokens issued at an older epoch are rejected';
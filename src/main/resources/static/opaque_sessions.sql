@@ -0,0 +1,38 @@
+-- Create table for opaque token sessions (only used when jwt.opaque-tokens.enabled is set)
+CREATE TABLE IF NOT EXISTS opaque_sessions (
+    token_hash VARCHAR(32) PRIMARY KEY,
+    kind VARCHAR(10) NOT NULL,
+    user_id BIGINT NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    role VARCHAR(20) NOT NULL,
+    email_verified BOOLEAN NOT NULL,
+    token_epoch INTEGER NOT NULL,
+    issued_at TIMESTAMP NOT NULL,
+    expiry_date TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP,
+    
+    CONSTRAINT fk_opaque_session_user 
+        FOREIGN KEY (user_id) REFERENCES users(id) 
+        ON DELETE CASCADE
+);
+
+-- Databases created before revocations were recorded on the row
+ALTER TABLE opaque_sessions ADD COLUMN IF NOT EXISTS revoked_at TIMESTAMP;
+
+-- Create indexes for better performance
+CREATE INDEX IF NOT EXISTS idx_opaque_sessions_user_id ON opaque_sessions(user_id);
+CREATE INDEX IF NOT EXISTS idx_opaque_sessions_expiry_date ON opaque_sessions(expiry_date);
+CREATE INDEX IF NOT EXISTS idx_opaque_sessions_revoked_at ON opaque_sessions(revoked_at);
+
+-- Add comments for documentation
+COMMENT ON TABLE opaque_sessions IS 'Write-behind copy of opaque access and refresh token sessions, reloaded into memory on startup';
+COMMENT ON COLUMN opaque_sessions.token_hash IS 'Primary key, hex of the first 128 bits of the SHA-256 of the token; the token itself is never stored';
+COMMENT ON COLUMN opaque_sessions.kind IS 'ACCESS or REFRESH';
+COMMENT ON COLUMN opaque_sessions.user_id IS 'Foreign key reference to users table';
+COMMENT ON COLUMN opaque_sessions.email IS 'User email at issue time, the session subject';
+COMMENT ON COLUMN opaque_sessions.role IS 'User role at issue time';
+COMMENT ON COLUMN opaque_sessions.email_verified IS 'Whether the user email was verified at issue time';
+COMMENT ON COLUMN opaque_sessions.token_epoch IS 'User token epoch at issue time; sessions from older epochs are rejected';
+COMMENT ON COLUMN opaque_sessions.issued_at IS 'Timestamp when the token was issued';
+COMMENT ON COLUMN opaque_sessions.expiry_date IS 'Session expiration timestamp';
+COMMENT ON COLUMN opaque_sessions.revoked_at IS 'Set on logout or when a refresh token is used; other instances poll it to drop the session from memory';
@@ -0,0 +1,30 @@
+-- Create table for refresh token families (one row per login session)
+CREATE TABLE IF NOT EXISTS refresh_token_families (
+    family_id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    current_token_id VARCHAR(36) NOT NULL,
+    previous_token_id VARCHAR(36),
+    rotated_at TIMESTAMP,
+    revoked BOOLEAN NOT NULL DEFAULT false,
+    expiry_date TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    
+    CONSTRAINT fk_refresh_token_family_user 
+        FOREIGN KEY (user_id) REFERENCES users(id) 
+        ON DELETE CASCADE
+);
+
+-- Create indexes for better performance
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_user_id ON refresh_token_families(user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_expiry_date ON refresh_token_families(expiry_date);
+
+-- Add comments for documentation
+COMMENT ON TABLE refresh_token_families IS 'Stores refresh token rotation state per login session for reuse detection';
+COMMENT ON COLUMN refresh_token_families.family_id IS 'Primary key, family id embedded in every refresh token of the session';
+COMMENT ON COLUMN refresh_token_families.user_id IS 'Foreign key reference to users table';
+COMMENT ON COLUMN refresh_token_families.current_token_id IS 'jti of the only refresh token that may currently be exchanged';
+COMMENT ON COLUMN refresh_token_families.previous_token_id IS 'jti of the token replaced by the last rotation, accepted again only within the retry grace window';
+COMMENT ON COLUMN refresh_token_families.rotated_at IS 'Timestamp of the last rotation';
+COMMENT ON COLUMN refresh_token_families.revoked IS 'Flag set when token reuse is detected; no token of the family is accepted afterwards';
+COMMENT ON COLUMN refresh_token_families.expiry_date IS 'Family expiration timestamp (refresh token lifetime after the last rotation)';
+COMMENT ON COLUMN refresh_token_families.created_at IS 'Timestamp when the family was created';
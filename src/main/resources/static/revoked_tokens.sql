@@ -0,0 +1,16 @@
+-- Create table for revoked token ids (logout); rows are only needed until the token expires
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id VARCHAR(64) PRIMARY KEY,
+    expiry_date TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL
+);
+
+-- Create indexes for better performance
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expiry_date ON revoked_tokens(expiry_date);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+
+-- Add comments for documentation
+COMMENT ON TABLE revoked_tokens IS 'Token ids revoked before their expiry, reloaded into the in-memory denylist on startup';
+COMMENT ON COLUMN revoked_tokens.token_id IS 'Primary key, jti of the revoked token';
+COMMENT ON COLUMN revoked_tokens.expiry_date IS 'Expiry of the revoked token; the row can be deleted afterwards';
+COMMENT ON COLUMN revoked_tokens.revoked_at IS 'Timestamp of the revocation, used by other instances to pick it up';
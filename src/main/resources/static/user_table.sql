@@ -12,6 +12,7 @@ CREATE TABLE users (
     provider user_provider NOT NULL, 
     provider_id VARCHAR(255),
     email_verified BOOLEAN DEFAULT FALSE,
+    token_epoch INTEGER NOT NULL DEFAULT 0,
     created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
@@ -30,4 +31,5 @@ FOR EACH ROW
 EXECUTE FUNCTION update_updated_at_column();
 
 CREATE INDEX users_email_idx ON users (email);
-CREATE INDEX users_provider_idx ON users (provider, provider_id);
\ No newline at end of file
+CREATE INDEX users_provider_idx ON users (provider, provider_id);
+CREATE INDEX users_created_at_idx ON users (created_at);
\ No newline at end of file
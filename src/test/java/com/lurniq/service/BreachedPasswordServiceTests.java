@@ -0,0 +1,137 @@
+package com.lurniq.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class BreachedPasswordServiceTests {
+
+	private static final List<String> BREACHED = List.of("password", "123456", "qwerty", "letmein", "p\u00e4ssw\u00f6rd");
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void reportsEveryListedPasswordAndNothingElse(boolean bloomFilter) throws IOException {
+		Path file = writeHashFile(BREACHED, 2_000);
+		BreachedPasswordService service = service(file, bloomFilter);
+		service.load();
+		awaitLoaded(service, "password");
+
+		for (String password : BREACHED) {
+			assertThat(service.isBreached(password)).as(password).isTrue();
+		}
+		for (int i = 0; i < 1_000; i++) {
+			assertThat(service.isBreached("correct horse battery staple " + i)).isFalse();
+		}
+		assertThat(service.isBreached(null)).isFalse();
+	}
+
+	@Test
+	void findsTheFirstAndLastLinesOfTheFile() throws IOException {
+		List<String> passwords = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			passwords.add("breached-" + i);
+		}
+		Path file = writeHashFile(passwords, 0);
+		List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+		String first = passwords.stream().filter(p -> lines.get(0).startsWith(sha1Hex(p))).findFirst().orElseThrow();
+		String last = passwords.stream().filter(p -> lines.get(lines.size() - 1).startsWith(sha1Hex(p))).findFirst().orElseThrow();
+		BreachedPasswordService service = service(file, false);
+		service.load();
+		awaitLoaded(service, first);
+
+		assertThat(service.isBreached(first)).isTrue();
+		assertThat(service.isBreached(last)).isTrue();
+	}
+
+	@Test
+	void reportsNothingBeforeTheFileIsLoaded() throws IOException {
+		BreachedPasswordService service = service(writeHashFile(BREACHED, 100), false);
+
+		assertThat(service.isBreached("password")).isFalse();
+	}
+
+	@Test
+	void reportsNothingWithoutAFile() {
+		BreachedPasswordService service = new BreachedPasswordService(new SimpleMeterRegistry(), "", false, 1_000, 0.01);
+		service.load();
+		service.reloadIfChanged();
+
+		assertThat(service.isBreached("password")).isFalse();
+	}
+
+	@Test
+	void picksUpAReplacedFile() throws IOException {
+		Path file = writeHashFile(List.of("password"), 100);
+		BreachedPasswordService service = service(file, true);
+		service.load();
+		awaitLoaded(service, "password");
+		assertThat(service.isBreached("hunter2")).isFalse();
+
+		Path replacement = writeHashFile(List.of("password", "hunter2"), 200);
+		Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+		// The first load may still be clearing its in-progress flag, which makes a reload a no-op; keep asking
+		await().until(() -> {
+			service.reloadIfChanged();
+			return service.isBreached("hunter2");
+		});
+		assertThat(service.isBreached("password")).isTrue();
+	}
+
+	private BreachedPasswordService service(Path file, boolean bloomFilter) {
+		return new BreachedPasswordService(new SimpleMeterRegistry(), file.toString(), bloomFilter, 10_000, 0.01);
+	}
+
+	// Loading happens on a background thread
+	private static void awaitLoaded(BreachedPasswordService service, String password) {
+		await().until(() -> service.isBreached(password));
+	}
+
+	// HIBP "ordered by hash" format: upper-case SHA-1, a count, CRLF line ends, sorted by hash
+	private Path writeHashFile(List<String> passwords, int fillerLines) throws IOException {
+		TreeSet<String> lines = new TreeSet<>();
+		for (String password : passwords) {
+			lines.add(sha1Hex(password) + ":" + (password.length() * 1000));
+		}
+		Random random = new Random(42);
+		byte[] filler = new byte[20];
+		for (int i = 0; i < fillerLines; i++) {
+			random.nextBytes(filler);
+			lines.add(HexFormat.of().withUpperCase().formatHex(filler) + ":" + (random.nextInt(100_000) + 1));
+		}
+		Path file = Files.createTempFile(directory, "pwned", ".txt");
+		Files.writeString(file, String.join("\r\n", lines) + "\r\n", StandardCharsets.US_ASCII);
+		return file;
+	}
+
+	private static String sha1Hex(String password) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().withUpperCase().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.lurniq.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The same overlapping registrations, written through {@link RegistrationBatcher}. H2 has no
+ * {@code INSERT ... RETURNING}, so the group commit statement is run as the equivalent
+ * {@code SELECT ... FROM FINAL TABLE (INSERT ... ON CONFLICT DO NOTHING)}, which likewise returns only the
+ * rows it inserted.
+ */
+@TestPropertySource(properties = {
+		"auth.registration.group-commit.enabled=true",
+		"spring.datasource.url=jdbc:h2:mem:group-commit;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@Import(GroupCommitRegistrationConcurrencyTests.H2GroupCommit.class)
+class GroupCommitRegistrationConcurrencyTests extends RegistrationConcurrencyTests {
+
+	@Autowired
+	private GroupCommitJdbcTemplate jdbcTemplate;
+
+	@Override
+	@Test
+	void overlappingRegistrationsCreateEachEmailOnce() throws Exception {
+		super.overlappingRegistrationsCreateEachEmailOnce();
+
+		assertThat(jdbcTemplate.groupCommits.get()).isPositive();
+	}
+
+	@TestConfiguration(proxyBeanMethods = false)
+	static class H2GroupCommit {
+
+		@Bean
+		GroupCommitJdbcTemplate jdbcTemplate(DataSource dataSource) {
+			return new GroupCommitJdbcTemplate(dataSource);
+		}
+	}
+
+	static class GroupCommitJdbcTemplate extends JdbcTemplate {
+
+		private static final String RETURNING = " ON CONFLICT (email) DO NOTHING RETURNING id, email";
+
+		final AtomicInteger groupCommits = new AtomicInteger();
+
+		GroupCommitJdbcTemplate(DataSource dataSource) {
+			super(dataSource);
+		}
+
+		@Override
+		public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) throws DataAccessException {
+			if (sql.startsWith("INSERT INTO users") && sql.endsWith(RETURNING)) {
+				groupCommits.incrementAndGet();
+				sql = "SELECT id, email FROM FINAL TABLE ("
+						+ sql.substring(0, sql.length() - RETURNING.length()) + " ON CONFLICT DO NOTHING)";
+			}
+			super.query(sql, pss, rch);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.lurniq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.lurniq.exception.AccountLockedException;
+import com.lurniq.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class LoginAttemptServiceTests {
+
+	private static final String EMAIL = "user42@example.com";
+
+	private LoginAttemptService service;
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void delaysGrowExponentiallyUpToTheMaximum() {
+		service = service(2, 100, 1_000, 100, 60_000, 60_000);
+
+		assertThat(delayAfterFailures(1)).isZero();
+		assertThat(delayAfterFailures(1)).isZero();
+		assertThat(delayAfterFailures(1)).isEqualTo(100);
+		assertThat(delayAfterFailures(1)).isEqualTo(200);
+		assertThat(delayAfterFailures(1)).isEqualTo(400);
+		assertThat(delayAfterFailures(1)).isEqualTo(800);
+		assertThat(delayAfterFailures(1)).isEqualTo(1_000);
+		assertThat(delayAfterFailures(20)).isEqualTo(1_000);
+	}
+
+	@Test
+	void emailsAreTrackedCaseInsensitively() {
+		service = service(0, 100, 1_000, 100, 60_000, 60_000);
+		fail("User42@Example.COM ");
+
+		assertThat(delayMillis()).isEqualTo(100);
+	}
+
+	@Test
+	void successClearsTheFailures() {
+		service = service(0, 100, 1_000, 100, 60_000, 60_000);
+		fail(EMAIL);
+
+		service.onSuccess(new AuthenticationSuccessEvent(new UsernamePasswordAuthenticationToken(EMAIL, "password")));
+
+		assertThat(delayMillis()).isZero();
+	}
+
+	@Test
+	void locksAtTheThresholdUntilTheLockRunsOut() {
+		service = service(100, 100, 1_000, 3, 200, 60_000);
+		fail(EMAIL);
+		fail(EMAIL);
+		assertThatCode(() -> service.checkNotLocked(EMAIL)).doesNotThrowAnyException();
+
+		fail(EMAIL);
+
+		assertThatThrownBy(() -> service.checkNotLocked(EMAIL))
+				.isInstanceOfSatisfying(AccountLockedException.class, e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+		AtomicInteger logins = new AtomicInteger();
+		assertThatThrownBy(() -> service.attempt(EMAIL, () -> CompletableFuture.completedFuture(logins.incrementAndGet())))
+				.isInstanceOf(AccountLockedException.class);
+		assertThat(logins).hasValue(0);
+
+		await().atMost(Duration.ofSeconds(2))
+				.untilAsserted(() -> assertThatCode(() -> service.checkNotLocked(EMAIL)).doesNotThrowAnyException());
+		// The count starts over once the lock has run out
+		fail(EMAIL);
+		assertThatCode(() -> service.checkNotLocked(EMAIL)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void oldFailuresStopCountingAfterTheWindow() {
+		service = service(0, 100, 1_000, 100, 60_000, 100);
+		fail(EMAIL);
+
+		await().atMost(Duration.ofSeconds(2)).until(() -> delayMillis() == 0);
+	}
+
+	@Test
+	void allowsOneDelayedAttemptPerAccount() {
+		service = service(0, 50, 1_000, 100, 60_000, 60_000);
+		fail(EMAIL);
+		AtomicInteger started = new AtomicInteger();
+		CompletableFuture<String> login = new CompletableFuture<>();
+
+		CompletableFuture<String> first = service.attempt(EMAIL, () -> {
+			started.incrementAndGet();
+			return login;
+		});
+
+		// Refused while the first attempt waits out its delay, and while it runs
+		assertThatThrownBy(() -> service.attempt(EMAIL, () -> CompletableFuture.completedFuture("second")))
+				.isInstanceOf(AccountLockedException.class);
+		await().atMost(Duration.ofSeconds(2)).until(() -> started.get() == 1);
+		assertThatThrownBy(() -> service.attempt(EMAIL, () -> CompletableFuture.completedFuture("second")))
+				.isInstanceOf(AccountLockedException.class);
+
+		login.complete("first");
+
+		assertThat(first.join()).isEqualTo("first");
+		await().atMost(Duration.ofSeconds(2)).until(() -> pendingDelays() == 0);
+		assertThat(service.attempt(EMAIL, () -> CompletableFuture.completedFuture("third")).join()).isEqualTo("third");
+	}
+
+	@Test
+	void refusesDelayedAttemptsBeyondTheGlobalLimit() {
+		service = new LoginAttemptService(new SimpleMeterRegistry(), 0, 5_000, 5_000, 100, 60_000, 60_000, 1_000, 1);
+		fail("first@example.com");
+		fail("second@example.com");
+		service.attempt("first@example.com", () -> CompletableFuture.completedFuture("first"));
+
+		assertThatThrownBy(() -> service.attempt("second@example.com", () -> CompletableFuture.completedFuture("second")))
+				.isInstanceOf(ServiceOverloadedException.class);
+		// The refused attempt did not keep its account's slot
+		assertThat(pendingDelays()).isEqualTo(1);
+	}
+
+	@Test
+	void aRejectedScheduleReleasesThePendingSlot() {
+		service = service(0, 50, 1_000, 100, 60_000, 60_000);
+		fail(EMAIL);
+		service.shutdown();
+
+		assertThatThrownBy(() -> service.attempt(EMAIL, () -> CompletableFuture.completedFuture("login")))
+				.isInstanceOf(ServiceOverloadedException.class);
+		assertThat(pendingDelays()).isZero();
+		// Refused as overloaded again, not as an attempt still in progress
+		assertThatThrownBy(() -> service.attempt(EMAIL, () -> CompletableFuture.completedFuture("login")))
+				.isInstanceOf(ServiceOverloadedException.class);
+	}
+
+	private LoginAttemptService service(int freeAttempts, long baseDelayMillis, long maxDelayMillis, int lockThreshold,
+										long lockDurationMillis, long failureWindowMillis) {
+		return new LoginAttemptService(new SimpleMeterRegistry(), freeAttempts, baseDelayMillis, maxDelayMillis,
+				lockThreshold, lockDurationMillis, failureWindowMillis, 1_000, 100);
+	}
+
+	private long delayAfterFailures(int failures) {
+		for (int i = 0; i < failures; i++) {
+			fail(EMAIL);
+		}
+		return delayMillis();
+	}
+
+	private void fail(String email) {
+		service.onFailure(new AuthenticationFailureBadCredentialsEvent(
+				new UsernamePasswordAuthenticationToken(email, "wrong"), new BadCredentialsException("wrong")));
+	}
+
+	private long delayMillis() {
+		Cache<String, ?> failures = (Cache<String, ?>) ReflectionTestUtils.getField(service, "failures");
+		Long delay = ReflectionTestUtils.invokeMethod(service, "delayMillis", failures.getIfPresent(EMAIL));
+		return delay;
+	}
+
+	private int pendingDelays() {
+		return ((AtomicInteger) ReflectionTestUtils.getField(service, "pendingDelays")).get();
+	}
+}
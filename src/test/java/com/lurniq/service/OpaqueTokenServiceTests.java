@@ -0,0 +1,202 @@
+package com.lurniq.service;
+
+import com.lurniq.dto.AuthResponse;
+import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
+import com.lurniq.exception.AuthFailureException;
+import com.lurniq.exception.RevokedJwtException;
+import com.lurniq.tokens.TokenDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OpaqueTokenServiceTests {
+
+	private static final long ACCESS_LIFETIME = 86_400_000L;
+	private static final long REFRESH_LIFETIME = 604_800_000L;
+
+	private final User user = User.builder()
+			.id(42L)
+			.email("user42@example.com")
+			.role(User.Role.USER)
+			.emailVerified(true)
+			.tokenEpoch(0)
+			.build();
+
+	// Statements that reached the database, as "method: sql"
+	private final List<String> statements = new CopyOnWriteArrayList<>();
+	private volatile boolean databaseDown;
+	// Answers a session lookup by token hash; null means no row
+	private volatile Supplier<ResultSet> storedSession;
+
+	private OpaqueTokenService service;
+
+	@BeforeEach
+	void setUp() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, invocation -> {
+			if (databaseDown) {
+				throw new DataAccessResourceFailureException("connection refused");
+			}
+			statements.add(invocation.getMethod().getName() + ": " + invocation.getArgument(0));
+			if (invocation.getMethod().getName().equals("query") && invocation.getArgument(1) instanceof RowMapper<?> mapper) {
+				Supplier<ResultSet> stored = storedSession;
+				List<Object> rows = new ArrayList<>();
+				if (stored != null) {
+					rows.add(mapper.mapRow(stored.get(), 0));
+				}
+				return rows;
+			}
+			return RETURNS_DEFAULTS.answer(invocation);
+		});
+		service = new OpaqueTokenService(null, jdbcTemplate, new TokenEpochService(null), new SimpleMeterRegistry(),
+				true, ACCESS_LIFETIME, REFRESH_LIFETIME, 4);
+	}
+
+	@Test
+	void resolvesAnIssuedAccessTokenFromMemory() {
+		AuthResponse issued = service.issue(user);
+
+		assertThat(service.resolve(TokenDigest.of(issued.getAccessToken())).userId()).isEqualTo(42L);
+		assertThat(statements).isEmpty();
+	}
+
+	@Test
+	void aRefreshTokenIsConsumedOnce() {
+		AuthResponse issued = service.issue(user);
+
+		AuthResponse refreshed = service.refresh(issued.getRefreshToken(), userId -> user);
+
+		assertThat(refreshed.getRefreshToken()).isNotEqualTo(issued.getRefreshToken());
+		assertInvalidRefresh(() -> service.refresh(issued.getRefreshToken(), userId -> user));
+		// Still refused once the revocation is committed and the tombstone has moved out of the dirty set
+		service.flushSessions();
+		assertInvalidRefresh(() -> service.refresh(issued.getRefreshToken(), userId -> user));
+		assertThat(statements).noneMatch(statement -> statement.startsWith("query"));
+	}
+
+	@Test
+	void concurrentRefreshesOfOneTokenHaveOneWinner() throws Exception {
+		String refreshToken = service.issue(user).getRefreshToken();
+		int callers = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger refused = new AtomicInteger();
+		List<Future<AuthResponse>> outcomes = new ArrayList<>();
+		for (int i = 0; i < callers; i++) {
+			outcomes.add(executor.submit(() -> {
+				start.await();
+				try {
+					return service.refresh(refreshToken, userId -> user);
+				} catch (AuthFailureException e) {
+					assertThat(e.getFailure()).isEqualTo(AuthFailure.INVALID_REFRESH_TOKEN);
+					refused.incrementAndGet();
+					return null;
+				}
+			}));
+		}
+
+		start.countDown();
+		int succeeded = 0;
+		for (Future<AuthResponse> outcome : outcomes) {
+			if (outcome.get() != null) {
+				succeeded++;
+			}
+		}
+		executor.shutdown();
+
+		assertThat(succeeded).isEqualTo(1);
+		assertThat(refused).hasValue(callers - 1);
+	}
+
+	@Test
+	void loadsTokensIssuedElsewhereFromTheDatabase() {
+		String token = OpaqueTokenService.TOKEN_PREFIX + "issued-by-another-instance";
+		storedSession = this::accessSessionRow;
+
+		assertThat(service.resolve(TokenDigest.of(token)).subject()).isEqualTo("user42@example.com");
+		assertThat(service.resolve(TokenDigest.of(token)).subject()).isEqualTo("user42@example.com");
+		assertThat(statements).filteredOn(statement -> statement.startsWith("query")).hasSize(1);
+	}
+
+	@Test
+	void aRevocationRacingTheDatabaseLoadWins() {
+		String token = OpaqueTokenService.TOKEN_PREFIX + "issued-by-another-instance";
+		// Logout lands while the row is being read, after the lookup found no tombstone
+		storedSession = () -> {
+			service.revoke(token);
+			return accessSessionRow();
+		};
+
+		assertThatThrownBy(() -> service.resolve(TokenDigest.of(token))).isInstanceOf(RevokedJwtException.class);
+		// Not left behind in the shard: later lookups stop at the tombstone without reading the row again
+		storedSession = this::accessSessionRow;
+		assertThatThrownBy(() -> service.resolve(TokenDigest.of(token))).isInstanceOf(RevokedJwtException.class);
+		assertThat(statements).filteredOn(statement -> statement.startsWith("query")).hasSize(1);
+	}
+
+	@Test
+	void aFailedRevocationWriteKeepsTheTombstone() {
+		AuthResponse issued = service.issue(user);
+		TokenDigest digest = TokenDigest.of(issued.getAccessToken());
+		service.revoke(issued.getAccessToken());
+		storedSession = this::accessSessionRow;
+
+		databaseDown = true;
+		service.flushSessions();
+		databaseDown = false;
+
+		// The row still reads as live, but the tombstone answers before the database is asked
+		assertThatThrownBy(() -> service.resolve(digest)).isInstanceOf(RevokedJwtException.class);
+		assertThat(statements).isEmpty();
+
+		service.flushSessions();
+
+		assertThat(statements).anyMatch(statement -> statement.contains("SET revoked_at"));
+		assertThatThrownBy(() -> service.resolve(digest)).isInstanceOf(RevokedJwtException.class);
+		assertThat(statements).noneMatch(statement -> statement.startsWith("query"));
+	}
+
+	private ResultSet accessSessionRow() {
+		try {
+			long now = System.currentTimeMillis();
+			ResultSet rs = mock(ResultSet.class);
+			when(rs.getString("kind")).thenReturn("ACCESS");
+			when(rs.getLong("user_id")).thenReturn(42L);
+			when(rs.getString("email")).thenReturn("user42@example.com");
+			when(rs.getString("role")).thenReturn("USER");
+			when(rs.getBoolean("email_verified")).thenReturn(true);
+			when(rs.getInt("token_epoch")).thenReturn(0);
+			when(rs.getTimestamp("issued_at")).thenReturn(new Timestamp(now));
+			when(rs.getTimestamp("expiry_date")).thenReturn(new Timestamp(now + ACCESS_LIFETIME));
+			return rs;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void assertInvalidRefresh(Runnable refresh) {
+		assertThatThrownBy(refresh::run).isInstanceOfSatisfying(AuthFailureException.class,
+				e -> assertThat(e.getFailure()).isEqualTo(AuthFailure.INVALID_REFRESH_TOKEN));
+	}
+}
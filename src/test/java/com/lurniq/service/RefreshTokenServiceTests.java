@@ -0,0 +1,275 @@
+package com.lurniq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.dto.AuthResponse;
+import com.lurniq.entity.User;
+import com.lurniq.exception.AuthFailure;
+import com.lurniq.exception.AuthFailureException;
+import com.lurniq.tokens.VerifiedToken;
+import com.lurniq.util.JwtKeyRing;
+import com.lurniq.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenServiceTests {
+
+	private static final long ACCESS_LIFETIME = 86_400_000L;
+	private static final long REFRESH_LIFETIME = 604_800_000L;
+	private static final String LEGACY_CUTOFF = "2025-01-01T00:00:00Z";
+
+	private final User user = User.builder()
+			.id(7L)
+			.email("user7@example.com")
+			.role(User.Role.USER)
+			.emailVerified(true)
+			.build();
+
+	private final AtomicInteger userLoads = new AtomicInteger();
+	private final Supplier<User> userLoader = () -> {
+		userLoads.incrementAndGet();
+		return user;
+	};
+
+	private JdbcTemplate jdbcTemplate;
+	private JwtUtil jwtUtil;
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:refresh-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		// Same columns as refresh_token_families.sql, without the users foreign key
+		jdbcTemplate.execute("""
+				CREATE TABLE refresh_token_families (
+				    family_id VARCHAR(36) PRIMARY KEY,
+				    user_id BIGINT NOT NULL,
+				    current_token_id VARCHAR(36) NOT NULL,
+				    previous_token_id VARCHAR(36),
+				    rotated_at TIMESTAMP,
+				    revoked BOOLEAN NOT NULL DEFAULT false,
+				    expiry_date TIMESTAMP NOT NULL,
+				    created_at TIMESTAMP NOT NULL
+				)
+				""");
+
+		JwtKeyRing keyRing = new JwtKeyRing(new JwtKeyRingProperties(), new ObjectMapper(),
+				"refresh-token-service-test-secret-long-enough-for-hs256", REFRESH_LIFETIME);
+		jwtUtil = new JwtUtil(keyRing, new TokenEpochService(null));
+		ReflectionTestUtils.setField(jwtUtil, "expiration", ACCESS_LIFETIME);
+		ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", REFRESH_LIFETIME);
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaximumSize", 1_000L);
+		ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void rotatesTheCurrentToken() {
+		RefreshTokenService service = service(10_000);
+		VerifiedToken first = jwtUtil.parseToken(service.issue(user));
+
+		AuthResponse response = service.rotate(first, userLoader);
+		VerifiedToken second = jwtUtil.parseToken(response.getRefreshToken());
+
+		assertThat(second.familyId()).isEqualTo(first.familyId());
+		assertThat(second.id()).isNotEqualTo(first.id());
+		assertThat(response.getAccessToken()).isNotBlank();
+		assertThat(currentTokenId(first.familyId())).isEqualTo(second.id());
+
+		// The new token is current and rotates in turn
+		VerifiedToken third = jwtUtil.parseToken(service.rotate(second, userLoader).getRefreshToken());
+		assertThat(currentTokenId(first.familyId())).isEqualTo(third.id());
+	}
+
+	@Test
+	void replaysTheSamePairInsideTheGraceWindow() {
+		RefreshTokenService service = service(10_000);
+		VerifiedToken first = jwtUtil.parseToken(service.issue(user));
+
+		AuthResponse response = service.rotate(first, userLoader);
+		AuthResponse retried = service.rotate(first, userLoader);
+
+		assertThat(retried).isSameAs(response);
+		assertThat(userLoads).hasValue(1);
+		assertThat(revoked(first.familyId())).isFalse();
+	}
+
+	@Test
+	void reuseOfAReplacedTokenRevokesTheFamily() {
+		RefreshTokenService service = service(-1);
+		VerifiedToken first = jwtUtil.parseToken(service.issue(user));
+		VerifiedToken second = jwtUtil.parseToken(service.rotate(first, userLoader).getRefreshToken());
+
+		assertFailure(() -> service.rotate(first, userLoader), AuthFailure.REFRESH_TOKEN_REUSED);
+		assertThat(revoked(first.familyId())).isTrue();
+		// Once revoked, not even the current token is accepted
+		assertFailure(() -> service.rotate(second, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+	}
+
+	@Test
+	void instancesSharingTheDatabaseAgreeOnTheCurrentToken() {
+		RefreshTokenService first = service(10_000);
+		RefreshTokenService second = service(10_000);
+		VerifiedToken original = jwtUtil.parseToken(first.issue(user));
+
+		VerifiedToken rotated = jwtUtil.parseToken(first.rotate(original, userLoader).getRefreshToken());
+
+		// A retry that lands on the other instance is refused without revoking the family
+		assertFailure(() -> second.rotate(original, userLoader), AuthFailure.INVALID_REFRESH_TOKEN);
+		assertThat(revoked(original.familyId())).isFalse();
+		// The other instance accepts the token the first one handed out
+		VerifiedToken next = jwtUtil.parseToken(second.rotate(rotated, userLoader).getRefreshToken());
+		assertThat(currentTokenId(original.familyId())).isEqualTo(next.id());
+		// The first instance now sees its own earlier token as reuse, outside its cached pair
+		assertFailure(() -> first.rotate(rotated, userLoader), AuthFailure.INVALID_REFRESH_TOKEN);
+	}
+
+	@Test
+	void reuseIsDetectedByAnyInstance() {
+		RefreshTokenService first = service(-1);
+		RefreshTokenService second = service(-1);
+		VerifiedToken original = jwtUtil.parseToken(first.issue(user));
+		first.rotate(original, userLoader);
+
+		assertFailure(() -> second.rotate(original, userLoader), AuthFailure.REFRESH_TOKEN_REUSED);
+		assertThat(revoked(original.familyId())).isTrue();
+	}
+
+	@Test
+	void exchangesALegacyTokenOnce() {
+		RefreshTokenService service = service(-1);
+		VerifiedToken legacy = legacyToken("legacy-jti");
+
+		VerifiedToken rotated = jwtUtil.parseToken(service.rotate(legacy, userLoader).getRefreshToken());
+
+		assertThat(rotated.familyId()).isNotNull();
+		assertThat(userLoads).hasValue(1);
+		assertFailure(() -> service.rotate(legacy, userLoader), AuthFailure.REFRESH_TOKEN_REUSED);
+		assertFailure(() -> service.rotate(rotated, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+	}
+
+	@Test
+	void refusesLegacyTokensIssuedAfterTheCutoff() {
+		RefreshTokenService service = service(10_000);
+		long issuedAt = Instant.parse(LEGACY_CUTOFF).toEpochMilli() + 1;
+		VerifiedToken late = new VerifiedToken(user.getEmail(), issuedAt, issuedAt + REFRESH_LIFETIME,
+				"late-jti", null, null, null, 0, null, null);
+
+		assertFailure(() -> service.rotate(late, userLoader), AuthFailure.INVALID_REFRESH_TOKEN);
+		assertThat(userLoads).hasValue(0);
+	}
+
+	@Test
+	void refusesAFamilyTokenWithoutAnId() {
+		RefreshTokenService service = service(10_000);
+		long now = System.currentTimeMillis();
+		VerifiedToken noId = new VerifiedToken(user.getEmail(), now, now + REFRESH_LIFETIME,
+				null, user.getId(), null, null, 0, UUID.randomUUID().toString(), null);
+
+		assertFailure(() -> service.rotate(noId, userLoader), AuthFailure.INVALID_REFRESH_TOKEN);
+	}
+
+	@Test
+	void refusesAnUnknownFamily() {
+		RefreshTokenService service = service(10_000);
+		long now = System.currentTimeMillis();
+		VerifiedToken unknown = new VerifiedToken(user.getEmail(), now, now + REFRESH_LIFETIME,
+				UUID.randomUUID().toString(), user.getId(), null, null, 0, UUID.randomUUID().toString(), null);
+
+		assertFailure(() -> service.rotate(unknown, userLoader), AuthFailure.INVALID_REFRESH_TOKEN);
+	}
+
+	@Test
+	void logoutRevokesTheFamilyBeforeItsFirstFlush() {
+		RefreshTokenService first = service(10_000);
+		RefreshTokenService second = service(10_000);
+		VerifiedToken issued = jwtUtil.parseToken(first.issue(user));
+
+		first.revokeFamily(issued, user.getId());
+
+		assertThat(revoked(issued.familyId())).isTrue();
+		assertFailure(() -> first.rotate(issued, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+		assertFailure(() -> second.rotate(issued, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+	}
+
+	@Test
+	void logoutDropsTheCachedRetryPair() {
+		RefreshTokenService service = service(10_000);
+		VerifiedToken issued = jwtUtil.parseToken(service.issue(user));
+		VerifiedToken rotated = jwtUtil.parseToken(service.rotate(issued, userLoader).getRefreshToken());
+
+		service.revokeFamily(rotated, user.getId());
+
+		assertFailure(() -> service.rotate(issued, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+	}
+
+	@Test
+	void logoutRevokesALegacyTokenBeforeItsExchange() {
+		RefreshTokenService service = service(10_000);
+		VerifiedToken legacy = legacyToken("legacy-jti");
+
+		service.revokeFamily(legacy, user.getId());
+
+		assertFailure(() -> service.rotate(legacy, userLoader), AuthFailure.REFRESH_TOKEN_REVOKED);
+		assertThat(userLoads).hasValue(0);
+	}
+
+	@Test
+	void flushWritesPendingFamiliesAndDropsRefusedRows() {
+		RefreshTokenService service = service(10_000);
+		VerifiedToken issued = jwtUtil.parseToken(service.issue(user));
+		User withoutId = User.builder().email("nobody@example.com").role(User.Role.USER).build();
+		service.issue(withoutId);
+
+		service.flushFamilies();
+
+		assertThat(currentTokenId(issued.familyId())).isEqualTo(issued.id());
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_token_families", Integer.class)).isEqualTo(1);
+		assertThat(meterRegistry.counter("jwt.refresh.families.dropped").count()).isEqualTo(1.0);
+	}
+
+	private RefreshTokenService service(long reuseGraceMillis) {
+		return new RefreshTokenService(null, jdbcTemplate, jwtUtil, meterRegistry,
+				ACCESS_LIFETIME, REFRESH_LIFETIME, reuseGraceMillis, 1_000, LEGACY_CUTOFF);
+	}
+
+	private VerifiedToken legacyToken(String id) {
+		long issuedAt = Instant.parse(LEGACY_CUTOFF).toEpochMilli() - 60_000;
+		return new VerifiedToken(user.getEmail(), issuedAt, issuedAt + REFRESH_LIFETIME,
+				id, null, null, null, 0, null, null);
+	}
+
+	private String currentTokenId(String familyId) {
+		return jdbcTemplate.queryForObject(
+				"SELECT current_token_id FROM refresh_token_families WHERE family_id = ?", String.class, familyId);
+	}
+
+	private boolean revoked(String familyId) {
+		return jdbcTemplate.queryForObject(
+				"SELECT revoked FROM refresh_token_families WHERE family_id = ?", Boolean.class, familyId);
+	}
+
+	private static void assertFailure(Runnable call, AuthFailure failure) {
+		assertThatThrownBy(call::run)
+				.isInstanceOfSatisfying(AuthFailureException.class, e -> assertThat(e.getFailure()).isEqualTo(failure));
+	}
+}
@@ -0,0 +1,271 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.exception.EmailAlreadyRegisteredException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * H2 cannot parse {@code ON CONFLICT ... RETURNING}, so the users table is a map behind a JdbcTemplate
+ * stand-in that applies the statement the way Postgres does: new emails get the next id and are returned,
+ * taken ones are skipped.
+ */
+class RegistrationBatcherTests {
+
+	private static final int COLUMNS_PER_ROW = 6;
+
+	private final Map<String, Long> users = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	// Rows sent per statement, in order
+	private final List<Integer> statements = new CopyOnWriteArrayList<>();
+	private volatile RuntimeException failure;
+	// When set, the next statement is held there until released
+	private volatile Hold hold;
+
+	private RegistrationBatcher batcher;
+
+	@BeforeEach
+	void setUp() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		doAnswer(invocation -> {
+			execute(invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+		batcher = new RegistrationBatcher(jdbcTemplate, Runnable::run, new SimpleMeterRegistry(), true, 20, 200);
+		batcher.start();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		batcher.stop();
+	}
+
+	@Test
+	void writesQueuedRegistrationsInOneStatement() {
+		Hold hold = holdNextStatement();
+		CompletableFuture<Long> first = batcher.insert(user("first@example.com"));
+		awaitUninterruptibly(hold.entered());
+
+		List<CompletableFuture<Long>> queued = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			queued.add(batcher.insert(user("user" + i + "@example.com")));
+		}
+		hold.release().countDown();
+
+		assertThat(first.join()).isEqualTo(1L);
+		assertThat(queued).extracting(CompletableFuture::join).doesNotHaveDuplicates().doesNotContain(1L);
+		assertThat(statements).containsExactly(1, 10);
+		assertThat(users).hasSize(11);
+	}
+
+	@Test
+	void repeatsAndTakenEmailsAreConflicts() {
+		users.put("taken@example.com", sequence.incrementAndGet());
+		Hold hold = holdNextStatement();
+		batcher.insert(user("first@example.com"));
+		awaitUninterruptibly(hold.entered());
+
+		CompletableFuture<Long> fresh = batcher.insert(user("fresh@example.com"));
+		CompletableFuture<Long> repeat = batcher.insert(user("fresh@example.com"));
+		CompletableFuture<Long> taken = batcher.insert(user("taken@example.com"));
+		CompletableFuture<Long> other = batcher.insert(user("other@example.com"));
+		hold.release().countDown();
+
+		assertThat(fresh.join()).isEqualTo(users.get("fresh@example.com"));
+		assertThat(other.join()).isEqualTo(users.get("other@example.com"));
+		assertConflict(repeat);
+		assertConflict(taken);
+		assertThat(users.get("taken@example.com")).isEqualTo(1L);
+		// The repeat never reaches the statement; the taken email does and is skipped there
+		assertThat(statements).containsExactly(1, 3);
+	}
+
+	@Test
+	void aFailedStatementFailsEveryCallerInTheBatch() {
+		Hold hold = holdNextStatement();
+		batcher.insert(user("first@example.com"));
+		awaitUninterruptibly(hold.entered());
+
+		failure = new DataAccessResourceFailureException("connection refused");
+		CompletableFuture<Long> one = batcher.insert(user("one@example.com"));
+		CompletableFuture<Long> repeat = batcher.insert(user("one@example.com"));
+		CompletableFuture<Long> two = batcher.insert(user("two@example.com"));
+		hold.release().countDown();
+
+		for (CompletableFuture<Long> result : List.of(one, repeat, two)) {
+			assertThatThrownBy(result::join).isInstanceOf(CompletionException.class)
+					.hasCauseInstanceOf(DataAccessResourceFailureException.class);
+		}
+		assertThat(users).doesNotContainKeys("one@example.com", "two@example.com");
+
+		// The worker keeps going once the database is back
+		failure = null;
+		assertThat(batcher.insert(user("one@example.com")).join()).isEqualTo(users.get("one@example.com"));
+	}
+
+	@Test
+	void stopWritesWhatIsQueuedAndRefusesTheRest() throws Exception {
+		Hold hold = holdNextStatement();
+		CompletableFuture<Long> inFlight = batcher.insert(user("first@example.com"));
+		awaitUninterruptibly(hold.entered());
+		List<CompletableFuture<Long>> queued = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			queued.add(batcher.insert(user("queued" + i + "@example.com")));
+		}
+
+		Thread stopping = new Thread(() -> {
+			try {
+				batcher.stop();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		stopping.start();
+		// Stop has refused new work and is waiting for the worker to finish the held statement
+		await().atMost(Duration.ofSeconds(2)).until(() -> stopping.getState() == Thread.State.TIMED_WAITING);
+		assertThatThrownBy(() -> batcher.insert(user("late@example.com"))).isInstanceOf(IllegalStateException.class);
+		hold.release().countDown();
+		stopping.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertThat(inFlight.join()).isEqualTo(1L);
+		assertThat(queued).extracting(CompletableFuture::join).hasSize(3).doesNotContainNull();
+		assertThat(users).hasSize(4).doesNotContainKey("late@example.com");
+	}
+
+	@Test
+	void noRegistrationIsStrandedWhenStopRacesInserts() throws Exception {
+		Queue<CompletableFuture<Long>> accepted = new ConcurrentLinkedQueue<>();
+		List<Thread> clients = new ArrayList<>();
+		for (int c = 0; c < 4; c++) {
+			int client = c;
+			Thread thread = new Thread(() -> {
+				try {
+					for (int i = 0; i < 2_000; i++) {
+						accepted.add(batcher.insert(user("client" + client + "-" + i + "@example.com")));
+					}
+				} catch (IllegalStateException e) {
+					// Refused once stop has begun
+				}
+			});
+			clients.add(thread);
+			thread.start();
+		}
+		await().atMost(Duration.ofSeconds(5)).until(() -> users.size() > 100);
+
+		batcher.stop();
+		for (Thread thread : clients) {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		}
+
+		// Every accepted registration was written and answered before stop returned
+		assertThat(accepted).allMatch(result -> result.isDone() && !result.isCompletedExceptionally());
+		assertThat(users).hasSize(accepted.size());
+		assertThatThrownBy(() -> batcher.insert(user("late@example.com"))).isInstanceOf(IllegalStateException.class);
+	}
+
+	private void execute(PreparedStatementSetter setter, RowCallbackHandler rows) throws Exception {
+		Hold held = hold;
+		if (held != null) {
+			hold = null;
+			held.entered().countDown();
+			awaitUninterruptibly(held.release());
+		}
+		RuntimeException failing = failure;
+		if (failing != null) {
+			throw failing;
+		}
+
+		List<Object> parameters = new ArrayList<>();
+		PreparedStatement ps = mock(PreparedStatement.class, invocation -> {
+			if (invocation.getMethod().getName().startsWith("set")) {
+				int index = invocation.getArgument(0);
+				while (parameters.size() < index) {
+					parameters.add(null);
+				}
+				parameters.set(index - 1, invocation.getArgument(1));
+			}
+			return null;
+		});
+		setter.setValues(ps);
+		statements.add(parameters.size() / COLUMNS_PER_ROW);
+		for (int row = 0; row < parameters.size(); row += COLUMNS_PER_ROW) {
+			String email = (String) parameters.get(row);
+			long id = sequence.incrementAndGet();
+			if (users.putIfAbsent(email, id) == null) {
+				ResultSet rs = mock(ResultSet.class);
+				when(rs.getLong(1)).thenReturn(id);
+				when(rs.getString(2)).thenReturn(email);
+				rows.processRow(rs);
+			}
+		}
+	}
+
+	private Hold holdNextStatement() {
+		hold = new Hold(new CountDownLatch(1), new CountDownLatch(1));
+		return hold;
+	}
+
+	// The batcher interrupts its worker on stop; a statement already sent still runs to completion
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static User user(String email) {
+		return User.builder()
+				.email(email)
+				.password("{bcrypt}hash")
+				.firstName("First")
+				.lastName("Last")
+				.build();
+	}
+
+	private static void assertConflict(CompletableFuture<Long> result) {
+		assertThatThrownBy(result::join).isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(EmailAlreadyRegisteredException.class);
+	}
+
+	private record Hold(CountDownLatch entered, CountDownLatch release) {
+	}
+}
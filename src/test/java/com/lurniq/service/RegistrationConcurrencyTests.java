@@ -0,0 +1,111 @@
+package com.lurniq.service;
+
+import com.lurniq.dto.RegisterRequest;
+import com.lurniq.exception.EmailAlreadyRegisteredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+		"auth.password-hashing.bcrypt-cost=4",
+		"auth.password-hashing.queue-capacity=1000"
+})
+@ActiveProfiles("test")
+class RegistrationConcurrencyTests {
+
+	private static final int REGISTRATIONS = 1000;
+	private static final int DISTINCT_EMAILS = 250;
+
+	// Unique per run, so users left by another run or test class never collide with these
+	private final String emailPrefix = "concurrent-" + UUID.randomUUID() + "-";
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private EmailService emailService;
+
+	@AfterEach
+	void removeUsers() {
+		jdbcTemplate.update("DELETE FROM email_verification_tokens WHERE user_id IN (SELECT id FROM users WHERE email LIKE ?)",
+				emailPrefix + "%");
+		jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", emailPrefix + "%");
+	}
+
+	@Test
+	void overlappingRegistrationsCreateEachEmailOnce() throws Exception {
+		when(emailService.sendActivationEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger duplicates = new AtomicInteger();
+		List<Throwable> unexpected = new ArrayList<>();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService clients = Executors.newFixedThreadPool(64);
+		List<CompletableFuture<Void>> outcomes = new ArrayList<>(REGISTRATIONS);
+
+		for (int i = 0; i < REGISTRATIONS; i++) {
+			RegisterRequest request = RegisterRequest.builder()
+					.firstName("Load")
+					.lastName("Test")
+					.email(emailPrefix + (i % DISTINCT_EMAILS) + "@example.com")
+					.password("password-" + i)
+					.build();
+			outcomes.add(CompletableFuture.runAsync(() -> {
+				try {
+					start.await();
+					authService.register(request, response -> response).join();
+					created.incrementAndGet();
+				} catch (CompletionException e) {
+					if (e.getCause() instanceof EmailAlreadyRegisteredException) {
+						duplicates.incrementAndGet();
+					} else {
+						synchronized (unexpected) {
+							unexpected.add(e.getCause());
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, clients));
+		}
+
+		long startedAt = System.nanoTime();
+		start.countDown();
+		CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+		double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+		clients.shutdown();
+
+		System.out.printf("registrations=%d distinct=%d created=%d duplicates=%d unexpected=%d in %.2fs (%.0f/s)%n",
+				REGISTRATIONS, DISTINCT_EMAILS, created.get(), duplicates.get(), unexpected.size(),
+				seconds, REGISTRATIONS / seconds);
+
+		assertThat(unexpected).isEmpty();
+		assertThat(created.get()).isEqualTo(DISTINCT_EMAILS);
+		assertThat(duplicates.get()).isEqualTo(REGISTRATIONS - DISTINCT_EMAILS);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email LIKE ?", Long.class, emailPrefix + "%"))
+				.isEqualTo(DISTINCT_EMAILS);
+	}
+
+}
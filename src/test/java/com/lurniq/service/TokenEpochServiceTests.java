@@ -0,0 +1,71 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.User;
+import com.lurniq.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenEpochServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final TokenEpochService service = new TokenEpochService(userRepository);
+
+	@Test
+	void issuesWithTheRowEpochBeforeItIsSynced() {
+		// Bumped on another instance: the row already says 3, this instance has not synced
+		User user = user(3);
+
+		assertThat(service.issueEpoch(user)).isEqualTo(3);
+		// And tokens of the old epoch stop passing here right away
+		assertThat(service.isCurrent(1L, 2)).isFalse();
+	}
+
+	@Test
+	void issuesWithTheLocalEpochWhenTheRowIsStale() {
+		when(userRepository.findTokenEpochById(1L)).thenReturn(Optional.of(4));
+		service.bump(1L);
+
+		assertThat(service.issueEpoch(user(2))).isEqualTo(4);
+	}
+
+	@Test
+	void aStaleSyncDoesNotUndoALocalBump() {
+		when(userRepository.findTokenEpochById(1L)).thenReturn(Optional.of(5));
+		service.bump(1L);
+		when(userRepository.findTokenEpochsUpdatedSince(any(LocalDateTime.class)))
+				.thenReturn(List.<Object[]>of(new Object[] {1L, 4}));
+
+		service.syncEpochs();
+
+		assertThat(service.isCurrent(1L, 4)).isFalse();
+		assertThat(service.isCurrent(1L, 5)).isTrue();
+	}
+
+	@Test
+	void aSyncPicksUpBumpsFromOtherInstances() {
+		when(userRepository.findTokenEpochsUpdatedSince(any(LocalDateTime.class)))
+				.thenReturn(List.<Object[]>of(new Object[] {1L, 2}));
+
+		service.syncEpochs();
+
+		assertThat(service.isCurrent(1L, 1)).isFalse();
+		assertThat(service.isCurrent(1L, 2)).isTrue();
+	}
+
+	private static User user(int tokenEpoch) {
+		return User.builder()
+				.id(1L)
+				.email("user1@example.com")
+				.role(User.Role.USER)
+				.tokenEpoch(tokenEpoch)
+				.build();
+	}
+}
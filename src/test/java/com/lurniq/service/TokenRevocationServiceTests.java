@@ -0,0 +1,89 @@
+package com.lurniq.service;
+
+import com.lurniq.entity.RevokedToken;
+import com.lurniq.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTests {
+
+	private RevokedTokenRepository repository;
+	private TokenRevocationService service;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(RevokedTokenRepository.class);
+		service = new TokenRevocationService(repository, new SimpleMeterRegistry(), 1_000, 0.001);
+	}
+
+	@Test
+	void persistsARevocationUntilTheTokenExpires() {
+		long expiresAt = System.currentTimeMillis() + 60_000;
+
+		service.revoke("token-1", expiresAt);
+
+		assertThat(service.isRevoked("token-1")).isTrue();
+		ArgumentCaptor<RevokedToken> saved = ArgumentCaptor.forClass(RevokedToken.class);
+		verify(repository).save(saved.capture());
+		assertThat(saved.getValue().getTokenId()).isEqualTo("token-1");
+		assertThat(saved.getValue().getExpiryDate()).isAfter(LocalDateTime.now());
+	}
+
+	@Test
+	void ignoresTokensThatHaveAlreadyExpired() {
+		service.revoke("token-1", System.currentTimeMillis() - 1);
+
+		assertThat(service.isRevoked("token-1")).isFalse();
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	void aFailedWriteStillRevokesLocallyAndSurfaces() {
+		when(repository.save(any())).thenThrow(new IllegalStateException("database down"));
+
+		assertThatThrownBy(() -> service.revoke("token-1", System.currentTimeMillis() + 60_000))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(service.isRevoked("token-1")).isTrue();
+	}
+
+	@Test
+	void reloadsRevocationsOnStartup() {
+		when(repository.findActive(any())).thenReturn(List.of(revoked("token-1"), revoked("token-2")));
+
+		service.loadRevocations();
+
+		assertThat(service.isRevoked("token-1")).isTrue();
+		assertThat(service.isRevoked("token-2")).isTrue();
+		assertThat(service.isRevoked("token-3")).isFalse();
+	}
+
+	@Test
+	void picksUpRevocationsFromOtherInstances() {
+		when(repository.findActiveRevokedSince(any(), any())).thenReturn(List.of(revoked("token-1")));
+
+		service.syncRevocations();
+
+		assertThat(service.isRevoked("token-1")).isTrue();
+	}
+
+	private static RevokedToken revoked(String tokenId) {
+		return RevokedToken.builder()
+				.tokenId(tokenId)
+				.expiryDate(LocalDateTime.now().plusHours(1))
+				.revokedAt(LocalDateTime.now())
+				.build();
+	}
+}
@@ -0,0 +1,145 @@
+package com.lurniq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.entity.User;
+import com.lurniq.repository.RevokedTokenRepository;
+import com.lurniq.repository.UserRepository;
+import com.lurniq.tokens.TokenDigest;
+import com.lurniq.tokens.wire.ValidationProtocol;
+import com.lurniq.tokens.wire.ValidationResult;
+import com.lurniq.tokens.wire.ValidationStatus;
+import com.lurniq.util.AccessTokenVerifier;
+import com.lurniq.util.JwtKeyRing;
+import com.lurniq.util.JwtUtil;
+import com.lurniq.util.RejectedTokenCache;
+import com.lurniq.util.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenValidationServerTests {
+
+	private static final long ACCESS_LIFETIME = 86_400_000L;
+
+	private final User user = User.builder()
+			.id(42L)
+			.email("user42@example.com")
+			.role(User.Role.USER)
+			.emailVerified(true)
+			.build();
+
+	private JwtKeyRing keyRing;
+	private JwtUtil jwtUtil;
+	private RejectedTokenCache rejectedTokenCache;
+	private TokenValidationServer server;
+
+	@BeforeEach
+	void setUp() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		keyRing = new JwtKeyRing(new JwtKeyRingProperties(), new ObjectMapper(),
+				"token-validation-server-test-secret-long-enough-for-hs256", ACCESS_LIFETIME * 7);
+		// Tokens without a uid claim resolve their user by email; here that lookup fails like a lost database
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findIdByEmail(anyString())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+		TokenEpochService tokenEpochService = new TokenEpochService(userRepository);
+		jwtUtil = new JwtUtil(keyRing, tokenEpochService);
+		ReflectionTestUtils.setField(jwtUtil, "expiration", ACCESS_LIFETIME);
+		ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", ACCESS_LIFETIME * 7);
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaximumSize", 1_000L);
+		ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+		AccessTokenVerifier verifier = new AccessTokenVerifier(new VerifiedTokenCache(jwtUtil, meterRegistry),
+				new TokenRevocationService(mock(RevokedTokenRepository.class), meterRegistry, 1_000, 0.001),
+				tokenEpochService,
+				new OpaqueTokenService(null, null, tokenEpochService, meterRegistry, false, ACCESS_LIFETIME, ACCESS_LIFETIME * 7, 0),
+				ACCESS_LIFETIME);
+		rejectedTokenCache = new RejectedTokenCache(meterRegistry, 1_000, 60_000);
+		server = new TokenValidationServer(verifier, rejectedTokenCache, true, "127.0.0.1", 0, 4);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	void answersPipelinedRequestsOnOneConnection() throws Exception {
+		String valid = jwtUtil.generateToken(user);
+		String withoutUserId = tokenWithoutUserId();
+
+		try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out.writeInt(ValidationProtocol.MAGIC);
+			ValidationProtocol.writeRequest(out, 1, valid);
+			ValidationProtocol.writeRequest(out, 2, "not-a-token");
+			ValidationProtocol.writeRequest(out, 3, withoutUserId);
+			// The connection survives the failed lookup and keeps answering
+			ValidationProtocol.writeRequest(out, 4, valid);
+			out.flush();
+
+			ValidationResult first = ValidationProtocol.readResult(in);
+			assertThat(first.requestId()).isEqualTo(1);
+			assertThat(first.status()).isEqualTo(ValidationStatus.VALID);
+			assertThat(first.userId()).isEqualTo(42L);
+			assertThat(first.subject()).isEqualTo("user42@example.com");
+			assertThat(first.role()).isEqualTo("USER");
+			assertThat(first.emailVerified()).isTrue();
+
+			ValidationResult malformed = ValidationProtocol.readResult(in);
+			assertThat(malformed.requestId()).isEqualTo(2);
+			assertThat(malformed.status()).isEqualTo(ValidationStatus.MALFORMED);
+
+			ValidationResult failed = ValidationProtocol.readResult(in);
+			assertThat(failed.requestId()).isEqualTo(3);
+			assertThat(failed.status()).isEqualTo(ValidationStatus.INTERNAL_ERROR);
+
+			ValidationResult again = ValidationProtocol.readResult(in);
+			assertThat(again.requestId()).isEqualTo(4);
+			assertThat(again.status()).isEqualTo(ValidationStatus.VALID);
+		}
+
+		// Only the token's own fault is remembered
+		assertThat(rejectedTokenCache.getIfPresent(TokenDigest.of("not-a-token"))).isNotNull();
+		assertThat(rejectedTokenCache.getIfPresent(TokenDigest.of(withoutUserId))).isNull();
+	}
+
+	@Test
+	void closesConnectionsWithABadHeader() throws Exception {
+		try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(0x12345678);
+			out.flush();
+
+			assertThat(socket.getInputStream().read()).isEqualTo(-1);
+		}
+	}
+
+	private String tokenWithoutUserId() {
+		long now = System.currentTimeMillis();
+		return keyRing.sign(Jwts.builder()
+				.claims(Map.of("role", "USER"))
+				.id("no-uid")
+				.subject("user42@example.com")
+				.issuedAt(new Date(now))
+				.expiration(new Date(now + ACCESS_LIFETIME))).compact();
+	}
+}
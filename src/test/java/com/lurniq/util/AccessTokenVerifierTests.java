@@ -0,0 +1,111 @@
+package com.lurniq.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.entity.User;
+import com.lurniq.exception.RevokedJwtException;
+import com.lurniq.repository.RevokedTokenRepository;
+import com.lurniq.service.OpaqueTokenService;
+import com.lurniq.service.TokenEpochService;
+import com.lurniq.service.TokenRevocationService;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+class AccessTokenVerifierTests {
+
+	private static final long ACCESS_LIFETIME = 86_400_000L;
+	private static final long REFRESH_LIFETIME = 604_800_000L;
+
+	private final User user = User.builder()
+			.id(42L)
+			.email("user42@example.com")
+			.role(User.Role.USER)
+			.emailVerified(true)
+			.build();
+
+	private JwtKeyRing keyRing;
+	private JwtUtil jwtUtil;
+	private TokenRevocationService tokenRevocationService;
+	private AccessTokenVerifier verifier;
+
+	@BeforeEach
+	void setUp() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		keyRing = new JwtKeyRing(new JwtKeyRingProperties(), new ObjectMapper(),
+				"access-token-verifier-test-secret-long-enough-for-hs256", REFRESH_LIFETIME);
+		TokenEpochService tokenEpochService = new TokenEpochService(null);
+		jwtUtil = new JwtUtil(keyRing, tokenEpochService);
+		ReflectionTestUtils.setField(jwtUtil, "expiration", ACCESS_LIFETIME);
+		ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", REFRESH_LIFETIME);
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaximumSize", 1_000L);
+		jwtUtil.init();
+		tokenRevocationService = new TokenRevocationService(mock(RevokedTokenRepository.class), meterRegistry, 1_000, 0.001);
+		OpaqueTokenService opaqueTokenService = new OpaqueTokenService(null, null, tokenEpochService, meterRegistry,
+				false, ACCESS_LIFETIME, REFRESH_LIFETIME, 0);
+		verifier = new AccessTokenVerifier(new VerifiedTokenCache(jwtUtil, meterRegistry), tokenRevocationService,
+				tokenEpochService, opaqueTokenService, ACCESS_LIFETIME);
+	}
+
+	@Test
+	void acceptsAnAccessToken() {
+		String token = jwtUtil.generateToken(user);
+
+		assertThat(verifier.verify(token).subject()).isEqualTo("user42@example.com");
+	}
+
+	@Test
+	void rejectsARefreshTokenWithAFamily() {
+		String token = jwtUtil.generateRefreshToken(user, "family-1", "token-1");
+
+		Throwable thrown = catchThrowable(() -> verifier.verify(token));
+
+		assertThat(thrown).isInstanceOf(JwtException.class).hasMessageContaining("Refresh tokens");
+		assertThat(JwtRejection.of((Exception) thrown)).isEqualTo(JwtRejection.ERROR);
+	}
+
+	@Test
+	void rejectsAPreFamilyRefreshToken() {
+		// No role, no family id, refresh lifetime: what refresh tokens looked like before rotation
+		String token = sign(null, REFRESH_LIFETIME);
+
+		assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void acceptsAnAccessTokenIssuedBeforeIdentityClaims() {
+		String token = sign(null, ACCESS_LIFETIME);
+
+		assertThat(verifier.verify(token).role()).isNull();
+	}
+
+	@Test
+	void rejectsARevokedAccessToken() {
+		String token = jwtUtil.generateToken(user);
+		tokenRevocationService.revoke(jwtUtil.parseToken(token).id(), System.currentTimeMillis() + ACCESS_LIFETIME);
+
+		assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(RevokedJwtException.class);
+	}
+
+	private String sign(String role, long lifetime) {
+		long now = System.currentTimeMillis();
+		var builder = Jwts.builder()
+				.claims(role == null ? Map.of("uid", 42L) : Map.of("uid", 42L, "role", role))
+				.id("legacy-" + lifetime)
+				.subject("user42@example.com")
+				.issuedAt(new Date(now))
+				.expiration(new Date(now + lifetime));
+		return keyRing.sign(builder).compact();
+	}
+}
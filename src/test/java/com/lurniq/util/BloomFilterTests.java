@@ -0,0 +1,90 @@
+package com.lurniq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+	@Test
+	void neverReportsAnInsertedValueAsAbsent() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("token-" + i);
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("token-" + i)).as("token-%d", i).isTrue();
+		}
+		assertThat(filter.approximateInsertions()).isEqualTo(10_000);
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheConfiguredProbability() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("present-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("absent-" + i)) {
+				falsePositives++;
+			}
+		}
+		// Twice the target leaves room for variance while still catching a broken hash or sizing
+		assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+		assertThat(filter.expectedFalsePositiveProbability()).isBetween(0.005, 0.015);
+	}
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = BloomFilter.create(0, 0.01);
+
+		assertThat(filter.mightContain("anything")).isFalse();
+		assertThat(filter.mightContainHash(0L)).isFalse();
+		assertThat(filter.memoryBytes()).isPositive();
+	}
+
+	@Test
+	void rawHashesAndStringsShareTheSameBits() {
+		BloomFilter filter = BloomFilter.create(100, 0.01);
+		filter.putHash(BloomFilter.hash("jti-1"));
+		filter.put("jti-2");
+
+		assertThat(filter.mightContain("jti-1")).isTrue();
+		assertThat(filter.mightContainHash(BloomFilter.hash("jti-2"))).isTrue();
+	}
+
+	@Test
+	void concurrentInsertionsAreNotLost() throws Exception {
+		BloomFilter filter = BloomFilter.create(80_000, 0.001);
+		ExecutorService writers = Executors.newFixedThreadPool(8);
+		List<Future<?>> done = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			int thread = t;
+			done.add(writers.submit(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					filter.put(thread + ":" + i);
+				}
+			}));
+		}
+		for (Future<?> future : done) {
+			future.get();
+		}
+		writers.shutdown();
+
+		for (int t = 0; t < 8; t++) {
+			for (int i = 0; i < 10_000; i++) {
+				assertThat(filter.mightContain(t + ":" + i)).isTrue();
+			}
+		}
+		assertThat(filter.approximateInsertions()).isEqualTo(80_000);
+	}
+}
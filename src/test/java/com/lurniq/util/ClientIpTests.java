@@ -0,0 +1,26 @@
+package com.lurniq.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientIpTests {
+
+	@Test
+	void usesTheHopAppendedByTheProxy() {
+		assertThat(ClientIp.resolve("203.0.113.7", "10.0.0.1")).isEqualTo("203.0.113.7");
+		assertThat(ClientIp.resolve("1.2.3.4, 203.0.113.7", "10.0.0.1")).isEqualTo("203.0.113.7");
+		assertThat(ClientIp.resolve("spoofed,1.2.3.4 ,  203.0.113.7 ", "10.0.0.1")).isEqualTo("203.0.113.7");
+	}
+
+	@Test
+	void ignoresClientSuppliedEntriesWhenTheLastHopIsBlank() {
+		assertThat(ClientIp.resolve("1.2.3.4,", "10.0.0.1")).isEqualTo("10.0.0.1");
+		assertThat(ClientIp.resolve("   ", "10.0.0.1")).isEqualTo("10.0.0.1");
+	}
+
+	@Test
+	void fallsBackToTheRemoteAddressWithoutTheHeader() {
+		assertThat(ClientIp.resolve(null, "10.0.0.1")).isEqualTo("10.0.0.1");
+	}
+}
@@ -0,0 +1,109 @@
+package com.lurniq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomainTrieTests {
+
+	@Test
+	void matchesListedDomainsAndTheirSubdomains() {
+		DomainTrie trie = DomainTrie.build(List.of("example.com", "mailinator.net"));
+
+		assertThat(trie.matches("user@example.com")).isTrue();
+		assertThat(trie.matches("user@mail.example.com")).isTrue();
+		assertThat(trie.matches("user@a.b.c.mailinator.net")).isTrue();
+		assertThat(trie.matches("example.com")).as("bare domain").isTrue();
+	}
+
+	@Test
+	void doesNotMatchLookalikesOrParents() {
+		DomainTrie trie = DomainTrie.build(List.of("example.com", "mail.example.org"));
+
+		assertThat(trie.matches("user@notexample.com")).isFalse();
+		assertThat(trie.matches("user@example.com.evil")).isFalse();
+		assertThat(trie.matches("user@example.co")).isFalse();
+		assertThat(trie.matches("user@com")).isFalse();
+		assertThat(trie.matches("user@example.org")).as("parent of a listed subdomain").isFalse();
+		assertThat(trie.matches("user@inbox.example.org")).as("sibling of a listed subdomain").isFalse();
+		assertThat(trie.matches("user@mail.example.org")).isTrue();
+	}
+
+	@Test
+	void ignoresCase() {
+		DomainTrie trie = DomainTrie.build(List.of("Example.COM"));
+
+		assertThat(trie.matches("User@MAIL.Example.com")).isTrue();
+		assertThat(trie.matches("user@EXAMPLE.COM")).isTrue();
+	}
+
+	@Test
+	void normalizesEntries() {
+		DomainTrie trie = DomainTrie.build(List.of("*.wildcard.org", "@at.net", "trailing.io.", "  spaced.dev\t"));
+
+		assertThat(trie.matches("user@wildcard.org")).isTrue();
+		assertThat(trie.matches("user@sub.wildcard.org")).isTrue();
+		assertThat(trie.matches("user@at.net")).isTrue();
+		assertThat(trie.matches("user@trailing.io")).isTrue();
+		assertThat(trie.matches("user@spaced.dev")).isTrue();
+		assertThat(trie.size()).isEqualTo(4);
+	}
+
+	@Test
+	void usesTheDomainAfterTheLastAtSignAndIgnoresATrailingDot() {
+		DomainTrie trie = DomainTrie.build(List.of("example.com"));
+
+		assertThat(trie.matches("\"odd@local\"@example.com")).isTrue();
+		assertThat(trie.matches("user@example.com@other.org")).isFalse();
+		assertThat(trie.matches("user@example.com.")).isTrue();
+	}
+
+	@Test
+	void skipsBlankEntriesAndCountsDistinctDomains() {
+		DomainTrie trie = DomainTrie.build(Arrays.asList("", "   ", null, ".", "example.com", "EXAMPLE.com", "*.example.com",
+				"mail.example.com"));
+
+		assertThat(trie.size()).as("example.com once, mail.example.com once").isEqualTo(2);
+		assertThat(trie.matches("")).isFalse();
+		assertThat(trie.matches("user@")).isFalse();
+		assertThat(trie.matches("user@.")).isFalse();
+	}
+
+	@Test
+	void emptyTrieMatchesNothing() {
+		assertThat(DomainTrie.empty().size()).isZero();
+		assertThat(DomainTrie.empty().matches("user@example.com")).isFalse();
+		assertThat(DomainTrie.build(List.of()).matches("example.com")).isFalse();
+	}
+
+	@Test
+	void findsEveryDomainAmongManySiblings() {
+		List<String> domains = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			domains.add("throwaway" + i + (i % 3 == 0 ? ".net" : ".com"));
+		}
+		DomainTrie trie = DomainTrie.build(domains);
+
+		assertThat(trie.size()).isEqualTo(5_000);
+		for (int i = 0; i < 5_000; i++) {
+			assertThat(trie.matches("bot@inbox.throwaway" + i + (i % 3 == 0 ? ".net" : ".com"))).as("throwaway%d", i).isTrue();
+			assertThat(trie.matches("bot@throwaway" + i + (i % 3 == 0 ? ".com" : ".net"))).as("throwaway%d, other TLD", i).isFalse();
+		}
+		assertThat(trie.matches("bot@throwaway5000.com")).isFalse();
+	}
+
+	@Test
+	void tellsApartLabelsWithTheSameHash() {
+		// "aan" and "ac0" have the same String hash
+		DomainTrie trie = DomainTrie.build(List.of("aan.com", "x.ac0.org"));
+
+		assertThat(trie.matches("user@aan.com")).isTrue();
+		assertThat(trie.matches("user@ac0.com")).isFalse();
+		assertThat(trie.matches("user@x.ac0.org")).isTrue();
+		assertThat(trie.matches("user@x.aan.org")).isFalse();
+	}
+}
@@ -0,0 +1,249 @@
+package com.lurniq.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lurniq.config.JwtKeyRingProperties;
+import com.lurniq.config.JwtKeyRingProperties.KeyDefinition;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class JwtKeyRingTests {
+
+	private static final String SECRET = "jwt-key-ring-test-secret-long-enough-for-hs256";
+	private static final long GRACE = Duration.ofDays(7).toMillis();
+
+	private static final KeyPair ES_KEYS = generate("EC");
+	private static final KeyPair ED_KEYS = generate("Ed25519");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void signsWithTheLegacySecretWhenNothingElseIsConfigured() {
+		JwtKeyRing keyRing = keyRing(properties(), GRACE);
+
+		String token = sign(keyRing);
+
+		assertThat(parse(keyRing, token).getHeader().getKeyId()).isEqualTo("hs-default");
+		assertThat(keyRing.activeHmacSigningKey()).isNotNull();
+	}
+
+	@Test
+	void signsWithTheNewestKeyWhoseWindowIsOpen() {
+		Instant now = Instant.now();
+		JwtKeyRingProperties properties = properties(
+				es("es-old", now.minus(Duration.ofDays(30)), null),
+				ed("ed-new", now.minus(Duration.ofDays(1)), null),
+				es("es-future", now.plus(Duration.ofDays(1)), null));
+		JwtKeyRing keyRing = keyRing(properties, GRACE);
+
+		assertThat(parse(keyRing, sign(keyRing)).getHeader().getKeyId()).isEqualTo("ed-new");
+		assertThat(keyRing.activeHmacSigningKey()).isNull();
+	}
+
+	@Test
+	void aPinnedKeySignsWhileItsWindowIsOpen() {
+		Instant now = Instant.now();
+		JwtKeyRingProperties properties = properties(
+				es("es-pinned", now.minus(Duration.ofDays(30)), now.plusMillis(500)),
+				ed("ed-new", now.minus(Duration.ofDays(1)), null));
+		properties.setActiveKid("es-pinned");
+		JwtKeyRing keyRing = keyRing(properties, GRACE);
+
+		assertThat(parse(keyRing, sign(keyRing)).getHeader().getKeyId()).isEqualTo("es-pinned");
+		// Once its window closes the newest open key takes over instead of signing past not-after
+		await().atMost(Duration.ofSeconds(3))
+				.until(() -> parse(keyRing, sign(keyRing)).getHeader().getKeyId().equals("ed-new"));
+	}
+
+	@Test
+	void refusesToStartWithAPinnedKeyThatCannotSign() {
+		Instant now = Instant.now();
+
+		JwtKeyRingProperties notYetOpen = properties(es("es-next", now.plus(Duration.ofDays(1)), null));
+		notYetOpen.setActiveKid("es-next");
+		assertThatThrownBy(() -> keyRing(notYetOpen, GRACE))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("signing window");
+
+		JwtKeyRingProperties closed = properties(es("es-old", null, now.minus(Duration.ofDays(1))));
+		closed.setActiveKid("es-old");
+		assertThatThrownBy(() -> keyRing(closed, GRACE))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("signing window");
+
+		KeyDefinition verifyOnly = es("es-verify-only", null, null);
+		verifyOnly.setPrivateKey(null);
+		JwtKeyRingProperties withoutPrivateKey = properties(verifyOnly);
+		withoutPrivateKey.setActiveKid("es-verify-only");
+		assertThatThrownBy(() -> keyRing(withoutPrivateKey, GRACE))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("signing material");
+
+		JwtKeyRingProperties unknown = properties();
+		unknown.setActiveKid("missing");
+		assertThatThrownBy(() -> keyRing(unknown, GRACE)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void aRetiredKeyVerifiesForTheGracePeriodOnly() {
+		String token = sign(keyRing(properties(es("es-1", null, null)), GRACE));
+		KeyDefinition retiredAnHourAgo = es("es-1", null, Instant.now().minus(Duration.ofHours(1)));
+
+		JwtKeyRing withinGrace = keyRing(properties(retiredAnHourAgo), Duration.ofHours(2).toMillis());
+		assertThat(parse(withinGrace, token).getPayload().getSubject()).isEqualTo("user42@example.com");
+		// The retired key no longer signs, so new tokens fall back to the legacy secret
+		assertThat(parse(withinGrace, sign(withinGrace)).getHeader().getKeyId()).isEqualTo("hs-default");
+
+		JwtKeyRing pastGrace = keyRing(properties(retiredAnHourAgo), Duration.ofMinutes(30).toMillis());
+		assertThatThrownBy(() -> parse(pastGrace, token)).isInstanceOf(SignatureException.class);
+	}
+
+	@Test
+	void aKeyDoesNotVerifyBeforeItsWindowOpens() {
+		String token = sign(keyRing(properties(es("es-1", null, null)), GRACE));
+
+		JwtKeyRing keyRing = keyRing(properties(es("es-1", Instant.now().plus(Duration.ofDays(1)), null)), GRACE);
+
+		assertThatThrownBy(() -> parse(keyRing, token)).isInstanceOf(SignatureException.class);
+	}
+
+	@Test
+	void theLegacySecretAndKidlessTokensRetireTogether() {
+		String kidless = Jwts.builder()
+				.subject("user42@example.com")
+				.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+		Instant retiredAnHourAgo = Instant.now().minus(Duration.ofHours(1));
+
+		JwtKeyRingProperties withinGrace = properties(es("es-1", null, null));
+		withinGrace.setSecretNotAfter(retiredAnHourAgo);
+		JwtKeyRing rotated = keyRing(withinGrace, Duration.ofHours(2).toMillis());
+		assertThat(parse(rotated, kidless).getPayload().getSubject()).isEqualTo("user42@example.com");
+		assertThat(rotated.hmacVerificationKey(null)).isNotNull();
+		assertThat(parse(rotated, sign(rotated)).getHeader().getKeyId()).isEqualTo("es-1");
+
+		JwtKeyRingProperties pastGrace = properties(es("es-1", null, null));
+		pastGrace.setSecretNotAfter(retiredAnHourAgo);
+		JwtKeyRing retired = keyRing(pastGrace, Duration.ofMinutes(30).toMillis());
+		assertThatThrownBy(() -> parse(retired, kidless)).isInstanceOf(SignatureException.class);
+		assertThat(retired.hmacVerificationKey(null)).isNull();
+		assertThat(retired.hmacVerificationKey("hs-default")).isNull();
+	}
+
+	@Test
+	void refusesToStartWhenNoKeyCanSign() {
+		JwtKeyRingProperties properties = properties();
+		properties.setSecretNotAfter(Instant.now().minus(Duration.ofHours(1)));
+
+		assertThatThrownBy(() -> keyRing(properties, GRACE))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("No JWT key can sign");
+	}
+
+	@Test
+	void publishesOnlyPublicKeysAsJwks() throws Exception {
+		KeyDefinition hs = new KeyDefinition();
+		hs.setKid("hs-2");
+		hs.setAlgorithm("HS256");
+		hs.setSecret("second-jwt-key-ring-test-secret-long-enough");
+		KeyDefinition verifyOnly = ed("ed-verify-only", null, null);
+		verifyOnly.setPrivateKey(null);
+		JwtKeyRing keyRing = keyRing(properties(hs, es("es-1", null, null), verifyOnly), GRACE);
+
+		JsonNode keys = objectMapper.readTree(keyRing.getJwksJson()).get("keys");
+
+		assertThat(keys).hasSize(2);
+		List<String> kids = new ArrayList<>();
+		keys.forEach(key -> kids.add(key.get("kid").asText()));
+		assertThat(kids).containsExactlyInAnyOrder("es-1", "ed-verify-only");
+		for (JsonNode key : keys) {
+			assertThat(key.get("use").asText()).isEqualTo("sig");
+			assertThat(key.has("d")).isFalse();
+			if (key.get("kid").asText().equals("es-1")) {
+				ECPublicKey publicKey = (ECPublicKey) ES_KEYS.getPublic();
+				assertThat(key.get("kty").asText()).isEqualTo("EC");
+				assertThat(key.get("crv").asText()).isEqualTo("P-256");
+				assertThat(key.get("alg").asText()).isEqualTo("ES256");
+				assertThat(new BigInteger(1, decode(key.get("x")))).isEqualTo(publicKey.getW().getAffineX());
+				assertThat(new BigInteger(1, decode(key.get("y")))).isEqualTo(publicKey.getW().getAffineY());
+				assertThat(decode(key.get("x"))).hasSize(32);
+				assertThat(decode(key.get("y"))).hasSize(32);
+			} else {
+				byte[] encoded = ED_KEYS.getPublic().getEncoded();
+				assertThat(key.get("kty").asText()).isEqualTo("OKP");
+				assertThat(key.get("crv").asText()).isEqualTo("Ed25519");
+				assertThat(key.get("alg").asText()).isEqualTo("EdDSA");
+				assertThat(decode(key.get("x"))).containsExactly(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length));
+			}
+		}
+	}
+
+	private JwtKeyRing keyRing(JwtKeyRingProperties properties, long graceMillis) {
+		return new JwtKeyRing(properties, objectMapper, SECRET, graceMillis);
+	}
+
+	private static String sign(JwtKeyRing keyRing) {
+		return keyRing.sign(Jwts.builder().subject("user42@example.com")).compact();
+	}
+
+	private static Jws<Claims> parse(JwtKeyRing keyRing, String token) {
+		return Jwts.parser().keyLocator(keyRing).build().parseSignedClaims(token);
+	}
+
+	private static JwtKeyRingProperties properties(KeyDefinition... keys) {
+		JwtKeyRingProperties properties = new JwtKeyRingProperties();
+		properties.setKeys(new ArrayList<>(List.of(keys)));
+		return properties;
+	}
+
+	private static KeyDefinition es(String kid, Instant notBefore, Instant notAfter) {
+		return definition(kid, "ES256", ES_KEYS, notBefore, notAfter);
+	}
+
+	private static KeyDefinition ed(String kid, Instant notBefore, Instant notAfter) {
+		return definition(kid, "EdDSA", ED_KEYS, notBefore, notAfter);
+	}
+
+	private static KeyDefinition definition(String kid, String algorithm, KeyPair keys, Instant notBefore, Instant notAfter) {
+		KeyDefinition definition = new KeyDefinition();
+		definition.setKid(kid);
+		definition.setAlgorithm(algorithm);
+		definition.setPrivateKey(Base64.getEncoder().encodeToString(keys.getPrivate().getEncoded()));
+		definition.setPublicKey(Base64.getEncoder().encodeToString(keys.getPublic().getEncoded()));
+		definition.setNotBefore(notBefore);
+		definition.setNotAfter(notAfter);
+		return definition;
+	}
+
+	private static KeyPair generate(String algorithm) {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+			if (algorithm.equals("EC")) {
+				generator.initialize(256);
+			}
+			return generator.generateKeyPair();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] decode(JsonNode value) {
+		return Base64.getUrlDecoder().decode(value.asText());
+	}
+}
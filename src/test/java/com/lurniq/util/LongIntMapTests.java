@@ -0,0 +1,149 @@
+package com.lurniq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntMapTests {
+
+	@Test
+	void missingKeysReturnTheDefault() {
+		LongIntMap map = new LongIntMap();
+
+		assertThat(map.get(42L, -1)).isEqualTo(-1);
+		assertThat(map.size()).isZero();
+	}
+
+	@Test
+	void putOverwritesWithoutGrowing() {
+		LongIntMap map = new LongIntMap();
+		map.put(7L, 1);
+		map.put(7L, 2);
+
+		assertThat(map.get(7L, 0)).isEqualTo(2);
+		assertThat(map.size()).isEqualTo(1);
+	}
+
+	@Test
+	void holdsManyKeysAcrossResizes() {
+		LongIntMap map = new LongIntMap();
+		for (long key = -1_000; key < 1_000; key++) {
+			map.put(key * 1024, (int) key);
+		}
+
+		assertThat(map.size()).isEqualTo(2_000);
+		for (long key = -1_000; key < 1_000; key++) {
+			assertThat(map.get(key * 1024, Integer.MIN_VALUE)).isEqualTo((int) key);
+		}
+		assertThat(map.get(1L, Integer.MIN_VALUE)).isEqualTo(Integer.MIN_VALUE);
+	}
+
+	@Test
+	void putAllMergesIntoExistingEntries() {
+		LongIntMap map = new LongIntMap();
+		map.put(1L, 1);
+		map.put(2L, 2);
+		Map<Long, Integer> updates = new HashMap<>();
+		for (long key = 2; key < 100; key++) {
+			updates.put(key, (int) key * 10);
+		}
+		map.putAll(updates);
+		map.putAll(Map.of());
+
+		assertThat(map.size()).isEqualTo(99);
+		assertThat(map.get(1L, 0)).isEqualTo(1);
+		assertThat(map.get(2L, 0)).isEqualTo(20);
+		assertThat(map.get(99L, 0)).isEqualTo(990);
+	}
+
+	@Test
+	void putIfGreaterNeverLowersAValue() {
+		LongIntMap map = new LongIntMap();
+		map.putIfGreater(1L, 3);
+		map.putIfGreater(1L, 2);
+		map.putIfGreater(2L, 0);
+
+		assertThat(map.get(1L, -1)).isEqualTo(3);
+		assertThat(map.get(2L, -1)).isZero();
+		map.putIfGreater(1L, 4);
+		assertThat(map.get(1L, -1)).isEqualTo(4);
+	}
+
+	@Test
+	void putAllIfGreaterKeepsLargerExistingValues() {
+		LongIntMap map = new LongIntMap();
+		map.put(1L, 5);
+		map.put(2L, 1);
+
+		map.putAllIfGreater(Map.of(1L, 4, 2L, 2, 3L, 3));
+
+		assertThat(map.get(1L, 0)).isEqualTo(5);
+		assertThat(map.get(2L, 0)).isEqualTo(2);
+		assertThat(map.get(3L, 0)).isEqualTo(3);
+	}
+
+	@Test
+	void concurrentPutIfGreaterKeepsTheMaximum() throws Exception {
+		LongIntMap map = new LongIntMap();
+		Thread[] writers = new Thread[4];
+		for (int t = 0; t < writers.length; t++) {
+			int offset = t;
+			writers[t] = new Thread(() -> {
+				for (int value = offset; value < 2_000; value += writers.length) {
+					map.putIfGreater(1L, value);
+					// A stale bulk sync racing the single writes
+					map.putAllIfGreater(Map.of(1L, value / 2));
+				}
+			});
+			writers[t].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		assertThat(map.get(1L, 0)).isEqualTo(1_999);
+	}
+
+	@Test
+	void rejectsTheReservedEmptyKey() {
+		LongIntMap map = new LongIntMap();
+
+		assertThatThrownBy(() -> map.put(Long.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThat(map.size()).isZero();
+	}
+
+	@Test
+	void readersNeverSeeAWriteGoBackwards() throws Exception {
+		LongIntMap map = new LongIntMap();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			int last = 0;
+			while (writing.get()) {
+				int seen = map.get(1L, 0);
+				if (seen < last) {
+					failure.set("read " + seen + " after " + last);
+					return;
+				}
+				last = seen;
+			}
+		});
+		reader.start();
+
+		for (int value = 1; value <= 2_000; value++) {
+			map.put(1L, value);
+			map.put(value + 1L, value);
+		}
+		writing.set(false);
+		reader.join();
+
+		assertThat(failure.get()).isNull();
+		assertThat(map.get(1L, 0)).isEqualTo(2_000);
+	}
+}
@@ -0,0 +1,119 @@
+package com.lurniq.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProofOfWorkTests {
+
+	private static final byte[] SECRET = "proof-of-work-test-secret".getBytes(StandardCharsets.UTF_8);
+	private static final String CLIENT = "203.0.113.7";
+
+	private final ProofOfWork proofOfWork = new ProofOfWork(SECRET, 120);
+
+	@Test
+	void acceptsASolvedChallengeAndReturnsIt() {
+		String challenge = proofOfWork.issue(CLIENT, 8);
+
+		assertThat(proofOfWork.verify(solve(challenge, 8), CLIENT)).isEqualTo(challenge);
+	}
+
+	@Test
+	void rejectsASolutionFromAnotherClient() {
+		String challenge = proofOfWork.issue(CLIENT, 8);
+
+		assertThat(proofOfWork.verify(solve(challenge, 8), "198.51.100.1")).isNull();
+	}
+
+	@Test
+	void rejectsANonceThatDoesNotMeetTheDifficulty() {
+		String challenge = proofOfWork.issue(CLIENT, 8);
+
+		assertThat(proofOfWork.verify(fail(challenge, 8), CLIENT)).isNull();
+	}
+
+	@Test
+	void rejectsAChallengeWithLoweredDifficulty() {
+		String[] parts = proofOfWork.issue(CLIENT, 20).split("\\.");
+		String lowered = parts[0] + ".0." + parts[2] + "." + parts[3];
+
+		assertThat(proofOfWork.verify(solve(lowered, 0), CLIENT)).isNull();
+	}
+
+	@Test
+	void rejectsAChallengeSignedWithAnotherSecret() {
+		ProofOfWork other = new ProofOfWork("another-secret".getBytes(StandardCharsets.UTF_8), 120);
+		String challenge = other.issue(CLIENT, 8);
+
+		assertThat(proofOfWork.verify(solve(challenge, 8), CLIENT)).isNull();
+		assertThat(other.verify(solve(challenge, 8), CLIENT)).isEqualTo(challenge);
+	}
+
+	@Test
+	void rejectsAnExpiredChallenge() {
+		ProofOfWork expired = new ProofOfWork(SECRET, -1);
+		String challenge = expired.issue(CLIENT, 4);
+
+		assertThat(expired.verify(solve(challenge, 4), CLIENT)).isNull();
+	}
+
+	@Test
+	void rejectsMalformedSolutions() {
+		String challenge = proofOfWork.issue(CLIENT, 0);
+
+		assertThat(proofOfWork.verify("", CLIENT)).isNull();
+		assertThat(proofOfWork.verify("nonce-only", CLIENT)).isNull();
+		assertThat(proofOfWork.verify(":", CLIENT)).isNull();
+		assertThat(proofOfWork.verify(challenge, CLIENT)).as("no nonce separator").isNull();
+		assertThat(proofOfWork.verify("a.b.c.d:1", CLIENT)).isNull();
+		assertThat(proofOfWork.verify(challenge.replaceFirst("^\\d+", "x") + ":1", CLIENT)).isNull();
+		assertThat(proofOfWork.verify(challenge.substring(0, challenge.lastIndexOf('.') + 1) + ":1", CLIENT)).isNull();
+		assertThat(proofOfWork.verify(challenge.substring(0, challenge.lastIndexOf('.') + 1) + "!!:1", CLIENT)).isNull();
+	}
+
+	@Test
+	void issuesDistinctChallenges() {
+		assertThat(proofOfWork.issue(CLIENT, 8)).isNotEqualTo(proofOfWork.issue(CLIENT, 8));
+	}
+
+	@Test
+	void countsLeadingZeroBits() {
+		byte[] hash = {0, 0, 0x0F, (byte) 0xFF};
+
+		assertThat(ProofOfWork.hasLeadingZeroBits(hash, 0)).isTrue();
+		assertThat(ProofOfWork.hasLeadingZeroBits(hash, 16)).isTrue();
+		assertThat(ProofOfWork.hasLeadingZeroBits(hash, 20)).isTrue();
+		assertThat(ProofOfWork.hasLeadingZeroBits(hash, 21)).isFalse();
+		assertThat(ProofOfWork.hasLeadingZeroBits(hash, 24)).isFalse();
+	}
+
+	private static String solve(String challenge, int difficulty) {
+		for (long nonce = 0; ; nonce++) {
+			String solution = challenge + ":" + nonce;
+			if (ProofOfWork.hasLeadingZeroBits(sha256(solution), difficulty)) {
+				return solution;
+			}
+		}
+	}
+
+	private static String fail(String challenge, int difficulty) {
+		for (long nonce = 0; ; nonce++) {
+			String solution = challenge + ":" + nonce;
+			if (!ProofOfWork.hasLeadingZeroBits(sha256(solution), difficulty)) {
+				return solution;
+			}
+		}
+	}
+
+	private static byte[] sha256(String value) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,4 @@
+package com.lurniq.tokens.jmh_generated;
+public class HmacTokenCodecBenchmark_jmhType extends HmacTokenCodecBenchmark_jmhType_B3 {
+}
+
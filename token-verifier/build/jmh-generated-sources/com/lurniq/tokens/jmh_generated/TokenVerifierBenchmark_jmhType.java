@@ -0,0 +1,4 @@
+package com.lurniq.tokens.jmh_generated;
+public class TokenVerifierBenchmark_jmhType extends TokenVerifierBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,81 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and uncached verification with the HMAC codec against jjwt, for the same key and claims.
+ * The gc profiler is on by default for this project, so each result comes with allocated bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HmacTokenCodecBenchmark {
+    
+    private static final String KID = "hs-bench";
+    
+    private SecretKey key;
+    private HmacTokenCodec codec;
+    private HmacTokenCodec.HmacKey signingKey;
+    private TokenVerifier jjwtVerifier;
+    private TokenFields fields;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        key = Jwts.SIG.HS256.key().build();
+        codec = new HmacTokenCodec(kid -> KID.equals(kid) ? key : null);
+        signingKey = HmacTokenCodec.HmacKey.of(KID, key, "HS256");
+        jjwtVerifier = TokenVerifier.builder()
+                .keys(Map.of(KID, key), null)
+                .cacheMaximumSize(0)
+                .build();
+        
+        long now = System.currentTimeMillis();
+        fields = new TokenFields("benchmark", "user@example.com", 42L, "USER", true, 0, null, now, now + 86_400_000L);
+        token = codec.sign(signingKey, fields);
+        if (codec.verify(token) == null || jjwtVerifier.parse(token) == null) {
+            throw new IllegalStateException("Codec and jjwt disagree on the benchmark token");
+        }
+    }
+    
+    @Benchmark
+    public String codecSign() {
+        return codec.sign(signingKey, fields);
+    }
+    
+    @Benchmark
+    public String jjwtSign() {
+        return Jwts.builder()
+                .header().keyId(KID).and()
+                .claims(Map.of(TokenClaims.USER_ID, fields.userId(), TokenClaims.ROLE, fields.role(),
+                        TokenClaims.EMAIL_VERIFIED, fields.emailVerified(), TokenClaims.TOKEN_EPOCH, fields.tokenEpoch()))
+                .id(fields.id())
+                .subject(fields.subject())
+                .issuedAt(new Date(fields.issuedAtMillis()))
+                .expiration(new Date(fields.expiresAtMillis()))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+    }
+    
+    @Benchmark
+    public VerifiedToken codecVerify() {
+        return codec.verify(token);
+    }
+    
+    @Benchmark
+    public VerifiedToken jjwtVerify() {
+        return jjwtVerifier.parse(token);
+    }
+}
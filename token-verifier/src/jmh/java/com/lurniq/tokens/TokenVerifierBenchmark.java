@@ -0,0 +1,68 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of local verification for a repeated token (cache hit), a first sighting (full signature check)
+ * and the digest alone. The gc profiler reports allocated bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenVerifierBenchmark {
+    
+    private TokenVerifier cachingVerifier;
+    private TokenVerifier uncachedVerifier;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        SecretKey key = Jwts.SIG.HS256.key().build();
+        cachingVerifier = TokenVerifier.builder()
+                .keys(Map.of("hs-bench", key), key)
+                .build();
+        uncachedVerifier = TokenVerifier.builder()
+                .keys(Map.of("hs-bench", key), key)
+                .cacheMaximumSize(0)
+                .build();
+        
+        long now = System.currentTimeMillis();
+        token = Jwts.builder()
+                .header().keyId("hs-bench").and()
+                .claims(Map.of(TokenClaims.USER_ID, 42L, TokenClaims.ROLE, "USER", TokenClaims.EMAIL_VERIFIED, true))
+                .id("benchmark")
+                .subject("user@example.com")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + 86_400_000L))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+        cachingVerifier.verify(token);
+    }
+    
+    @Benchmark
+    public VerifiedToken cachedVerify() {
+        return cachingVerifier.verify(token);
+    }
+    
+    @Benchmark
+    public VerifiedToken fullVerify() {
+        return uncachedVerifier.verify(token);
+    }
+    
+    @Benchmark
+    public TokenDigest digest() {
+        return TokenDigest.of(token);
+    }
+}
@@ -0,0 +1,104 @@
+package com.lurniq.tokens;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Unpadded base64url (RFC 4648 section 5) over caller-supplied buffers, so encoding and decoding allocate nothing.
+ */
+final class Base64Url {
+    
+    private static final byte[] ENCODE =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DECODE = new byte[128];
+    
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+        }
+    }
+    
+    private Base64Url() {
+    }
+    
+    static int encodedLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+    
+    static int decodedLength(int encodedLength) {
+        return (encodedLength / 4) * 3 + Math.max(0, encodedLength % 4 - 1);
+    }
+    
+    /**
+     * Encode {@code src[from, to)} into {@code dst} at {@code offset}; returns the position after the last byte written.
+     */
+    static int encode(byte[] src, int from, int to, byte[] dst, int offset) {
+        int i = from;
+        int o = offset;
+        for (; i + 2 < to; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[o++] = ENCODE[bits >>> 18];
+            dst[o++] = ENCODE[(bits >>> 12) & 0x3F];
+            dst[o++] = ENCODE[(bits >>> 6) & 0x3F];
+            dst[o++] = ENCODE[bits & 0x3F];
+        }
+        int remaining = to - i;
+        if (remaining == 1) {
+            int bits = (src[i] & 0xFF) << 16;
+            dst[o++] = ENCODE[bits >>> 18];
+            dst[o++] = ENCODE[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[o++] = ENCODE[bits >>> 18];
+            dst[o++] = ENCODE[(bits >>> 12) & 0x3F];
+            dst[o++] = ENCODE[(bits >>> 6) & 0x3F];
+        }
+        return o;
+    }
+    
+    /**
+     * Decode the characters {@code src[from, to)} into {@code dst}; returns the decoded length or -1 if the input is not
+     * canonical base64url. The unused low bits of a final partial group must be zero, so every byte sequence has exactly
+     * one accepted encoding.
+     */
+    static int decode(CharSequence src, int from, int to, byte[] dst) {
+        int length = to - from;
+        if (length % 4 == 1 || decodedLength(length) > dst.length) {
+            return -1;
+        }
+        int o = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            int bits = value(src.charAt(i)) << 18 | value(src.charAt(i + 1)) << 12
+                    | value(src.charAt(i + 2)) << 6 | value(src.charAt(i + 3));
+            if (bits < 0) {
+                return -1;
+            }
+            dst[o++] = (byte) (bits >>> 16);
+            dst[o++] = (byte) (bits >>> 8);
+            dst[o++] = (byte) bits;
+        }
+        int remaining = to - i;
+        if (remaining == 2) {
+            int bits = value(src.charAt(i)) << 18 | value(src.charAt(i + 1)) << 12;
+            if (bits < 0 || (bits & 0xFFFF) != 0) {
+                return -1;
+            }
+            dst[o++] = (byte) (bits >>> 16);
+        } else if (remaining == 3) {
+            int bits = value(src.charAt(i)) << 18 | value(src.charAt(i + 1)) << 12 | value(src.charAt(i + 2)) << 6;
+            if (bits < 0 || (bits & 0xFF) != 0) {
+                return -1;
+            }
+            dst[o++] = (byte) (bits >>> 16);
+            dst[o++] = (byte) (bits >>> 8);
+        }
+        return o;
+    }
+    
+    // Invalid characters yield -1, which stays negative at any shift and so marks the combined bits invalid
+    private static int value(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+}
@@ -0,0 +1,731 @@
+package com.lurniq.tokens;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Hand-rolled signer and verifier for the HMAC tokens lurniq-api issues, for the hot path.
+ * Base64url, JSON and the MAC all run over per-thread buffers, so signing allocates only the
+ * resulting string and verifying only the {@link VerifiedToken} and its string fields.
+ * <p>
+ * The codec understands exactly the token shape it writes: a flat header with {@code alg},
+ * {@code kid} and {@code typ}, and a flat payload holding the claims in {@link TokenClaims} plus
+ * {@code jti}, {@code sub}, {@code iat} and {@code exp}. {@link #verify(String)} returns null for
+ * anything else, including tokens that are invalid or expired, so callers fall back to jjwt, which
+ * either accepts the token or throws the precise exception.
+ */
+public final class HmacTokenCodec {
+    
+    // Longer tokens are left to jjwt rather than growing the per-thread buffers without bound
+    private static final int MAX_TOKEN_LENGTH = 8192;
+    
+    private static final byte[] CLAIM_USER_ID = jsonKey(TokenClaims.USER_ID);
+    private static final byte[] CLAIM_ROLE = jsonKey(TokenClaims.ROLE);
+    private static final byte[] CLAIM_EMAIL_VERIFIED = jsonKey(TokenClaims.EMAIL_VERIFIED);
+    private static final byte[] CLAIM_TOKEN_EPOCH = jsonKey(TokenClaims.TOKEN_EPOCH);
+    private static final byte[] CLAIM_FAMILY_ID = jsonKey(TokenClaims.FAMILY_ID);
+    private static final byte[] CLAIM_ID = jsonKey("jti");
+    private static final byte[] CLAIM_SUBJECT = jsonKey("sub");
+    private static final byte[] CLAIM_ISSUED_AT = jsonKey("iat");
+    private static final byte[] CLAIM_EXPIRATION = jsonKey("exp");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+    
+    private final Function<String, SecretKey> keyResolver;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    
+    /**
+     * @param keyResolver Returns the verification key for a {@code kid} (null for tokens without one),
+     *                    or null if the kid is unknown or the key is not an HMAC key
+     */
+    public HmacTokenCodec(Function<String, SecretKey> keyResolver) {
+        this.keyResolver = Objects.requireNonNull(keyResolver);
+    }
+    
+    /**
+     * Sign the given claims. Produces the same token jjwt would for the same header and claims,
+     * apart from JSON member order.
+     */
+    public String sign(HmacKey key, TokenFields fields) {
+        Scratch state = scratch.get();
+        
+        int json = writePayload(state, fields);
+        byte[] out = state.output(key.encodedHeader.length + 1 + Base64Url.encodedLength(json) + 1
+                + Base64Url.encodedLength(key.algorithm.macLength));
+        
+        System.arraycopy(key.encodedHeader, 0, out, 0, key.encodedHeader.length);
+        int position = key.encodedHeader.length;
+        out[position++] = '.';
+        position = Base64Url.encode(state.json, 0, json, out, position);
+        
+        Mac mac = state.mac(key.key, key.algorithm);
+        mac.update(out, 0, position);
+        doFinal(mac, state.signature);
+        
+        out[position++] = '.';
+        position = Base64Url.encode(state.signature, 0, key.algorithm.macLength, out, position);
+        return new String(out, 0, position, StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * Verify a compact token and return its claims, or null if the token is not in the shape this codec
+     * writes, is signed with an unknown or too short key, has an invalid signature or has expired.
+     */
+    public VerifiedToken verify(String token) {
+        int length = token.length();
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (length > MAX_TOKEN_LENGTH || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return null;
+        }
+        
+        Scratch state = scratch.get();
+        if (!state.readHeader(token, headerEnd)) {
+            return null;
+        }
+        Algorithm algorithm = state.headerAlgorithm;
+        SecretKey key = keyResolver.apply(state.headerKid);
+        if (key == null) {
+            return null;
+        }
+        Mac mac = state.mac(key, algorithm);
+        if (mac == null) {
+            return null;
+        }
+        
+        // The signature segment must decode to exactly one MAC
+        if (Base64Url.decode(token, payloadEnd + 1, length, state.expected) != algorithm.macLength) {
+            return null;
+        }
+        byte[] input = state.output(payloadEnd);
+        for (int i = 0; i < payloadEnd; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7F) {
+                return null;
+            }
+            input[i] = (byte) c;
+        }
+        mac.update(input, 0, payloadEnd);
+        doFinal(mac, state.signature);
+        if (!constantTimeEquals(state.signature, state.expected, algorithm.macLength)) {
+            return null;
+        }
+        
+        int json = Base64Url.decode(token, headerEnd + 1, payloadEnd, state.json(Base64Url.decodedLength(payloadEnd - headerEnd - 1)));
+        if (json < 0 || !state.readPayload(json)) {
+            return null;
+        }
+        long expiresAtMillis = state.expiresAt != Long.MIN_VALUE ? state.expiresAt * 1000 : Long.MAX_VALUE;
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return new VerifiedToken(
+            state.subject,
+            state.issuedAt != Long.MIN_VALUE ? state.issuedAt * 1000 : 0L,
+            expiresAtMillis,
+            state.id,
+            state.userId,
+            state.role,
+            state.emailVerified,
+            state.tokenEpoch,
+            state.familyId,
+            null
+        );
+    }
+    
+    private static int writePayload(Scratch state, TokenFields fields) {
+        JsonWriter writer = state.writer;
+        writer.begin(state);
+        if (fields.userId() != null) {
+            writer.key(CLAIM_USER_ID).number(fields.userId());
+        }
+        if (fields.role() != null) {
+            writer.key(CLAIM_ROLE).string(fields.role());
+        }
+        if (fields.emailVerified() != null) {
+            writer.key(CLAIM_EMAIL_VERIFIED).raw(fields.emailVerified() ? TRUE : FALSE);
+        }
+        if (fields.tokenEpoch() != null) {
+            writer.key(CLAIM_TOKEN_EPOCH).number(fields.tokenEpoch());
+        }
+        if (fields.familyId() != null) {
+            writer.key(CLAIM_FAMILY_ID).string(fields.familyId());
+        }
+        if (fields.id() != null) {
+            writer.key(CLAIM_ID).string(fields.id());
+        }
+        if (fields.subject() != null) {
+            writer.key(CLAIM_SUBJECT).string(fields.subject());
+        }
+        writer.key(CLAIM_ISSUED_AT).number(fields.issuedAtMillis() / 1000);
+        writer.key(CLAIM_EXPIRATION).number(fields.expiresAtMillis() / 1000);
+        return writer.end();
+    }
+    
+    private static void doFinal(Mac mac, byte[] output) {
+        try {
+            mac.doFinal(output, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("MAC buffer too small", e);
+        }
+    }
+    
+    private static boolean constantTimeEquals(byte[] a, byte[] b, int length) {
+        int difference = 0;
+        for (int i = 0; i < length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+    
+    private static boolean regionEquals(byte[] bytes, int from, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[from + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static byte[] jsonKey(String name) {
+        return bytes("\"" + name + "\":");
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    private enum Algorithm {
+        HS256("HmacSHA256", 32),
+        HS384("HmacSHA384", 48),
+        HS512("HmacSHA512", 64);
+        
+        private static final Algorithm[] VALUES = values();
+        
+        private final String jcaName;
+        private final int macLength;
+        
+        Algorithm(String jcaName, int macLength) {
+            this.jcaName = jcaName;
+            this.macLength = macLength;
+        }
+        
+        static Algorithm forName(byte[] json, int from, int to) {
+            for (Algorithm algorithm : VALUES) {
+                String name = algorithm.name();
+                if (to - from == name.length() && regionEquals(json, from, name)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+        
+        // Strongest algorithm the key is long enough for, matching what jjwt picks from a bare secret
+        static Algorithm strongestFor(SecretKey key) {
+            int length = key.getEncoded().length;
+            if (length >= HS512.macLength) {
+                return HS512;
+            }
+            if (length >= HS384.macLength) {
+                return HS384;
+            }
+            if (length >= HS256.macLength) {
+                return HS256;
+            }
+            throw new IllegalArgumentException("HMAC keys must be at least 256 bits");
+        }
+    }
+    
+    /**
+     * A signing key with its algorithm and pre-encoded token header.
+     */
+    public static final class HmacKey {
+        
+        private final String kid;
+        private final Algorithm algorithm;
+        private final SecretKey key;
+        private final byte[] encodedHeader;
+        
+        private HmacKey(String kid, Algorithm algorithm, SecretKey key) {
+            if (key.getEncoded().length < algorithm.macLength) {
+                throw new IllegalArgumentException("Key is too short for " + algorithm);
+            }
+            this.kid = kid;
+            this.algorithm = algorithm;
+            this.key = key;
+            
+            StringBuilder header = new StringBuilder("{");
+            if (kid != null) {
+                header.append("\"kid\":");
+                appendJsonString(header, kid);
+                header.append(',');
+            }
+            header.append("\"alg\":\"").append(algorithm.name()).append("\"}");
+            byte[] json = header.toString().getBytes(StandardCharsets.UTF_8);
+            this.encodedHeader = new byte[Base64Url.encodedLength(json.length)];
+            Base64Url.encode(json, 0, json.length, encodedHeader, 0);
+        }
+        
+        /**
+         * Key signing with the strongest of HS512, HS384 and HS256 its length allows.
+         */
+        public static HmacKey of(String kid, SecretKey key) {
+            return new HmacKey(kid, Algorithm.strongestFor(key), key);
+        }
+        
+        /**
+         * Key signing with a fixed algorithm: {@code HS256}, {@code HS384} or {@code HS512}.
+         */
+        public static HmacKey of(String kid, SecretKey key, String algorithm) {
+            return new HmacKey(kid, Algorithm.valueOf(algorithm), key);
+        }
+        
+        public String kid() {
+            return kid;
+        }
+        
+        public String algorithm() {
+            return algorithm.name();
+        }
+        
+        public SecretKey key() {
+            return key;
+        }
+        
+        private static void appendJsonString(StringBuilder out, String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+    }
+    
+    /**
+     * Appends UTF-8 JSON to the scratch buffer, growing it as needed.
+     */
+    private static final class JsonWriter {
+        
+        private static final byte[] HEX = bytes("0123456789abcdef");
+        
+        private Scratch state;
+        private byte[] buffer;
+        private int position;
+        
+        void begin(Scratch state) {
+            this.state = state;
+            this.buffer = state.json;
+            this.position = 0;
+            buffer[position++] = '{';
+        }
+        
+        int end() {
+            if (buffer[position - 1] == ',') {
+                position--;
+            }
+            ensure(1);
+            buffer[position++] = '}';
+            state.json = buffer;
+            return position;
+        }
+        
+        JsonWriter key(byte[] key) {
+            ensure(key.length);
+            System.arraycopy(key, 0, buffer, position, key.length);
+            position += key.length;
+            return this;
+        }
+        
+        void raw(byte[] value) {
+            ensure(value.length + 1);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+            buffer[position++] = ',';
+        }
+        
+        void number(long value) {
+            ensure(21);
+            if (value < 0) {
+                // Claim numbers are ids, epochs and timestamps, none of which are negative
+                throw new IllegalArgumentException("Negative claim value: " + value);
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position += digits;
+            buffer[position++] = ',';
+        }
+        
+        void string(String value) {
+            // Worst case is six bytes per char (a \\u escape) plus the quotes and separator
+            ensure(value.length() * 6 + 3);
+            buffer[position++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    buffer[position++] = '\\';
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x20) {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'u';
+                    buffer[position++] = '0';
+                    buffer[position++] = '0';
+                    buffer[position++] = HEX[c >>> 4];
+                    buffer[position++] = HEX[c & 0xF];
+                } else if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | c >>> 6);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | codePoint >>> 18);
+                    buffer[position++] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate, encoded as '?' like String.getBytes does
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | c >>> 12);
+                    buffer[position++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            buffer[position++] = '"';
+            buffer[position++] = ',';
+        }
+        
+        private void ensure(int additional) {
+            if (position + additional > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, position + additional)];
+                System.arraycopy(buffer, 0, grown, 0, position);
+                buffer = grown;
+            }
+        }
+    }
+    
+    /**
+     * Per-thread buffers, MAC instances and the fields of the token being read.
+     */
+    private static final class Scratch {
+        
+        private final Map<SecretKey, Mac[]> macs = new IdentityHashMap<>();
+        private final JsonWriter writer = new JsonWriter();
+        private final byte[] signature = new byte[64];
+        private final byte[] expected = new byte[64];
+        private byte[] output = new byte[1024];
+        private byte[] json = new byte[1024];
+        
+        // Last header segment seen; services see few distinct headers, so this almost always hits
+        private String headerSegment;
+        private boolean headerSupported;
+        private Algorithm headerAlgorithm;
+        private String headerKid;
+        
+        private int position;
+        private int end;
+        private String id;
+        private String subject;
+        private Long userId;
+        private String role;
+        private Boolean emailVerified;
+        private int tokenEpoch;
+        private String familyId;
+        private long issuedAt;
+        private long expiresAt;
+        
+        byte[] output(int length) {
+            if (output.length < length) {
+                output = new byte[Math.max(length, output.length * 2)];
+            }
+            return output;
+        }
+        
+        byte[] json(int length) {
+            if (json.length < length) {
+                json = new byte[Math.max(length, json.length * 2)];
+            }
+            return json;
+        }
+        
+        /**
+         * MAC for the key and algorithm, or null if the key is shorter than the algorithm's output.
+         */
+        Mac mac(SecretKey key, Algorithm algorithm) {
+            Mac[] byAlgorithm = macs.computeIfAbsent(key, k -> new Mac[Algorithm.VALUES.length]);
+            Mac mac = byAlgorithm[algorithm.ordinal()];
+            if (mac == null) {
+                if (key.getEncoded().length < algorithm.macLength) {
+                    return null;
+                }
+                try {
+                    mac = Mac.getInstance(algorithm.jcaName);
+                    mac.init(key);
+                } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                    throw new IllegalStateException("Cannot initialise " + algorithm.jcaName, e);
+                }
+                byAlgorithm[algorithm.ordinal()] = mac;
+            }
+            return mac;
+        }
+        
+        boolean readHeader(String token, int headerEnd) {
+            if (headerSegment != null && headerSegment.length() == headerEnd && token.startsWith(headerSegment)) {
+                return headerSupported;
+            }
+            headerSegment = token.substring(0, headerEnd);
+            headerAlgorithm = null;
+            headerKid = null;
+            headerSupported = parseHeader(Base64Url.decode(token, 0, headerEnd, json(Base64Url.decodedLength(headerEnd))))
+                    && headerAlgorithm != null;
+            return headerSupported;
+        }
+        
+        private boolean parseHeader(int length) {
+            if (length < 0 || !beginObject(length)) {
+                return false;
+            }
+            while (true) {
+                int keyStart = position + 1;
+                int keyEnd = readSimpleString();
+                if (keyEnd < 0 || !consume(':')) {
+                    return false;
+                }
+                int valueStart = position + 1;
+                int valueEnd = readSimpleString();
+                if (valueEnd < 0) {
+                    return false;
+                }
+                if (keyIs(keyStart, keyEnd, "alg")) {
+                    headerAlgorithm = Algorithm.forName(json, valueStart, valueEnd);
+                } else if (keyIs(keyStart, keyEnd, "kid")) {
+                    headerKid = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+                } else if (!keyIs(keyStart, keyEnd, "typ") || !keyIs(valueStart, valueEnd, "JWT")) {
+                    // Anything else (crit, zip, b64, ...) changes how the token must be processed
+                    return false;
+                }
+                int next = nextMember();
+                if (next <= 0) {
+                    return next == 0;
+                }
+            }
+        }
+        
+        boolean readPayload(int length) {
+            id = null;
+            subject = null;
+            userId = null;
+            role = null;
+            emailVerified = null;
+            tokenEpoch = 0;
+            familyId = null;
+            issuedAt = Long.MIN_VALUE;
+            expiresAt = Long.MIN_VALUE;
+            if (!beginObject(length)) {
+                return false;
+            }
+            while (true) {
+                int keyStart = position + 1;
+                int keyEnd = readSimpleString();
+                if (keyEnd < 0 || !consume(':')) {
+                    return false;
+                }
+                if (!readClaim(keyStart, keyEnd)) {
+                    return false;
+                }
+                int next = nextMember();
+                if (next <= 0) {
+                    return next == 0;
+                }
+            }
+        }
+        
+        private boolean readClaim(int keyStart, int keyEnd) {
+            if (keyIs(keyStart, keyEnd, TokenClaims.USER_ID)) {
+                long value = readLong();
+                userId = value != Long.MIN_VALUE ? value : null;
+                return userId != null;
+            }
+            if (keyIs(keyStart, keyEnd, TokenClaims.TOKEN_EPOCH)) {
+                long value = readLong();
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    return false;
+                }
+                tokenEpoch = (int) value;
+                return true;
+            }
+            if (keyIs(keyStart, keyEnd, "iat")) {
+                issuedAt = readLong();
+                return issuedAt != Long.MIN_VALUE;
+            }
+            if (keyIs(keyStart, keyEnd, "exp")) {
+                expiresAt = readLong();
+                return expiresAt != Long.MIN_VALUE;
+            }
+            if (keyIs(keyStart, keyEnd, TokenClaims.EMAIL_VERIFIED)) {
+                if (matchLiteral("true")) {
+                    emailVerified = Boolean.TRUE;
+                } else if (matchLiteral("false")) {
+                    emailVerified = Boolean.FALSE;
+                } else {
+                    return false;
+                }
+                return true;
+            }
+            
+            String value = readStringValue();
+            if (value == null) {
+                return false;
+            }
+            if (keyIs(keyStart, keyEnd, TokenClaims.ROLE)) {
+                role = value;
+            } else if (keyIs(keyStart, keyEnd, TokenClaims.FAMILY_ID)) {
+                familyId = value;
+            } else if (keyIs(keyStart, keyEnd, "jti")) {
+                id = value;
+            } else if (keyIs(keyStart, keyEnd, "sub")) {
+                subject = value;
+            } else {
+                // Unknown claims are left to jjwt so nothing is silently dropped
+                return false;
+            }
+            return true;
+        }
+        
+        private boolean beginObject(int length) {
+            position = 0;
+            end = length;
+            skipWhitespace();
+            if (!consume('{')) {
+                return false;
+            }
+            skipWhitespace();
+            return position < end && json[position] == '"';
+        }
+        
+        /**
+         * Step past the separator after a member: 1 if another member follows, 0 at the closing brace
+         * with nothing but whitespace after it, -1 otherwise.
+         */
+        private int nextMember() {
+            skipWhitespace();
+            if (consume(',')) {
+                skipWhitespace();
+                return position < end && json[position] == '"' ? 1 : -1;
+            }
+            if (consume('}')) {
+                skipWhitespace();
+                return position == end ? 0 : -1;
+            }
+            return -1;
+        }
+        
+        /**
+         * Read a string without escapes at the current position; returns the index of its closing quote
+         * (content starts one after the opening quote) or -1. Escaped strings are left to jjwt.
+         */
+        private int readSimpleString() {
+            skipWhitespace();
+            if (!consume('"')) {
+                return -1;
+            }
+            for (int i = position; i < end; i++) {
+                byte b = json[i];
+                if (b == '"') {
+                    position = i + 1;
+                    return i;
+                }
+                if (b == '\\' || (b >= 0 && b < 0x20)) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+        
+        private String readStringValue() {
+            int start = position;
+            skipWhitespace();
+            int valueStart = position + 1;
+            int valueEnd = readSimpleString();
+            if (valueEnd < 0) {
+                position = start;
+                return null;
+            }
+            return new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+        }
+        
+        // Integer in at most 18 digits, so it cannot overflow; Long.MIN_VALUE for anything else
+        private long readLong() {
+            skipWhitespace();
+            boolean negative = position < end && json[position] == '-';
+            if (negative) {
+                position++;
+            }
+            int start = position;
+            long value = 0;
+            while (position < end && json[position] >= '0' && json[position] <= '9') {
+                value = value * 10 + (json[position++] - '0');
+            }
+            int digits = position - start;
+            if (digits == 0 || digits > 18
+                    || (position < end && (json[position] == '.' || json[position] == 'e' || json[position] == 'E'))) {
+                return Long.MIN_VALUE;
+            }
+            return negative ? -value : value;
+        }
+        
+        private boolean matchLiteral(String literal) {
+            skipWhitespace();
+            if (end - position < literal.length() || !regionEquals(json, position, literal)) {
+                return false;
+            }
+            position += literal.length();
+            return true;
+        }
+        
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (position < end && json[position] == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void skipWhitespace() {
+            while (position < end) {
+                byte b = json[position];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return;
+                }
+                position++;
+            }
+        }
+        
+        private boolean keyIs(int from, int to, String name) {
+            return to - from == name.length() && regionEquals(json, from, name);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves public keys by {@code kid} from a JWKS endpoint. Keys are cached in memory and refreshed
+ * periodically; an unknown kid triggers an early refresh (rate limited) so newly rotated keys are
+ * picked up without waiting. If a refresh fails the previously fetched keys stay in use.
+ */
+public final class JwksKeyLocator extends LocatorAdapter<Key> {
+    
+    private static final System.Logger LOG = System.getLogger(JwksKeyLocator.class.getName());
+    
+    private final URI jwksUri;
+    private final HttpClient httpClient;
+    private final long refreshIntervalMillis;
+    private final long minRefreshIntervalMillis;
+    
+    private volatile Map<String, Key> keysByKid = Map.of();
+    private volatile long fetchedAtMillis;
+    
+    public JwksKeyLocator(URI jwksUri) {
+        this(jwksUri, Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+    
+    public JwksKeyLocator(URI jwksUri, Duration refreshInterval, Duration minRefreshInterval) {
+        this.jwksUri = jwksUri;
+        this.refreshIntervalMillis = refreshInterval.toMillis();
+        this.minRefreshIntervalMillis = minRefreshInterval.toMillis();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+    
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            throw new SignatureException("Token has no key id");
+        }
+        
+        long now = System.currentTimeMillis();
+        if (now - fetchedAtMillis > refreshIntervalMillis) {
+            refresh(now);
+        }
+        Key key = keysByKid.get(kid);
+        if (key == null && now - fetchedAtMillis > minRefreshIntervalMillis) {
+            refresh(now);
+            key = keysByKid.get(kid);
+        }
+        if (key == null) {
+            throw new SignatureException("Unknown signing key");
+        }
+        return key;
+    }
+    
+    private synchronized void refresh(long now) {
+        // Another thread may have refreshed while this one waited for the lock
+        if (now - fetchedAtMillis <= minRefreshIntervalMillis) {
+            return;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("JWKS endpoint returned HTTP " + response.statusCode());
+            }
+            
+            JwkSet jwkSet = Jwks.setParser().build().parse(response.body());
+            Map<String, Key> keys = new HashMap<>();
+            for (Jwk<?> jwk : jwkSet.getKeys()) {
+                if (jwk.getId() != null && jwk.toKey() instanceof PublicKey publicKey) {
+                    keys.put(jwk.getId(), publicKey);
+                }
+            }
+            this.keysByKid = Map.copyOf(keys);
+        } catch (IOException | RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Failed to refresh JWKS from " + jwksUri + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Failed attempts also count, so an unreachable endpoint is not hammered
+            this.fetchedAtMillis = now;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.security.Key;
+import java.util.Map;
+
+/**
+ * Fixed set of verification keys selected by {@code kid}.
+ */
+final class StaticKeyLocator extends LocatorAdapter<Key> {
+    
+    private final Map<String, Key> keysByKid;
+    private final Key defaultKey;
+    
+    StaticKeyLocator(Map<String, ? extends Key> keysByKid, Key defaultKey) {
+        this.keysByKid = Map.copyOf(keysByKid);
+        this.defaultKey = defaultKey;
+    }
+    
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        Key key = kid == null ? defaultKey : keysByKid.get(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown signing key");
+        }
+        return key;
+    }
+}
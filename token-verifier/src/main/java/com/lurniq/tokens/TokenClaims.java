@@ -0,0 +1,25 @@
+package com.lurniq.tokens;
+
+/**
+ * Names of the private claims lurniq-api puts into its tokens.
+ */
+public final class TokenClaims {
+    
+    /** User database id */
+    public static final String USER_ID = "uid";
+    
+    /** User role name, e.g. {@code USER} */
+    public static final String ROLE = "role";
+    
+    /** Whether the user's email was verified at issue time */
+    public static final String EMAIL_VERIFIED = "ev";
+    
+    /** The user's token epoch at issue time; tokens from older epochs are invalid */
+    public static final String TOKEN_EPOCH = "ep";
+    
+    /** Refresh token family id; only present on refresh tokens */
+    public static final String FAMILY_ID = "fid";
+    
+    private TokenClaims() {
+    }
+}
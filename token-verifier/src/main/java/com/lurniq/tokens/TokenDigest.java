@@ -0,0 +1,83 @@
+package com.lurniq.tokens;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Compact 128-bit cache key derived from the SHA-256 of a compact JWT.
+ * Keeps cache entries small and avoids retaining the raw token string.
+ * Hashing reuses per-thread buffers, so the record itself is the only allocation.
+ *
+ * @param high The first 64 bits of the digest
+ * @param low The second 64 bits of the digest
+ */
+public record TokenDigest(long high, long low) {
+    
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    
+    // Buffers above this size are not kept by the thread
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    
+    private static final ThreadLocal<DigestState> STATE = ThreadLocal.withInitial(DigestState::new);
+    
+    public static TokenDigest of(String token) {
+        DigestState state = STATE.get();
+        int length = token.length();
+        byte[] input = state.input(length);
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7F) {
+                // Compact JWTs are ASCII; anything else is hashed from its full encoding
+                return digest(state, token.getBytes(StandardCharsets.UTF_8));
+            }
+            input[i] = (byte) c;
+        }
+        state.sha256.update(input, 0, length);
+        return finish(state);
+    }
+    
+    private static TokenDigest digest(DigestState state, byte[] input) {
+        state.sha256.update(input);
+        return finish(state);
+    }
+    
+    private static TokenDigest finish(DigestState state) {
+        try {
+            state.sha256.digest(state.hash, 0, state.hash.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException("SHA-256 digest failed", e);
+        }
+        return new TokenDigest((long) LONG_VIEW.get(state.hash, 0), (long) LONG_VIEW.get(state.hash, 8));
+    }
+    
+    private static final class DigestState {
+        
+        private final MessageDigest sha256;
+        private final byte[] hash = new byte[32];
+        private byte[] input = new byte[1024];
+        
+        private DigestState() {
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+        
+        byte[] input(int length) {
+            if (length <= input.length) {
+                return input;
+            }
+            byte[] grown = new byte[length];
+            if (length <= MAX_RETAINED_BUFFER) {
+                input = grown;
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.lurniq.tokens;
+
+/**
+ * Claims of a token about to be signed. Null components are left out of the token.
+ *
+ * @param id The token id ({@code jti})
+ * @param subject The token subject (the user's email)
+ * @param userId The user's database id
+ * @param role The user's role name
+ * @param emailVerified Whether the user's email is verified
+ * @param tokenEpoch The user's current token epoch
+ * @param familyId The refresh token family id
+ * @param issuedAtMillis Issue time in epoch milliseconds; written with second precision
+ * @param expiresAtMillis Expiry time in epoch milliseconds; written with second precision
+ */
+public record TokenFields(
+    String id,
+    String subject,
+    Long userId,
+    String role,
+    Boolean emailVerified,
+    Integer tokenEpoch,
+    String familyId,
+    long issuedAtMillis,
+    long expiresAtMillis
+) {
+}
@@ -0,0 +1,197 @@
+package com.lurniq.tokens;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+
+import java.net.URI;
+import java.security.Key;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies lurniq-api tokens locally. Signature and expiry are checked once per distinct token;
+ * afterwards the result is served from a bounded cache keyed by {@link TokenDigest}, so a repeated
+ * token costs one digest and one map lookup. Only verified tokens are cached, and entries expire
+ * at the token's own {@code exp}.
+ * <p>
+ * Revocation and token epochs are server-side state and are not checked here; services that need
+ * them should use the introspection endpoint.
+ */
+public final class TokenVerifier {
+    
+    private final JwtParser parser;
+    private final HmacTokenCodec hmacCodec;
+    private final Cache<TokenDigest, VerifiedToken> cache;
+    
+    private TokenVerifier(JwtParser parser, HmacTokenCodec hmacCodec, Cache<TokenDigest, VerifiedToken> cache) {
+        this.parser = parser;
+        this.hmacCodec = hmacCodec;
+        this.cache = cache;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Verify a compact JWT. Throws {@link JwtException} or {@link IllegalArgumentException} if it is invalid.
+     */
+    public VerifiedToken verify(String token) {
+        return cache != null ? verify(TokenDigest.of(token), token) : parse(token);
+    }
+    
+    /**
+     * Same as {@link #verify(String)} for callers that already computed the token digest.
+     */
+    public VerifiedToken verify(TokenDigest digest, String token) {
+        if (cache == null) {
+            return parse(token);
+        }
+        VerifiedToken cached = cache.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        
+        VerifiedToken verified = parse(token);
+        cache.put(digest, verified);
+        return verified;
+    }
+    
+    /**
+     * Same as {@link #verify(String)} but returns empty instead of throwing for invalid tokens.
+     */
+    public Optional<VerifiedToken> tryVerify(String token) {
+        try {
+            return Optional.of(verify(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Verify without consulting or filling the cache. Tokens the HMAC codec cannot accept go through jjwt,
+     * which produces the exception.
+     */
+    public VerifiedToken parse(String token) {
+        if (hmacCodec != null) {
+            VerifiedToken verified = hmacCodec.verify(token);
+            if (verified != null) {
+                return verified;
+            }
+        }
+        return VerifiedToken.from(parser.parseSignedClaims(token).getPayload());
+    }
+    
+    public void invalidate(String token) {
+        if (cache != null) {
+            cache.invalidate(TokenDigest.of(token));
+        }
+    }
+    
+    /**
+     * The verified-token cache, for binding metrics; empty when caching is disabled.
+     */
+    public Optional<Cache<TokenDigest, VerifiedToken>> cache() {
+        return Optional.ofNullable(cache);
+    }
+    
+    public static final class Builder {
+        
+        private Locator<Key> keyLocator;
+        private HmacTokenCodec hmacCodec;
+        private long cacheMaximumSize = 10_000;
+        private Duration clockSkew = Duration.ZERO;
+        
+        private Builder() {
+        }
+        
+        /**
+         * Resolve verification keys with a custom locator, e.g. one that selects by {@code kid}.
+         */
+        public Builder keyLocator(Locator<Key> keyLocator) {
+            this.keyLocator = keyLocator;
+            return this;
+        }
+        
+        /**
+         * Verify with fixed keys selected by {@code kid}; tokens without a kid use {@code defaultKey}, which may be null.
+         */
+        public Builder keys(Map<String, ? extends Key> keysByKid, Key defaultKey) {
+            return keyLocator(new StaticKeyLocator(keysByKid, defaultKey));
+        }
+        
+        /**
+         * Fetch public keys from a JWKS endpoint such as {@code /.well-known/jwks.json}, caching them in memory.
+         */
+        public Builder jwks(URI jwksUri) {
+            return keyLocator(new JwksKeyLocator(jwksUri));
+        }
+        
+        /**
+         * Try the allocation-free HMAC codec before jjwt. Its key resolver must agree with the key locator.
+         */
+        public Builder hmacCodec(HmacTokenCodec hmacCodec) {
+            this.hmacCodec = hmacCodec;
+            return this;
+        }
+        
+        /**
+         * Maximum number of verified tokens kept in memory; 0 disables the cache.
+         */
+        public Builder cacheMaximumSize(long cacheMaximumSize) {
+            this.cacheMaximumSize = cacheMaximumSize;
+            return this;
+        }
+        
+        public Builder clockSkew(Duration clockSkew) {
+            this.clockSkew = clockSkew;
+            return this;
+        }
+        
+        public TokenVerifier build() {
+            Objects.requireNonNull(keyLocator, "A key locator, keys or a JWKS URI is required");
+            JwtParserBuilder parserBuilder = Jwts.parser().keyLocator(keyLocator);
+            if (!clockSkew.isZero()) {
+                parserBuilder.clockSkewSeconds(clockSkew.toSeconds());
+            }
+            
+            Cache<TokenDigest, VerifiedToken> cache = null;
+            if (cacheMaximumSize > 0) {
+                cache = Caffeine.newBuilder()
+                        .maximumSize(cacheMaximumSize)
+                        .expireAfter(new TokenExpiry(clockSkew.toMillis()))
+                        .recordStats()
+                        .build();
+            }
+            return new TokenVerifier(parserBuilder.build(), hmacCodec, cache);
+        }
+    }
+    
+    private record TokenExpiry(long clockSkewMillis) implements Expiry<TokenDigest, VerifiedToken> {
+        
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() + clockSkewMillis - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+        
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ClaimsBuilder;
+import io.jsonwebtoken.Jwts;
+
+import java.util.Date;
+
+/**
+ * Immutable view of a JWT whose signature and expiry have already been verified.
+ * Produced once per token by {@link TokenVerifier} so callers never
+ * need to re-parse the same compact string.
+ *
+ * @param subject The token subject (the user's email)
+ * @param issuedAtMillis Issue time in epoch milliseconds
+ * @param expiresAtMillis Expiry time in epoch milliseconds
+ * @param id The token id ({@code jti}), or null for tokens issued before ids were added
+ * @param userId The user id claim, or null for tokens issued before identity claims were added
+ * @param role The user's role name, or null for tokens without identity claims
+ * @param emailVerified Whether the user's email was verified at issue time, or null when absent
+ * @param tokenEpoch The token epoch the user had when this token was issued; 0 when absent
+ * @param familyId The refresh token family id, or null for access tokens and pre-rotation refresh tokens
+ * @param claims The full claim set when verified by jjwt; null when read by {@link HmacTokenCodec}
+ */
+public record VerifiedToken(
+    String subject,
+    long issuedAtMillis,
+    long expiresAtMillis,
+    String id,
+    Long userId,
+    String role,
+    Boolean emailVerified,
+    int tokenEpoch,
+    String familyId,
+    Claims claims
+) {
+    
+    public static VerifiedToken from(Claims claims) {
+        Number userId = claims.get(TokenClaims.USER_ID, Number.class);
+        Number tokenEpoch = claims.get(TokenClaims.TOKEN_EPOCH, Number.class);
+        return new VerifiedToken(
+            claims.getSubject(),
+            claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+            claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE,
+            claims.getId(),
+            userId != null ? userId.longValue() : null,
+            claims.get(TokenClaims.ROLE, String.class),
+            claims.get(TokenClaims.EMAIL_VERIFIED, Boolean.class),
+            tokenEpoch != null ? tokenEpoch.intValue() : 0,
+            claims.get(TokenClaims.FAMILY_ID, String.class),
+            claims
+        );
+    }
+    
+    /**
+     * The full claim set. Tokens read by the fast codec only carry the known claims, which are
+     * rebuilt into a claim set on each call, so prefer the typed accessors on hot paths.
+     */
+    @Override
+    public Claims claims() {
+        if (claims != null) {
+            return claims;
+        }
+        ClaimsBuilder builder = Jwts.claims()
+                .subject(subject)
+                .id(id)
+                .issuedAt(issuedAtMillis > 0 ? new Date(issuedAtMillis) : null)
+                .expiration(expiresAtMillis != Long.MAX_VALUE ? new Date(expiresAtMillis) : null)
+                .add(TokenClaims.USER_ID, userId)
+                .add(TokenClaims.ROLE, role)
+                .add(TokenClaims.EMAIL_VERIFIED, emailVerified)
+                .add(TokenClaims.FAMILY_ID, familyId);
+        if (tokenEpoch != 0) {
+            builder.add(TokenClaims.TOKEN_EPOCH, tokenEpoch);
+        }
+        return builder.build();
+    }
+    
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+    
+    public <T> T claim(String name, Class<T> type) {
+        if (claims != null) {
+            return claims.get(name, type);
+        }
+        Object value = switch (name) {
+            case TokenClaims.USER_ID -> userId;
+            case TokenClaims.ROLE -> role;
+            case TokenClaims.EMAIL_VERIFIED -> emailVerified;
+            case TokenClaims.TOKEN_EPOCH -> tokenEpoch;
+            case TokenClaims.FAMILY_ID -> familyId;
+            default -> null;
+        };
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+}
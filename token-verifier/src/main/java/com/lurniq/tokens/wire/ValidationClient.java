@@ -0,0 +1,67 @@
+package com.lurniq.tokens.wire;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Client for the binary token validation listener. One connection carries any number of pipelined
+ * requests: call {@link #send} for a batch, {@link #flush}, then {@link #receive} once per request.
+ * Keep batches to a few hundred requests, or receive on another thread, so neither side blocks on a full socket buffer.
+ * Not thread-safe; use one client per thread or guard it externally.
+ */
+public final class ValidationClient implements Closeable {
+    
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private int nextRequestId;
+    
+    public ValidationClient(String host, int port) throws IOException {
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+        out.writeInt(ValidationProtocol.MAGIC);
+    }
+    
+    /**
+     * Queue a validation request and return its id. Nothing is sent until the buffer fills or {@link #flush} is called.
+     */
+    public int send(String token) throws IOException {
+        int requestId = nextRequestId++;
+        ValidationProtocol.writeRequest(out, requestId, token);
+        return requestId;
+    }
+    
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * Block until the next response arrives. Responses arrive in the order the requests were sent.
+     */
+    public ValidationResult receive() throws IOException {
+        return ValidationProtocol.readResult(in);
+    }
+    
+    /**
+     * Validate a single token synchronously.
+     */
+    public ValidationResult validate(String token) throws IOException {
+        send(token);
+        flush();
+        return receive();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
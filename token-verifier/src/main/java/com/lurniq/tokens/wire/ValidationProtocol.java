@@ -0,0 +1,76 @@
+package com.lurniq.tokens.wire;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Framing of the binary token validation protocol. A connection starts with the client sending
+ * {@link #MAGIC}; after that both sides exchange frames, all integers big-endian:
+ * <pre>
+ * request:  int requestId, u16 tokenLength, tokenLength bytes of ASCII token
+ * response: int requestId, u8 status
+ *           when VALID: long userId, long expiresAtMillis, u8 emailVerified, UTF subject, UTF role
+ * </pre>
+ * Requests may be pipelined; responses come back in request order.
+ */
+public final class ValidationProtocol {
+    
+    /** "LTV1": lurniq token validation, protocol version 1 */
+    public static final int MAGIC = 0x4C545631;
+    
+    public static final int MAX_TOKEN_LENGTH = 8192;
+    
+    private ValidationProtocol() {
+    }
+    
+    public static void writeRequest(DataOutputStream out, int requestId, String token) throws IOException {
+        int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            throw new IllegalArgumentException("Token exceeds " + MAX_TOKEN_LENGTH + " characters");
+        }
+        out.writeInt(requestId);
+        out.writeShort(length);
+        out.writeBytes(token);
+    }
+    
+    /**
+     * Read the token of a request whose id has already been read, using the caller's buffer.
+     */
+    public static String readToken(DataInputStream in, byte[] buffer) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length > MAX_TOKEN_LENGTH || length > buffer.length) {
+            throw new IOException("Token length " + length + " exceeds " + MAX_TOKEN_LENGTH);
+        }
+        in.readFully(buffer, 0, length);
+        // Latin-1 maps bytes to chars one to one and yields a compact string
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+    
+    public static void writeResult(DataOutputStream out, ValidationResult result) throws IOException {
+        out.writeInt(result.requestId());
+        out.writeByte(result.status().code());
+        if (result.isValid()) {
+            out.writeLong(result.userId());
+            out.writeLong(result.expiresAtMillis());
+            out.writeByte(result.emailVerified() ? 1 : 0);
+            out.writeUTF(result.subject() != null ? result.subject() : "");
+            out.writeUTF(result.role() != null ? result.role() : "");
+        }
+    }
+    
+    public static ValidationResult readResult(DataInputStream in) throws IOException {
+        int requestId = in.readInt();
+        ValidationStatus status = ValidationStatus.fromCode(in.readUnsignedByte());
+        if (status != ValidationStatus.VALID) {
+            return ValidationResult.rejected(requestId, status);
+        }
+        long userId = in.readLong();
+        long expiresAtMillis = in.readLong();
+        boolean emailVerified = in.readUnsignedByte() == 1;
+        String subject = in.readUTF();
+        String role = in.readUTF();
+        return new ValidationResult(requestId, status, userId, expiresAtMillis, emailVerified, subject, role);
+    }
+}
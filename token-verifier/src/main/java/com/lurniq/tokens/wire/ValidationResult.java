@@ -0,0 +1,31 @@
+package com.lurniq.tokens.wire;
+
+/**
+ * Answer to one validation request. Identity fields are only set when the status is {@link ValidationStatus#VALID}.
+ *
+ * @param requestId The id the caller sent with the request
+ * @param status Whether the token is valid, or why it was rejected
+ * @param userId The user id claim, or -1 when absent
+ * @param expiresAtMillis Token expiry in epoch milliseconds
+ * @param emailVerified Whether the user's email was verified when the token was issued
+ * @param subject The token subject (the user's email)
+ * @param role The user's role, or empty when absent
+ */
+public record ValidationResult(
+    int requestId,
+    ValidationStatus status,
+    long userId,
+    long expiresAtMillis,
+    boolean emailVerified,
+    String subject,
+    String role
+) {
+    
+    public static ValidationResult rejected(int requestId, ValidationStatus status) {
+        return new ValidationResult(requestId, status, -1L, 0L, false, null, null);
+    }
+    
+    public boolean isValid() {
+        return status == ValidationStatus.VALID;
+    }
+}
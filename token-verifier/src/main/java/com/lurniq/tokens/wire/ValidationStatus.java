@@ -0,0 +1,42 @@
+package com.lurniq.tokens.wire;
+
+/**
+ * Outcome of a validation request as carried on the wire. Codes are part of the protocol and never reused.
+ */
+public enum ValidationStatus {
+    
+    VALID(0),
+    EXPIRED(1),
+    REVOKED(2),
+    INVALID_SIGNATURE(3),
+    MALFORMED(4),
+    UNSUPPORTED(5),
+    INVALID(6),
+    ERROR(7),
+    INTERNAL_ERROR(8);
+    
+    private static final ValidationStatus[] BY_CODE = new ValidationStatus[values().length];
+    
+    static {
+        for (ValidationStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+    
+    private final int code;
+    
+    ValidationStatus(int code) {
+        this.code = code;
+    }
+    
+    public int code() {
+        return code;
+    }
+    
+    public static ValidationStatus fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            return ERROR;
+        }
+        return BY_CODE[code];
+    }
+}
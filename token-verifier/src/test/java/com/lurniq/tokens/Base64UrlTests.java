@@ -0,0 +1,97 @@
+package com.lurniq.tokens;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Base64UrlTests {
+
+	@Test
+	void encodesLikeTheJdkUnpaddedUrlEncoder() {
+		Random random = new Random(7);
+		for (int length = 0; length <= 70; length++) {
+			byte[] input = new byte[length];
+			random.nextBytes(input);
+			String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(input);
+
+			byte[] encoded = new byte[Base64Url.encodedLength(length)];
+			int end = Base64Url.encode(input, 0, length, encoded, 0);
+
+			assertThat(end).isEqualTo(expected.length());
+			assertThat(new String(encoded, StandardCharsets.US_ASCII)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void decodesWhatItEncodes() {
+		Random random = new Random(11);
+		for (int length = 0; length <= 70; length++) {
+			byte[] input = new byte[length];
+			random.nextBytes(input);
+			String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(input);
+
+			byte[] decoded = new byte[Base64Url.decodedLength(encoded.length())];
+			int decodedLength = Base64Url.decode(encoded, 0, encoded.length(), decoded);
+
+			assertThat(decodedLength).isEqualTo(length);
+			assertThat(Arrays.copyOf(decoded, decodedLength)).isEqualTo(input);
+		}
+	}
+
+	@Test
+	void decodesARangeInsideALongerString() {
+		byte[] decoded = new byte[16];
+
+		int length = Base64Url.decode("xx.aGVsbG8.yy", 3, 10, decoded);
+
+		assertThat(new String(decoded, 0, length, StandardCharsets.US_ASCII)).isEqualTo("hello");
+	}
+
+	@Test
+	void rejectsAnImpossibleLength() {
+		assertThat(decode("QUFBQ")).isEqualTo(-1);
+		assertThat(decode("Q")).isEqualTo(-1);
+	}
+
+	@Test
+	void rejectsCharactersOutsideTheUrlAlphabet() {
+		assertThat(decode("ab+d")).isEqualTo(-1);
+		assertThat(decode("ab/d")).isEqualTo(-1);
+		assertThat(decode("QQ==")).isEqualTo(-1);
+		assertThat(decode("ab d")).isEqualTo(-1);
+		assertThat(decode("ab\u00e9d")).isEqualTo(-1);
+	}
+
+	@Test
+	void rejectsNonZeroTrailingBits() {
+		// "QQ" and "QUE" are the canonical encodings of "A" and "AA"; the variants set unused low bits
+		assertThat(decode("QQ")).isEqualTo(1);
+		assertThat(decode("QR")).isEqualTo(-1);
+		assertThat(decode("QX")).isEqualTo(-1);
+		assertThat(decode("QUE")).isEqualTo(2);
+		assertThat(decode("QUF")).isEqualTo(-1);
+		assertThat(decode("QUH")).isEqualTo(-1);
+	}
+
+	@Test
+	void rejectsOutputThatDoesNotFit() {
+		assertThat(Base64Url.decode("aGVsbG8", 0, 7, new byte[4])).isEqualTo(-1);
+		assertThat(Base64Url.decode("aGVsbG8", 0, 7, new byte[5])).isEqualTo(5);
+	}
+
+	@Test
+	void lengthsAgree() {
+		for (int length = 0; length <= 70; length++) {
+			assertThat(Base64Url.decodedLength(Base64Url.encodedLength(length))).isEqualTo(length);
+		}
+	}
+
+	private static int decode(String encoded) {
+		return Base64Url.decode(encoded, 0, encoded.length(), new byte[64]);
+	}
+}
@@ -0,0 +1,224 @@
+package com.lurniq.tokens;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HmacTokenCodecTests {
+
+	private static final SecretKey KEY = Keys.hmacShaKeyFor(bytes(64, 1));
+	private static final SecretKey SHORT_KEY = Keys.hmacShaKeyFor(bytes(32, 2));
+
+	private final HmacTokenCodec codec = new HmacTokenCodec(kid -> switch (kid == null ? "" : kid) {
+		case "k1" -> KEY;
+		case "short" -> SHORT_KEY;
+		default -> null;
+	});
+
+	@Test
+	void signsTokensJjwtAccepts() {
+		long now = System.currentTimeMillis();
+		String token = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), fields(now));
+
+		Claims claims = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+
+		assertThat(claims.getId()).isEqualTo("jti-1");
+		assertThat(claims.getSubject()).isEqualTo("jane@example.com");
+		assertThat(claims.get(TokenClaims.USER_ID, Number.class).longValue()).isEqualTo(42L);
+		assertThat(claims.get(TokenClaims.ROLE, String.class)).isEqualTo("ADMIN");
+		assertThat(claims.get(TokenClaims.EMAIL_VERIFIED, Boolean.class)).isTrue();
+		assertThat(claims.get(TokenClaims.TOKEN_EPOCH, Number.class).intValue()).isEqualTo(3);
+		assertThat(claims.get(TokenClaims.FAMILY_ID, String.class)).isEqualTo("family-1");
+		assertThat(claims.getIssuedAt().getTime()).isEqualTo(now / 1000 * 1000);
+		assertThat(claims.getExpiration().getTime()).isEqualTo((now + 60_000) / 1000 * 1000);
+	}
+
+	@Test
+	void readsJjwtTokensLikeJjwtDoes() {
+		long now = System.currentTimeMillis();
+		String token = Jwts.builder()
+				.header().keyId("k1").and()
+				.id("jti-2")
+				.subject("j\u00f6hn \u00fc\u4e2d@example.com")
+				.claim(TokenClaims.USER_ID, 7L)
+				.claim(TokenClaims.ROLE, "USER")
+				.claim(TokenClaims.EMAIL_VERIFIED, false)
+				.claim(TokenClaims.TOKEN_EPOCH, 0)
+				.issuedAt(new Date(now))
+				.expiration(new Date(now + 60_000))
+				.signWith(KEY)
+				.compact();
+
+		VerifiedToken expected = VerifiedToken.from(Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload());
+		VerifiedToken actual = codec.verify(token);
+
+		assertThat(actual).isNotNull();
+		assertThat(actual).usingRecursiveComparison().ignoringFields("claims").isEqualTo(expected);
+	}
+
+	@Test
+	void roundTripsEveryOptionalClaimCombination() {
+		long now = System.currentTimeMillis();
+		TokenFields minimal = new TokenFields(null, null, null, null, null, null, null, now, now + 60_000);
+		TokenFields escaped = new TokenFields("a\"b", "line\nbreak\\", 1L, "USER", false, 0, null, now, now + 60_000);
+
+		VerifiedToken read = codec.verify(codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), minimal));
+
+		assertThat(read).isNotNull();
+		assertThat(read.subject()).isNull();
+		assertThat(read.id()).isNull();
+		assertThat(read.userId()).isNull();
+		assertThat(read.tokenEpoch()).isZero();
+		// Escaped strings are valid but left to jjwt
+		String token = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), escaped);
+		assertThat(codec.verify(token)).isNull();
+		assertThat(Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload().getSubject())
+				.isEqualTo("line\nbreak\\");
+	}
+
+	@Test
+	void signsWithTheStrongestAlgorithmTheKeyAllows() {
+		long now = System.currentTimeMillis();
+
+		assertThat(header(codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), fields(now)))).contains("\"alg\":\"HS512\"");
+		assertThat(header(codec.sign(HmacTokenCodec.HmacKey.of("short", SHORT_KEY), fields(now)))).contains("\"alg\":\"HS256\"");
+		assertThat(header(codec.sign(HmacTokenCodec.HmacKey.of(null, KEY, "HS256"), fields(now)))).isEqualTo("{\"alg\":\"HS256\"}");
+	}
+
+	@Test
+	void rejectsTamperedTokensLikeJjwt() {
+		String token = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), fields(System.currentTimeMillis()));
+		int payloadStart = token.indexOf('.') + 1;
+		char flipped = token.charAt(payloadStart + 5) == 'A' ? 'B' : 'A';
+		String tamperedPayload = token.substring(0, payloadStart + 5) + flipped + token.substring(payloadStart + 6);
+		int signatureStart = token.lastIndexOf('.') + 1;
+		char flippedSignature = token.charAt(signatureStart + 5) == 'A' ? 'B' : 'A';
+		String tamperedSignature = token.substring(0, signatureStart + 5) + flippedSignature + token.substring(signatureStart + 6);
+
+		for (String tampered : new String[] {tamperedPayload, tamperedSignature}) {
+			assertThat(codec.verify(tampered)).isNull();
+			assertThatThrownBy(() -> Jwts.parser().verifyWith(KEY).build().parseSignedClaims(tampered))
+					.isInstanceOf(SignatureException.class);
+		}
+	}
+
+	@Test
+	void rejectsNonCanonicalSignatureEncoding() {
+		// An HS512 MAC is 64 bytes, so the last of its 86 characters carries four unused low bits
+		String token = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), fields(System.currentTimeMillis()));
+		char last = token.charAt(token.length() - 1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		char variant = alphabet.charAt(alphabet.indexOf(last) | 1);
+
+		assertThat(codec.verify(token)).isNotNull();
+		assertThat(codec.verify(token.substring(0, token.length() - 1) + variant)).isNull();
+	}
+
+	@Test
+	void onlyAcceptsWhitelistedHeaders() {
+		String payload = "{\"sub\":\"jane@example.com\",\"exp\":" + (System.currentTimeMillis() / 1000 + 60) + "}";
+
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"HS512\"}", payload, "HmacSHA512", KEY))).isNotNull();
+		assertThat(codec.verify(craft("{\"typ\":\"JWT\",\"alg\":\"HS512\",\"kid\":\"k1\"}", payload, "HmacSHA512", KEY))).isNotNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"HS256\"}", payload, "HmacSHA256", KEY))).isNotNull();
+		// Unsupported algorithms, extension headers and unknown keys all fall back to jjwt
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"none\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"RS256\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"hs512\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"HS512\",\"crit\":[\"b64\"]}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"HS512\",\"typ\":\"at+jwt\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"k1\",\"alg\":\"HS512\",\"zip\":\"DEF\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"kid\":\"other\",\"alg\":\"HS512\"}", payload, "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft("{\"alg\":\"HS512\"}", payload, "HmacSHA512", KEY))).isNull();
+		// A 256-bit key is too short for HS512, as jjwt would also insist
+		assertThat(codec.verify(craft("{\"kid\":\"short\",\"alg\":\"HS512\"}", payload, "HmacSHA512", SHORT_KEY))).isNull();
+	}
+
+	@Test
+	void leavesUnknownClaimsAndUnusualValuesToJjwt() {
+		long exp = System.currentTimeMillis() / 1000 + 60;
+		String header = "{\"kid\":\"k1\",\"alg\":\"HS512\"}";
+
+		String withAudience = craft(header, "{\"sub\":\"a@b.c\",\"aud\":\"api\",\"exp\":" + exp + "}", "HmacSHA512", KEY);
+		assertThat(codec.verify(withAudience)).isNull();
+		assertThat(Jwts.parser().verifyWith(KEY).build().parseSignedClaims(withAudience).getPayload().getAudience())
+				.containsExactly("api");
+
+		assertThat(codec.verify(craft(header, "{\"uid\":1.5,\"exp\":" + exp + "}", "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft(header, "{\"uid\":\"1\",\"exp\":" + exp + "}", "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft(header, "{\"ev\":1,\"exp\":" + exp + "}", "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft(header, "{\"exp\":1e12}", "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft(header, "{\"sub\":\"a@b.c\",\"exp\":" + exp + "} x", "HmacSHA512", KEY))).isNull();
+		assertThat(codec.verify(craft(header, " { \"sub\" : \"a@b.c\" , \"exp\" : " + exp + " } ", "HmacSHA512", KEY))).isNotNull();
+	}
+
+	@Test
+	void rejectsExpiredAndMalformedTokens() {
+		long now = System.currentTimeMillis();
+		String expired = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY),
+				new TokenFields("jti", "a@b.c", 1L, "USER", true, 0, null, now - 120_000, now - 60_000));
+		String valid = codec.sign(HmacTokenCodec.HmacKey.of("k1", KEY), fields(now));
+
+		assertThat(codec.verify(expired)).isNull();
+		assertThat(codec.verify("not-a-token")).isNull();
+		assertThat(codec.verify("a.b")).isNull();
+		assertThat(codec.verify(valid + ".extra")).isNull();
+		assertThat(codec.verify(valid.substring(0, valid.lastIndexOf('.') + 1))).isNull();
+		assertThat(codec.verify(valid + "A".repeat(9000))).isNull();
+	}
+
+	@Test
+	void headerCacheDoesNotLeakBetweenTokens() {
+		long exp = System.currentTimeMillis() / 1000 + 60;
+		String payload = "{\"sub\":\"a@b.c\",\"exp\":" + exp + "}";
+		String good = craft("{\"kid\":\"k1\",\"alg\":\"HS512\"}", payload, "HmacSHA512", KEY);
+		String unsupported = craft("{\"kid\":\"k1\",\"alg\":\"HS512\",\"cty\":\"x\"}", payload, "HmacSHA512", KEY);
+
+		assertThat(codec.verify(good)).isNotNull();
+		assertThat(codec.verify(unsupported)).isNull();
+		assertThat(codec.verify(good)).isNotNull();
+	}
+
+	private static TokenFields fields(long now) {
+		return new TokenFields("jti-1", "jane@example.com", 42L, "ADMIN", true, 3, "family-1", now, now + 60_000);
+	}
+
+	private static String header(String token) {
+		return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+	}
+
+	// Correctly signed token with arbitrary header and payload JSON
+	private static String craft(String header, String payload, String macAlgorithm, SecretKey key) {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String signingInput = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+				+ encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+		try {
+			Mac mac = Mac.getInstance(macAlgorithm);
+			mac.init(key);
+			return signingInput + "." + encoder.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] bytes(int length, int seed) {
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte) seed);
+		for (int i = 0; i < length; i++) {
+			bytes[i] += (byte) (i * 31);
+		}
+		return bytes;
+	}
+}